@@ -0,0 +1,89 @@
+package com.cristianpeter.btree.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.cristianpeter.btree.BTree;
+import com.cristianpeter.btree.exceptions.NodeNotFoundException;
+
+/**
+ * Ingest of clustered batches, BTree.addAll against one BTree.add per key
+ * Each batch is a run of nearby keys around a random point, as batched writers usually send them
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xms2g", "-Xmx2g" })
+public class BatchInsertBenchmark {
+
+    private static final int BATCH = 1024;
+    private static final int BATCHES = 256;
+
+    @Param({ "16", "128" })
+    private int order;
+
+    private int[][] batches;
+    private BTree tree;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void prepare() {
+        Random random = new Random(42);
+        batches = new int[BATCHES][BATCH];
+        for (int[] batch : batches) {
+            int start = random.nextInt(Integer.MAX_VALUE - BATCH * 4);
+            for (int i = 0; i < BATCH; i++) {
+                batch[i] = start + random.nextInt(BATCH * 4);
+            }
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void setup() throws NodeNotFoundException {
+        tree = new BTree(order);
+        Random random = new Random(7);
+        for (int i = 0; i < 100_000; i++) {
+            tree.add(random.nextInt());
+        }
+        next = 0;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int addEach() throws NodeNotFoundException {
+        int added = 0;
+        for (int key : nextBatch()) {
+            added += tree.add(key) ? 1 : 0;
+        }
+        return added;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int addAll() throws NodeNotFoundException {
+        return tree.addAll(nextBatch());
+    }
+
+    private int[] nextBatch() {
+        int[] batch = batches[next];
+        next = (next + 1) % BATCHES;
+        return batch;
+    }
+
+}
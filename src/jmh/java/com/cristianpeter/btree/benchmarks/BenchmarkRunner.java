@@ -0,0 +1,30 @@
+package com.cristianpeter.btree.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Run the release matrix and keep the results as JSON, to compare them with the ones of another release
+ * java -cp target/benchmarks.jar com.cristianpeter.btree.benchmarks.BenchmarkRunner [result file] [benchmark regex]
+ * Any benchmark can also write JSON through the JMH main with: java -jar target/benchmarks.jar -rf json -rff file
+ */
+public class BenchmarkRunner {
+
+    public static final String DEFAULT_RESULT = "target/jmh-result.json";
+    public static final String DEFAULT_INCLUDE = "(WorkloadBenchmark|TraversalBenchmark)";
+
+    public static void main(String[] args) throws RunnerException {
+        String result = args.length > 0 ? args[0] : DEFAULT_RESULT;
+        String include = args.length > 1 ? args[1] : DEFAULT_INCLUDE;
+        Options options = new OptionsBuilder()
+                .include(include)
+                .resultFormat(ResultFormatType.JSON)
+                .result(result)
+                .build();
+        new Runner(options).run();
+    }
+
+}
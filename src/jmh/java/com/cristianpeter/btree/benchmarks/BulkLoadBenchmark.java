@@ -0,0 +1,61 @@
+package com.cristianpeter.btree.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.cristianpeter.btree.BTree;
+import com.cristianpeter.btree.exceptions.NodeNotFoundException;
+
+/**
+ * Time to build a whole tree from sorted keys, one add per key against BTree.bulkLoad
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx16g" })
+public class BulkLoadBenchmark {
+
+    @Param({ "100000", "1000000", "10000000" })
+    private int size;
+
+    @Param({ "16", "128" })
+    private int order;
+
+    private int[] keys;
+
+    @Setup
+    public void setup() {
+        keys = new int[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = i * 2;
+        }
+    }
+
+    @Benchmark
+    public BTree add() throws NodeNotFoundException {
+        BTree tree = new BTree(order);
+        for (int key : keys) {
+            tree.add(key);
+        }
+        return tree;
+    }
+
+    @Benchmark
+    public BTree bulkLoad() {
+        return BTree.bulkLoad(order, keys);
+    }
+
+}
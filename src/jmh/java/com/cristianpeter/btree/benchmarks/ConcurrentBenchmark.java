@@ -0,0 +1,126 @@
+package com.cristianpeter.btree.benchmarks;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.cristianpeter.btree.bplus.BPlusTree;
+import com.cristianpeter.btree.concurrent.ConcurrentBTree;
+import com.cristianpeter.btree.contracts.IBTree;
+import com.cristianpeter.btree.contracts.IBTreeCursor;
+import com.cristianpeter.btree.exceptions.KeyNotFoundException;
+import com.cristianpeter.btree.exceptions.NodeNotFoundException;
+
+/**
+ * Mixed reads and writes from many threads, ConcurrentBTree against a BPlusTree behind one global lock
+ * Writes add or delete keys of the same range with the same probability, so the size of the tree stays stable
+ * Run main to get the throughput from 1 to 64 threads, extra arguments are passed to JMH
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xms2g", "-Xmx2g" })
+public class ConcurrentBenchmark {
+
+    private static final int[] THREADS = { 1, 2, 4, 8, 16, 32, 64 };
+
+    @Param({ "1000000" })
+    private int size;
+
+    @Param({ "64" })
+    private int order;
+
+    @Param({ "OLC", "GLOBAL_LOCK" })
+    private String engine;
+
+    @Param({ "90", "50" })
+    private int readPercent;
+
+    private IBTree tree;
+
+    @Setup
+    public void setup() throws NodeNotFoundException {
+        tree = "OLC".equals(engine) ? new ConcurrentBTree(order) : new GlobalLockTree(new BPlusTree(order));
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < size; i++) {
+            tree.add(random.nextInt(size * 2));
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadRandom {
+        private final SplittableRandom random = new SplittableRandom(Thread.currentThread().threadId());
+    }
+
+    @Benchmark
+    public boolean mixed(ThreadRandom threadRandom) throws NodeNotFoundException, KeyNotFoundException {
+        SplittableRandom random = threadRandom.random;
+        int key = random.nextInt(size * 2);
+        int operation = random.nextInt(100);
+        if (operation < readPercent) {
+            return tree.contains(key);
+        }
+        return (operation & 1) == 0 ? tree.add(key) : tree.delete(key);
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        for (int threads : THREADS) {
+            Options options = new OptionsBuilder().parent(new CommandLineOptions(args))
+                    .include(ConcurrentBenchmark.class.getSimpleName())
+                    .threads(threads)
+                    .build();
+            new Runner(options).run();
+        }
+    }
+
+    /**
+     * What callers do today, every call goes through the same monitor
+     */
+    private static final class GlobalLockTree implements IBTree {
+        private final IBTree tree;
+
+        private GlobalLockTree(IBTree tree) {
+            this.tree = tree;
+        }
+
+        @Override
+        public synchronized boolean add(int key) throws NodeNotFoundException {
+            return tree.add(key);
+        }
+
+        @Override
+        public synchronized boolean delete(int key) throws NodeNotFoundException {
+            return tree.delete(key);
+        }
+
+        @Override
+        public synchronized boolean contains(int key) {
+            return tree.contains(key);
+        }
+
+        @Override
+        public IBTreeCursor cursor() {
+            return tree.cursor();
+        }
+    }
+
+}
@@ -0,0 +1,180 @@
+package com.cristianpeter.btree.benchmarks;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.cristianpeter.btree.BTree;
+import com.cristianpeter.btree.bulk.BTreeBulkLoader;
+import com.cristianpeter.btree.core.BTreeNode;
+import com.cristianpeter.btree.exceptions.KeyNotFoundException;
+import com.cristianpeter.btree.exceptions.NodeNotFoundException;
+
+/**
+ * BTree.delete against BTree.add on the same tree, run it with -prof gc to check the allocation
+ * Each invocation deletes, or adds, one key in each of a batch of random leaves, and the tear down puts the tree back
+ * Leaves are loaded between the minimum and the maximum keys, so neither side splits nor rebalances and
+ * gc.alloc.rate.norm must be zero for both
+ * randomDelete deletes random keys of a tree loaded to the minimum, so most deletes borrow or merge, and the tear down
+ * adds them again
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xms2g", "-Xmx2g" })
+public class DeleteBenchmark {
+
+    private static final int BATCH = 1024;
+    // leaves keep room for one more key and one key to spare
+    private static final double FILL_FACTOR = 0.75;
+
+    @Param({ "1000000" })
+    private int initialSize;
+
+    @Param({ "16", "128" })
+    private int order;
+
+    private BTree tree;
+    // one present key of each leaf, shuffled, the absent key after it goes to the same leaf
+    private int[] leafKeys;
+    private int[] batch;
+    private int next;
+
+    private BTree minimumTree;
+    // every key once, shuffled, so the keys of a batch are different
+    private int[] randomKeys;
+    private int[] randomBatch;
+    private int nextRandom;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        // even keys, so every odd key is free to add
+        int[] keys = IntStream.range(0, initialSize).map(i -> i * 2).toArray();
+        tree = BTree.bulkLoad(order, keys, FILL_FACTOR);
+        leafKeys = leafKeys(new BTreeBulkLoader(order, FILL_FACTOR).load(keys));
+        Random random = new Random(42);
+        for (int i = leafKeys.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = leafKeys[i];
+            leafKeys[i] = leafKeys[j];
+            leafKeys[j] = swap;
+        }
+        batch = new int[BATCH];
+        next = 0;
+
+        // nodes at the minimum keys cannot lend, the first deletes of a region merge
+        minimumTree = BTree.bulkLoad(order, keys, 0.5);
+        randomKeys = keys.clone();
+        for (int i = randomKeys.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = randomKeys[i];
+            randomKeys[i] = randomKeys[j];
+            randomKeys[j] = swap;
+        }
+        randomBatch = new int[BATCH];
+        nextRandom = 0;
+    }
+
+    @Setup(Level.Invocation)
+    public void nextBatch() {
+        for (int i = 0; i < BATCH; i++) {
+            batch[i] = leafKeys[next];
+            next = (next + 1) % leafKeys.length;
+            randomBatch[i] = randomKeys[nextRandom];
+            nextRandom = (nextRandom + 1) % randomKeys.length;
+        }
+    }
+
+    @TearDown(Level.Invocation)
+    public void restore() throws NodeNotFoundException, KeyNotFoundException {
+        for (int key : batch) {
+            if (!tree.contains(key)) {
+                tree.add(key);
+            }
+            if (tree.contains(key + 1)) {
+                tree.delete(key + 1);
+            }
+        }
+        for (int key : randomBatch) {
+            minimumTree.add(key);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int delete() throws NodeNotFoundException, KeyNotFoundException {
+        int deleted = 0;
+        for (int key : batch) {
+            tree.delete(key);
+            deleted++;
+        }
+        return deleted;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int randomDelete() throws NodeNotFoundException, KeyNotFoundException {
+        int deleted = 0;
+        for (int key : randomBatch) {
+            deleted += minimumTree.delete(key) ? 1 : 0;
+        }
+        return deleted;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int add() throws NodeNotFoundException {
+        int added = 0;
+        for (int key : batch) {
+            added += tree.add(key + 1) ? 1 : 0;
+        }
+        return added;
+    }
+
+    /**
+     * Middle key of every leaf, the bulk loader gives the same shape as BTree.bulkLoad
+     */
+    private static int[] leafKeys(BTreeNode root) {
+        int[] keys = new int[1024];
+        int size = 0;
+        Deque<BTreeNode> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            BTreeNode node = pending.pop();
+            if (node.isLeaf()) {
+                if (size == keys.length) {
+                    keys = Arrays.copyOf(keys, size * 2);
+                }
+                keys[size++] = node.getKey(node.getKeysSize() / 2);
+                continue;
+            }
+            for (BTreeNode child : node.getChildren()) {
+                if (child != null) {
+                    pending.push(child);
+                }
+            }
+        }
+        return Arrays.copyOf(keys, size);
+    }
+
+}
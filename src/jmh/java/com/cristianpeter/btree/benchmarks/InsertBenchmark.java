@@ -0,0 +1,59 @@
+package com.cristianpeter.btree.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.cristianpeter.btree.BTree;
+import com.cristianpeter.btree.exceptions.NodeNotFoundException;
+
+/**
+ * Steady state cost of BTree.add with random keys, run it with -prof gc to check the allocation
+ * The only allocation left on the insert path is the new node of each split, so gc.alloc.rate.norm
+ * must stay around the size of a node divided by the keys added between two splits
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xms2g", "-Xmx2g" })
+public class InsertBenchmark {
+
+    // odd multiplier, so every counter value gives a different key
+    private static final int SPREAD = 0x9E3779B9;
+
+    @Param({ "100000" })
+    private int initialSize;
+
+    @Param({ "16", "128" })
+    private int order;
+
+    private BTree tree;
+    private int counter;
+
+    @Setup(Level.Iteration)
+    public void setup() throws NodeNotFoundException {
+        tree = new BTree(order);
+        for (counter = 0; counter < initialSize; counter++) {
+            tree.add(counter * SPREAD);
+        }
+    }
+
+    @Benchmark
+    public boolean add() throws NodeNotFoundException {
+        return tree.add(counter++ * SPREAD);
+    }
+
+}
@@ -0,0 +1,119 @@
+package com.cristianpeter.btree.benchmarks;
+
+import java.util.Random;
+import java.util.function.IntSupplier;
+
+/**
+ * How the benchmarks pick the keys they touch, as positions between 0 and the number of keys
+ */
+public enum KeyDistribution {
+
+    /**
+     * Every position in order, starting again from 0 after the last one
+     */
+    SEQUENTIAL {
+        @Override
+        public IntSupplier positions(int count, Random random) {
+            int[] next = { 0 };
+            return () -> {
+                int position = next[0];
+                next[0] = position + 1 == count ? 0 : position + 1;
+                return position;
+            };
+        }
+    },
+
+    /**
+     * Every position with the same probability
+     */
+    RANDOM {
+        @Override
+        public IntSupplier positions(int count, Random random) {
+            return () -> random.nextInt(count);
+        }
+    },
+
+    /**
+     * Few hot positions take most of the accesses, the rank of a position is scrambled so the hot ones are spread over
+     * the whole tree instead of being the lowest keys
+     */
+    ZIPFIAN {
+        @Override
+        public IntSupplier positions(int count, Random random) {
+            Zipfian zipfian = new Zipfian(count, ZIPFIAN_THETA);
+            return () -> scramble(zipfian.next(random), count);
+        }
+    };
+
+    // skew used by YCSB, the top 1% of the positions take around half of the accesses
+    public static final double ZIPFIAN_THETA = 0.99;
+
+    /**
+     * @param count
+     *            number of positions
+     * @param random
+     *            source of randomness, distributions without it ignore it
+     * @return endless supplier of positions between 0 and count - 1
+     */
+    public abstract IntSupplier positions(int count, Random random);
+
+    /**
+     * Fill an array with the next positions
+     */
+    public int[] positions(int count, Random random, int length) {
+        IntSupplier positions = positions(count, random);
+        int[] result = new int[length];
+        for (int i = 0; i < length; i++) {
+            result[i] = positions.getAsInt();
+        }
+        return result;
+    }
+
+    private static int scramble(int rank, int count) {
+        long hash = (rank + 1) * 0x9E3779B97F4A7C15L;
+        hash ^= hash >>> 29;
+        return (int) Math.floorMod(hash, (long) count);
+    }
+
+    /**
+     * Zipfian ranks by the method of Gray et al., "Quickly Generating Billion-Record Synthetic Databases"
+     * Rank 0 is the most frequent one, the zeta sum is computed once in O(count)
+     */
+    private static final class Zipfian {
+
+        private final int count;
+        private final double theta;
+        private final double zetaN;
+        private final double alpha;
+        private final double eta;
+
+        private Zipfian(int count, double theta) {
+            this.count = count;
+            this.theta = theta;
+            this.zetaN = zeta(count, theta);
+            this.alpha = 1 / (1 - theta);
+            this.eta = (1 - Math.pow(2.0 / count, 1 - theta)) / (1 - zeta(2, theta) / zetaN);
+        }
+
+        private int next(Random random) {
+            double u = random.nextDouble();
+            double uz = u * zetaN;
+            if (uz < 1) {
+                return 0;
+            }
+            if (uz < 1 + Math.pow(0.5, theta)) {
+                return Math.min(1, count - 1);
+            }
+            return Math.min(count - 1, (int) (count * Math.pow(eta * u - eta + 1, alpha)));
+        }
+
+        private static double zeta(int count, double theta) {
+            double sum = 0;
+            for (int i = 1; i <= count; i++) {
+                sum += 1 / Math.pow(i, theta);
+            }
+            return sum;
+        }
+    }
+
+}
@@ -0,0 +1,78 @@
+package com.cristianpeter.btree.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.cristianpeter.btree.BTree;
+import com.cristianpeter.btree.exceptions.NodeNotFoundException;
+
+/**
+ * Point lookup latency for BTree.contains, from 10^3 to 10^8 keys
+ * Only even keys are inserted, so half of the probes are hits and half are misses
+ * Biggest trees need a big heap, the fork already asks for it
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx16g" })
+public class LookupBenchmark {
+
+    private static final int PROBES = 1 << 20;
+
+    @Param({ "1000", "10000", "100000", "1000000", "10000000", "100000000" })
+    private int size;
+
+    @Param({ "16", "128" })
+    private int order;
+
+    private BTree tree;
+    private int[] probes;
+    private int cursor;
+
+    @Setup
+    public void setup() throws NodeNotFoundException {
+        Random random = new Random(42);
+        int[] keys = new int[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = (i + 1) * 2;
+        }
+        // insert in random order to get a realistic shape
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = keys[i];
+            keys[i] = keys[j];
+            keys[j] = swap;
+        }
+        tree = new BTree(order);
+        for (int key : keys) {
+            tree.add(key);
+        }
+
+        probes = new int[PROBES];
+        for (int i = 0; i < PROBES; i++) {
+            // keys go from 2 to size * 2, odd values are misses
+            probes[i] = 1 + random.nextInt(size * 2);
+        }
+    }
+
+    @Benchmark
+    public boolean contains() {
+        int key = probes[cursor++ & (PROBES - 1)];
+        return tree.contains(key);
+    }
+
+}
@@ -0,0 +1,63 @@
+package com.cristianpeter.btree.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.cristianpeter.btree.core.BTreeNode;
+import com.cristianpeter.btree.enums.SearchMode;
+
+/**
+ * Cost of routing a key inside a single full node, linear scan against binary search
+ * The crossover of both modes is the value of SearchMode.BINARY_SEARCH_MIN_ORDER
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NodeSearchBenchmark {
+
+    private static final int PROBES = 1 << 16;
+
+    @Param({ "4", "8", "16", "32", "64", "128", "256", "512", "1024" })
+    private int order;
+
+    @Param({ "LINEAR", "BINARY" })
+    private SearchMode searchMode;
+
+    private BTreeNode node;
+    private int[] probes;
+    private int cursor;
+
+    @Setup
+    public void setup() {
+        node = new BTreeNode(order, null, searchMode);
+        for (int i = 1; i <= order; i++) {
+            node.addKey(i * 2);
+        }
+        Random random = new Random(42);
+        probes = new int[PROBES];
+        for (int i = 0; i < PROBES; i++) {
+            probes[i] = 1 + random.nextInt(order * 2 + 1);
+        }
+    }
+
+    @Benchmark
+    public int nextIndexByKey() {
+        return node.getNextIndexByKey(probes[cursor++ & (PROBES - 1)]);
+    }
+
+}
@@ -0,0 +1,82 @@
+package com.cristianpeter.btree.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.cristianpeter.btree.BTree;
+import com.cristianpeter.btree.bplus.BPlusTree;
+import com.cristianpeter.btree.contracts.IBTree;
+import com.cristianpeter.btree.exceptions.NodeNotFoundException;
+
+/**
+ * Range scan of a fixed number of keys, BTree cursor against the linked leaves of BPlusTree
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xms2g", "-Xmx2g" })
+public class RangeScanBenchmark {
+
+    private static final int PROBES = 1 << 10;
+
+    @Param({ "1000000" })
+    private int size;
+
+    @Param({ "16", "128" })
+    private int order;
+
+    @Param({ "BTREE", "BPLUS" })
+    private String engine;
+
+    @Param({ "1000" })
+    private int scanLength;
+
+    private IBTree tree;
+    private int[] starts;
+    private int cursor;
+
+    @Setup
+    public void setup() throws NodeNotFoundException {
+        tree = "BPLUS".equals(engine) ? new BPlusTree(order) : new BTree(order);
+        Random random = new Random(42);
+        int[] keys = new int[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = i;
+        }
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = keys[i];
+            keys[i] = keys[j];
+            keys[j] = swap;
+        }
+        for (int key : keys) {
+            tree.add(key);
+        }
+        starts = new int[PROBES];
+        for (int i = 0; i < PROBES; i++) {
+            starts[i] = random.nextInt(size - scanLength);
+        }
+    }
+
+    @Benchmark
+    public void range(Blackhole blackhole) {
+        int from = starts[cursor++ & (PROBES - 1)];
+        tree.range(from, from + scanLength - 1).forEach(blackhole::consume);
+    }
+
+}
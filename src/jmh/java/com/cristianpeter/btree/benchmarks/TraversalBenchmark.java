@@ -0,0 +1,72 @@
+package com.cristianpeter.btree.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.cristianpeter.btree.BTree;
+import com.cristianpeter.btree.contracts.IBTreeCursor;
+import com.cristianpeter.btree.exceptions.NodeNotFoundException;
+
+/**
+ * Full traversal of the tree, the cursor against the String traversals, for every order and tree size
+ * A traversal visits every key whatever the key distribution, so the tree is only built one way, adding the keys
+ * in random order
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xms2g", "-Xmx2g" })
+public class TraversalBenchmark {
+
+    @Param({ "3", "16", "128", "1024" })
+    private int order;
+
+    @Param({ "10000", "1000000" })
+    private int size;
+
+    private BTree tree;
+
+    @Setup
+    public void setup() throws NodeNotFoundException {
+        int[] keys = KeyDistribution.RANDOM.positions(Integer.MAX_VALUE, new Random(42), size);
+        tree = new BTree(order);
+        for (int key : keys) {
+            tree.add(key);
+        }
+    }
+
+    @Benchmark
+    public long cursor() {
+        long sum = 0;
+        IBTreeCursor cursor = tree.cursor();
+        while (cursor.hasNext()) {
+            sum += cursor.nextInt();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public String inOrder() {
+        return tree.inOrder();
+    }
+
+    @Benchmark
+    public String preOrder() {
+        return tree.preOrder();
+    }
+
+}
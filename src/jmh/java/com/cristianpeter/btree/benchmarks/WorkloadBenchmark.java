@@ -0,0 +1,199 @@
+package com.cristianpeter.btree.benchmarks;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+import java.util.stream.IntStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.cristianpeter.btree.BTree;
+import com.cristianpeter.btree.bulk.BTreeBulkLoader;
+import com.cristianpeter.btree.core.BTreeNode;
+import com.cristianpeter.btree.exceptions.KeyNotFoundException;
+import com.cristianpeter.btree.exceptions.NodeNotFoundException;
+
+/**
+ * BTree.add, delete and contains for every order, key distribution and tree size, the matrix to compare releases
+ * The tree holds the even keys and is bulk loaded with room and spare keys in every leaf
+ * Each add or delete invocation touches a batch of distinct keys picked by the distribution, and the tear down
+ * puts the tree back, so no leaf splits or rebalances and every invocation sees the same tree
+ * Splits are measured by InsertBenchmark, rebalancing is not measured
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xms2g", "-Xmx2g" })
+public class WorkloadBenchmark {
+
+    private static final int BATCH = 1024;
+    private static final int BATCHES = 64;
+    private static final int PROBES = 1 << 20;
+    // leaves keep room for new keys and keys to spare
+    private static final double FILL_FACTOR = 0.75;
+
+    @Param({ "3", "16", "128", "1024" })
+    private int order;
+
+    @Param({ "SEQUENTIAL", "RANDOM", "ZIPFIAN" })
+    private KeyDistribution distribution;
+
+    @Param({ "10000", "1000000" })
+    private int size;
+
+    private BTree tree;
+    private int[] probes;
+    private int cursor;
+    // keys that can be added, or deleted, without leaving the bounds of their leaf
+    private int[][] addBatches;
+    private int[][] deleteBatches;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        int[] keys = IntStream.range(0, size).map(i -> i * 2).toArray();
+        tree = BTree.bulkLoad(order, keys, FILL_FACTOR);
+
+        Random random = new Random(42);
+        probes = distribution.positions(size, random, PROBES);
+        for (int i = 0; i < PROBES; i++) {
+            probes[i] = keys[probes[i]];
+        }
+
+        // the bulk loader gives the same shape as BTree.bulkLoad
+        BTreeNode root = new BTreeBulkLoader(order, FILL_FACTOR).load(keys);
+        addBatches = batches(leafKeys(root, false), random);
+        deleteBatches = batches(leafKeys(root, true), random);
+    }
+
+    @Benchmark
+    public boolean contains() {
+        return tree.contains(probes[cursor++ & (PROBES - 1)]);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int add(Batch batch) throws NodeNotFoundException {
+        batch.keys = addBatches[batch.next];
+        int added = 0;
+        for (int key : batch.keys) {
+            added += tree.add(key) ? 1 : 0;
+        }
+        return added;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int delete(Batch batch) throws NodeNotFoundException, KeyNotFoundException {
+        batch.keys = deleteBatches[batch.next];
+        int deleted = 0;
+        for (int key : batch.keys) {
+            deleted += tree.delete(key) ? 1 : 0;
+        }
+        return deleted;
+    }
+
+    /**
+     * Batches of distinct keys, in the order the distribution picks them
+     */
+    private int[][] batches(int[] candidates, Random random) {
+        if (candidates.length < BATCH) {
+            throw new IllegalStateException("Only " + candidates.length + " candidate keys for batches of " + BATCH);
+        }
+        IntSupplier positions = distribution.positions(candidates.length, random);
+        int[][] batches = new int[BATCHES][BATCH];
+        BitSet taken = new BitSet(candidates.length);
+        for (int[] current : batches) {
+            taken.clear();
+            for (int i = 0; i < BATCH;) {
+                int position = positions.getAsInt();
+                if (!taken.get(position)) {
+                    taken.set(position);
+                    current[i++] = candidates[position];
+                }
+            }
+        }
+        return batches;
+    }
+
+    /**
+     * Keys of the leaves sorted, as many per leaf as it can take or lose before overflowing or underflowing
+     * 
+     * @param present
+     *            true for keys of the leaf, that can be deleted, false for the odd keys after them, that can be added
+     */
+    private static int[] leafKeys(BTreeNode root, boolean present) {
+        int[] keys = new int[1024];
+        int size = 0;
+        Deque<BTreeNode> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            BTreeNode node = pending.pop();
+            if (!node.isLeaf()) {
+                // pushed from the right, so leaves are visited from the left
+                for (int i = node.getChildren().length - 1; i >= 0; i--) {
+                    if (node.getChild(i) != null) {
+                        pending.push(node.getChild(i));
+                    }
+                }
+                continue;
+            }
+            // a new key is placed after each key of the leaf, so a leaf cannot take more new keys than it has
+            int free = present ? node.getKeysSize() - node.getMinKeys()
+                    : Math.min(node.getMaxKeys() - node.getKeysSize(), node.getKeysSize());
+            for (int i = 0; i < free; i++) {
+                if (size == keys.length) {
+                    keys = Arrays.copyOf(keys, size * 2);
+                }
+                keys[size++] = present ? node.getKey(i) : node.getKey(i) + 1;
+            }
+        }
+        return Arrays.copyOf(keys, size);
+    }
+
+    /**
+     * Keys of the running add or delete invocation, the fixtures of a separate state keep contains free of them
+     */
+    @State(Scope.Thread)
+    public static class Batch {
+
+        private int next;
+        private int[] keys;
+
+        @Setup(Level.Invocation)
+        public void next() {
+            next = (next + 1) % BATCHES;
+        }
+
+        @TearDown(Level.Invocation)
+        public void restore(WorkloadBenchmark workload) throws NodeNotFoundException, KeyNotFoundException {
+            for (int key : keys) {
+                // added keys are odd, deleted keys are even
+                if ((key & 1) == 1) {
+                    workload.tree.delete(key);
+                } else {
+                    workload.tree.add(key);
+                }
+            }
+        }
+    }
+
+}
@@ -1,122 +1,632 @@
 package com.cristianpeter.btree;
 
-import java.util.Optional;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.OptionalInt;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
 
+import com.cristianpeter.btree.bulk.BTreeBulkLoader;
 import com.cristianpeter.btree.contracts.IBTree;
+import com.cristianpeter.btree.contracts.IBTreeCursor;
+import com.cristianpeter.btree.contracts.IBTreeMetricsListener;
 import com.cristianpeter.btree.core.BTreeNode;
+import com.cristianpeter.btree.cursor.BTreeCursor;
+import com.cristianpeter.btree.cursor.BTreeSpliterator;
 import com.cristianpeter.btree.delete.DeleteStrategy;
-import com.cristianpeter.btree.exceptions.KeyNotFoundException;
+import com.cristianpeter.btree.enums.BTreeOperation;
+import com.cristianpeter.btree.enums.SearchMode;
 import com.cristianpeter.btree.exceptions.NodeNotFoundException;
 
+import lombok.AccessLevel;
+import lombok.Getter;
+
 public class BTree implements IBTree {
+
+    // consecutive inserts at the right edge of the tree that make it an append only ingest
+    private static final int APPEND_RUN = 8;
+
+    @Getter(AccessLevel.PACKAGE)
     private BTreeNode root;
 
+    // insert path reused by every add, path[i] is the node at depth i
+    private final BTreeNode[] path = new BTreeNode[BTreeNode.MAX_HEIGHT];
+    // lowest separator greater than the key of the last batch descent, every lower key goes to the same leaf
+    private long leafBound;
+
+    // right-most leaf of the tree, keys greater than all others go straight to it, null when unknown
+    private BTreeNode rightmost;
+    private int appendRun;
+
+    // splits, rebalances and operation times go to it, see BTreeMetrics and BTreeJfrListener
+    @Getter
+    private IBTreeMetricsListener metricsListener = IBTreeMetricsListener.NOOP;
+
     public BTree(int grade) {
-        root = new BTreeNode(grade, null);
+        this(grade, SearchMode.forOrder(grade));
+    }
+
+    /**
+     * @param searchMode
+     *            force how nodes search keys, by default it's chosen by the grade
+     */
+    public BTree(int grade, SearchMode searchMode) {
+        root = new BTreeNode(grade, null, searchMode);
+    }
+
+    private BTree(BTreeNode root) {
+        this.root = root;
+    }
+
+    /**
+     * Build a tree with full nodes from sorted keys in O(n), see BTreeBulkLoader
+     * 
+     * @param sortedKeys
+     *            sorted keys without duplicates
+     */
+    public static BTree bulkLoad(int grade, int[] sortedKeys) {
+        return bulkLoad(grade, sortedKeys, BTreeBulkLoader.DEFAULT_FILL_FACTOR);
+    }
+
+    /**
+     * Build a tree from sorted keys in O(n), see BTreeBulkLoader
+     * 
+     * @param sortedKeys
+     *            sorted keys without duplicates
+     * @param fillFactor
+     *            fraction of the maximum keys to put in each node, lower values leave room for later inserts
+     */
+    public static BTree bulkLoad(int grade, int[] sortedKeys, double fillFactor) {
+        return new BTree(new BTreeBulkLoader(grade, fillFactor).load(sortedKeys));
+    }
+
+    public static BTree bulkLoad(int grade, IntStream sortedKeys, double fillFactor) {
+        return new BTree(new BTreeBulkLoader(grade, fillFactor).load(sortedKeys));
     }
 
+    public static BTree bulkLoad(int grade, PrimitiveIterator.OfInt sortedKeys, double fillFactor) {
+        return new BTree(new BTreeBulkLoader(grade, fillFactor).load(sortedKeys));
+    }
+
+    /**
+     * Operations are only timed while the listener asks for it, see IBTreeMetricsListener.timed
+     * 
+     * @param metricsListener
+     *            receives the splits, rebalances and operation times, null goes back to NOOP
+     */
+    public void setMetricsListener(IBTreeMetricsListener metricsListener) {
+        this.metricsListener = metricsListener == null ? IBTreeMetricsListener.NOOP : metricsListener;
+    }
+
+    /**
+     * Add the key to its leaf, splitting the overflowing nodes from the leaf up to the root
+     * The descent is a loop over the path stack of the tree, so no call allocates apart from the split nodes
+     * A key greater than every other key skips the descent and goes to the cached right-most leaf, and
+     * after a run of them the right edge is split leaving the left nodes full, see split
+     * 
+     * @return false if the key was already in the tree
+     */
+    @Override
     public boolean add(int value) throws NodeNotFoundException {
-        return navigateThroughtNode(root, value);
+        if (!metricsListener.timed()) {
+            return insert(value);
+        }
+        long start = System.nanoTime();
+        boolean added = insert(value);
+        metricsListener.operation(BTreeOperation.ADD, System.nanoTime() - start);
+        return added;
     }
 
-    public boolean delete(int key) throws NodeNotFoundException, KeyNotFoundException {
-        return DeleteStrategy.delete(root, key);
+    private boolean insert(int value) throws NodeNotFoundException {
+        if (rightmost != null && rightmost.getKeysSize() > 0 && value > rightmost.getKey(rightmost.getKeysSize() - 1)) {
+            appendRun++;
+            rightmost.addKey(value);
+            if (rightmost.keysOverflowing()) {
+                splitRightEdge();
+            }
+            return true;
+        }
+
+        BTreeNode node = root;
+        int depth = 0;
+        path[0] = node;
+        // the key is greater than every key of the nodes of the path
+        boolean rightEdge = isAfterLastKey(node, value);
+        BTreeNode next;
+        while ((next = node.nextChild(value)) != null) {
+            node = next;
+            path[++depth] = node;
+            rightEdge &= isAfterLastKey(node, value);
+        }
+        if (node.findKey(value) >= 0) {
+            return false;
+        }
+        node.addKey(value);
+        appendRun = rightEdge ? appendRun + 1 : 0;
+        if (rightEdge) {
+            rightmost = node;
+        }
+        // if node is not overflowing, it's ok, else split is required
+        while (depth >= 0 && path[depth].keysOverflowing()) {
+            BTreeNode split = path[depth];
+            BTreeNode right = split(depth--, rightEdge && appendRun >= APPEND_RUN);
+            if (split == rightmost) {
+                // the greatest keys of the tree went to the right half
+                rightmost = right;
+            }
+        }
+        return true;
+    }
+
+    public boolean delete(int key) throws NodeNotFoundException {
+        forgetRightEdge();
+        if (!metricsListener.timed()) {
+            return remove(key);
+        }
+        long start = System.nanoTime();
+        boolean result = remove(key);
+        metricsListener.operation(BTreeOperation.DELETE, System.nanoTime() - start);
+        return result;
     }
 
+    private boolean remove(int key) {
+        boolean removed = DeleteStrategy.delete(root, key, metricsListener);
+        root = DeleteStrategy.collapseRoot(root);
+        return removed;
+    }
+
+    /**
+     * Add a batch of keys, the batch is sorted so the keys of a leaf are added in a single visit
+     * The tree is only descended again after a split, or when the next key belongs to another leaf
+     * 
+     * @param keys
+     *            keys in any order, duplicates are allowed, the array is not modified
+     * @return number of keys that were not in the tree
+     */
+    public int addAll(int[] keys) throws NodeNotFoundException {
+        forgetRightEdge();
+        int[] sorted = sortedCopy(keys);
+        int added = 0;
+        int i = 0;
+        while (i < sorted.length) {
+            int depth = descendForBatch(sorted[i]);
+            BTreeNode node = path[depth];
+            if (!node.isLeaf()) {
+                // found in an inner node
+                i = skipDuplicates(sorted, i);
+                continue;
+            }
+            while (i < sorted.length && sorted[i] < leafBound) {
+                int key = sorted[i];
+                i = skipDuplicates(sorted, i);
+                if (node.findKey(key) >= 0) {
+                    continue;
+                }
+                node.addKey(key);
+                added++;
+                if (node.keysOverflowing()) {
+                    // the path is no longer valid after the split, the next key goes down again
+                    while (depth >= 0 && path[depth].keysOverflowing()) {
+                        split(depth--, false);
+                    }
+                    break;
+                }
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Delete a batch of keys, the batch is sorted so the keys of a leaf are removed in a single visit
+     * All the keys of the leaf are removed first and the leaf is rebalanced once for the whole group, borrowing
+     * as many keys as it lacks or merging. A key found in an inner node goes through delete as usual
+     * 
+     * @param keys
+     *            keys in any order, duplicates are allowed, the array is not modified
+     * @return number of keys that were in the tree
+     */
+    public int deleteAll(int[] keys) throws NodeNotFoundException {
+        forgetRightEdge();
+        int[] sorted = sortedCopy(keys);
+        int deleted = 0;
+        int i = 0;
+        while (i < sorted.length) {
+            int depth = descendForBatch(sorted[i]);
+            BTreeNode node = path[depth];
+            if (!node.isLeaf()) {
+                DeleteStrategy.delete(root, sorted[i], metricsListener);
+                deleted++;
+                i = skipDuplicates(sorted, i);
+            } else {
+                while (i < sorted.length && sorted[i] < leafBound) {
+                    int index = node.findKey(sorted[i]);
+                    i = skipDuplicates(sorted, i);
+                    if (index >= 0) {
+                        node.removeKeyAt(index);
+                        deleted++;
+                    }
+                }
+                DeleteStrategy.balanceTree(node, metricsListener);
+            }
+            // the path is no longer valid after a rebalance, the next key goes down again
+            root = DeleteStrategy.collapseRoot(root);
+        }
+        return deleted;
+    }
+
+    /**
+     * Walk from the root to a leaf following the key arrays of each node.
+     * Do not allocate and do not throw, so it is safe for hot read paths
+     */
     @Override
     public boolean contains(int key) {
-        return false;
+        if (!metricsListener.timed()) {
+            return find(key);
+        }
+        long start = System.nanoTime();
+        boolean found = find(key);
+        metricsListener.operation(BTreeOperation.CONTAINS, System.nanoTime() - start);
+        return found;
     }
 
-    private boolean navigateThroughtNode(BTreeNode node, int value) throws NodeNotFoundException {
-        // There are not children so insert key in the root node
-        if (node.getChildrenSize() == 0) {
-            node.addKey(value);
-            // if node is not overflowing, it's ok
-            if (!node.keysOverflowing()) {
+    private boolean find(int key) {
+        BTreeNode node = root;
+        while (node != null) {
+            int index = node.findKey(key);
+            if (index >= 0) {
                 return true;
             }
-            // if it comes here, split is required
-            split(node);
-            return true;
+            // a leaf has no children, so getChild will return null and stop the walk
+            node = node.getChild(-index - 1);
         }
-        // There are children, so navigate to correct one
-        BTreeNode optimalNode = node.searchChild(value);
-        navigateThroughtNode(optimalNode, value);
-
         return false;
     }
 
-    private void split(BTreeNode node) {
-        int numKeys = node.getKeysSize();
-        int pivot = numKeys / 2;
-        int pivotValue = node.getKey(pivot);
+    /**
+     * Levels from the root to the leaves, 1 for a tree with only the root
+     */
+    public int height() {
+        int height = 1;
+        for (BTreeNode node = root; !node.isLeaf(); height++) {
+            node = node.getChild(0);
+        }
+        return height;
+    }
 
-        // elevate to a new node
-        if (node.getParent() == null) {
-            BTreeNode newFather = new BTreeNode(node.getOrder(), null);
-            // change root node
-            this.root = elevateToFather(node, newFather, pivot, pivotValue);
+    /**
+     * Used keys of all the nodes divided by the keys they could hold, it visits the whole tree
+     * 
+     * @return between 0 and 1, 0 for an empty tree
+     */
+    public double fillFactor() {
+        long keys = 0;
+        long capacity = 0;
+        Deque<BTreeNode> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            BTreeNode node = pending.pop();
+            keys += node.getKeysSize();
+            capacity += node.getMaxKeys();
+            for (BTreeNode child : node.getChildren()) {
+                if (child != null) {
+                    pending.push(child);
+                }
+            }
+        }
+        return (double) keys / capacity;
+    }
 
-        } else {
-            // if has parent, elevate the pivot to father
-            elevateToFather(node, node.getParent(), pivot, pivotValue);
+    private static int countKeys(BTreeNode node) {
+        return node == null ? 0 : node.countKeys();
+    }
+
+    /**
+     * Number of keys of the tree, see BTreeNode.countKeys
+     * The first call counts the whole tree, later calls only count again the nodes changed since the previous one
+     */
+    public int size() {
+        return root.countKeys();
+    }
+
+    /**
+     * Number of keys lower than the key, its position in the sorted keys when it is in the tree
+     * A single descent adding the counts of the subtrees at the left of the path, see size for the cost of the counts
+     */
+    public int rank(int key) {
+        int rank = 0;
+        BTreeNode node = root;
+        while (node != null) {
+            int index = node.findKey(key);
+            int next = index >= 0 ? index : -index - 1;
+            // keys of the node and subtrees at the left of the path
+            rank += next;
+            for (int i = 0; i < next; i++) {
+                rank += countKeys(node.getChild(i));
+            }
+            if (index >= 0) {
+                return rank + countKeys(node.getChild(index));
+            }
+            // a leaf has no children, so getChild will return null and stop the walk
+            node = node.getChild(next);
+        }
+        return rank;
+    }
+
+    /**
+     * Key at the position in the sorted keys, skipping the subtrees at the left of the position by their counts
+     * 
+     * @param position
+     *            from 0 to size - 1
+     * @return the key, or empty when the position is out of the tree
+     */
+    public OptionalInt select(int position) {
+        if (position < 0 || position >= size()) {
+            return OptionalInt.empty();
+        }
+        int remaining = position;
+        BTreeNode node = root;
+        while (true) {
+            BTreeNode next = null;
+            // children 0 to keysSize and the keys between them, leaves have no children
+            for (int i = 0; i <= node.getKeysSize(); i++) {
+                BTreeNode child = node.getChild(i);
+                if (child != null) {
+                    int keys = child.countKeys();
+                    if (remaining < keys) {
+                        next = child;
+                        break;
+                    }
+                    remaining -= keys;
+                }
+                if (i < node.getKeysSize()) {
+                    if (remaining == 0) {
+                        return OptionalInt.of(node.getKey(i));
+                    }
+                    remaining--;
+                }
+            }
+            if (next == null) {
+                // the counts are always right, so the position is in the node or in one of its children
+                throw new IllegalStateException("Position " + position + " not found with " + size() + " keys");
+            }
+            node = next;
+        }
+    }
+
+    /**
+     * Number of keys between from and to, both included, with two descents of rank
+     */
+    public int countRange(int from, int to) {
+        if (from > to) {
+            return 0;
         }
+        int upTo = to == Integer.MAX_VALUE ? size() : rank(to + 1);
+        return upTo - rank(from);
+    }
+
+    /**
+     * Cursor over the keys without building any string, see BTreeCursor
+     */
+    @Override
+    public IBTreeCursor cursor() {
+        return new BTreeCursor(root);
+    }
+
+    /**
+     * Spliterator over all the keys that splits at child boundaries, its parts are SIZED from the subtree counts, see
+     * BTreeSpliterator
+     */
+    public Spliterator.OfInt spliterator() {
+        return new BTreeSpliterator(root);
+    }
+
+    /**
+     * Spliterator over the keys between from and to, both included, that splits at child boundaries
+     */
+    public Spliterator.OfInt spliterator(int from, int to) {
+        return new BTreeSpliterator(root, from, to);
+    }
 
+    @Override
+    public IntStream stream() {
+        return StreamSupport.intStream(spliterator(), false);
     }
 
-    private BTreeNode elevateToFather(BTreeNode leftNode, BTreeNode parent, int pivotIndex, int pivotValue) {
-        // the value will be inserted on the edges
-        parent.addKey(pivotValue);
+    @Override
+    public IntStream range(int from, int to) {
+        return StreamSupport.intStream(spliterator(from, to), false);
+    }
 
-        // create a new node for right values
-        BTreeNode rightNode = new BTreeNode(parent.getOrder(), parent);
-        rightNode.mergeKeys(leftNode.getKeyRange(pivotIndex + 1, leftNode.getKeysSize()));
+    /**
+     * Parallel stream of all the keys, every task takes whole subtrees
+     */
+    public IntStream parallelStream() {
+        return StreamSupport.intStream(spliterator(), true);
+    }
 
-        // we must get all the right children of the pivot and assign them to the right node
-        Optional<BTreeNode[]> rightNodes = leftNode.getChildrenRange(pivotIndex + 1, leftNode.getChildrenSize());
+    /**
+     * Parallel stream of the keys between from and to, both included
+     */
+    public IntStream parallelRange(int from, int to) {
+        return StreamSupport.intStream(spliterator(from, to), true);
+    }
 
-        rightNodes.ifPresent(rightNode::mergeChildren);
+    /**
+     * Number of keys between from and to, both included, counted on all the cores
+     */
+    public long parallelCount(int from, int to) {
+        return parallelRange(from, to).count();
+    }
 
-        // we maintain left the node, and clear the pivot, the right values and right children
-        cleanNode(leftNode, pivotIndex, leftNode.getKeysSize());
+    /**
+     * Sum of the keys between from and to, both included, added on all the cores without overflow
+     */
+    public long parallelSum(int from, int to) {
+        return parallelRange(from, to).asLongStream().sum();
+    }
 
-        // add parent reference
-        leftNode.setParent(parent);
-        rightNode.setParent(parent);
+    /**
+     * Fold all the keys on all the cores
+     * 
+     * @param operator
+     *            associative function, identity must be its neutral value
+     */
+    public int parallelReduce(int identity, IntBinaryOperator operator) {
+        return parallelStream().reduce(identity, operator);
+    }
 
-        // we only add the left child if parent is a new node
-        if (parent.getChildrenSize() == 0) {
-            parent.addChild(0, leftNode);
+    /**
+     * Lowest key between from and to, both included, the keys are sorted so it is a single descent
+     */
+    public OptionalInt min(int from, int to) {
+        OptionalInt min = ceiling(from);
+        return min.isPresent() && min.getAsInt() <= to ? min : OptionalInt.empty();
+    }
+
+    /**
+     * Greatest key between from and to, both included, the keys are sorted so it is a single descent
+     */
+    public OptionalInt max(int from, int to) {
+        OptionalInt max = floor(to);
+        return max.isPresent() && max.getAsInt() >= from ? max : OptionalInt.empty();
+    }
+
+    /**
+     * Go down to the node of the key like add, filling the path and the bound of the leaf
+     * Keys between two separators of a node always take the same child, so every key greater or equal
+     * than the key and lower than the lowest separator passed on the right goes to the same leaf
+     * 
+     * @return depth of the leaf, or of the inner node that has the key
+     */
+    private int descendForBatch(int key) throws NodeNotFoundException {
+        BTreeNode node = root;
+        int depth = 0;
+        path[0] = node;
+        leafBound = Long.MAX_VALUE;
+        BTreeNode next;
+        while ((next = node.nextChild(key)) != null) {
+            int index = -node.findKey(key) - 1;
+            if (index < node.getKeysSize()) {
+                leafBound = Math.min(leafBound, node.getKey(index));
+            }
+            node = next;
+            path[++depth] = node;
         }
-        // find index of pivot, to insert
-        parent.addChild(parent.getNextIndexByKey(pivotValue), rightNode);
+        return depth;
+    }
+
+    private static boolean isAfterLastKey(BTreeNode node, int key) {
+        return node.getKeysSize() == 0 || key > node.getKey(node.getKeysSize() - 1);
+    }
 
-        // if the parent is overflowing, must split
-        if (parent.keysOverflowing()) {
-            split(parent);
+    /**
+     * Split the cached right-most leaf and its overflowing fathers, the path is rebuilt from the parent
+     * references, that is cheaper than a descent and only happens once every few inserts
+     */
+    private void splitRightEdge() {
+        int height = 0;
+        for (BTreeNode node = rightmost; node != null; node = node.getParent()) {
+            height++;
+        }
+        int depth = height - 1;
+        for (BTreeNode node = rightmost; node != null; node = node.getParent()) {
+            path[depth--] = node;
         }
-        return parent;
+        boolean append = appendRun >= APPEND_RUN;
+        depth = height - 1;
+        rightmost = split(depth--, append);
+        while (depth >= 0 && path[depth].keysOverflowing()) {
+            split(depth--, append);
+        }
+    }
+
+    /**
+     * Deletes and batches can change the right edge without following it, the next insert finds it again
+     */
+    private void forgetRightEdge() {
+        rightmost = null;
+        appendRun = 0;
+    }
+
+    private static int[] sortedCopy(int[] keys) {
+        int[] sorted = keys.clone();
+        Arrays.sort(sorted);
+        return sorted;
     }
 
     /**
-     * Clean all keys from start to end index
+     * @return index of the first key after the key at the index and its repetitions
+     */
+    private static int skipDuplicates(int[] sorted, int index) {
+        int key = sorted[index++];
+        while (index < sorted.length && sorted[index] == key) {
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * Split the node at the depth of the path, the father is the previous node of the path
+     * Parent references are still kept because delete strategies walk up with them
      * 
-     * @param node
-     *            node to clean
-     * @param startIndex
-     *            first key where clean up start
-     * @param endIndex
-     *            last key clean up, not included
-     */
-    private void cleanNode(BTreeNode node, int startIndex, int endIndex) {
-        for (; startIndex < endIndex; startIndex++) {
-            // 0 represents empty value
-            node.removeByIndex(startIndex);
-            if (node.getChild(startIndex + 1) != null) {
-                node.removeChildByIndex(startIndex + 1);
-            }
+     * @param append
+     *            the node is on the right edge of an append only ingest, then the left node keeps all the keys but
+     *            the pivot and the greatest one, it will never receive more keys, so it stays full
+     * @return the new right node
+     */
+    private BTreeNode split(int depth, boolean append) {
+        BTreeNode node = path[depth];
+        metricsListener.split(node.isLeaf(), depth == 0);
+        int pivot = append ? node.getKeysSize() - 2 : node.getKeysSize() / 2;
+        int pivotValue = node.getKey(pivot);
+
+        BTreeNode parent;
+        if (depth == 0) {
+            // elevate to a new node and change root node
+            parent = new BTreeNode(node.getOrder(), null, node.getSearchMode());
+            parent.addChild(0, node);
+            node.setParent(parent);
+            root = parent;
+        } else {
+            parent = path[depth - 1];
         }
+
+        // create a new node for right values and children, the left node keeps the rest
+        BTreeNode rightNode = new BTreeNode(node.getOrder(), parent, node.getSearchMode());
+        node.moveRightHalf(pivot, rightNode);
+
+        // right node goes just after the pivot
+        int pivotPosition = parent.addKey(pivotValue);
+        parent.addChild(pivotPosition + 1, rightNode);
+        return rightNode;
+    }
+
+    /**
+     * Visit all the keys in ascending order, without the cursor and without recursion
+     */
+    @Override
+    public void forEachInOrder(IntConsumer action) {
+        root.forEachInOrder(action);
+    }
+
+    public void forEachPreOrder(IntConsumer action) {
+        root.forEachPreOrder(action);
+    }
+
+    public void forEachPostOrder(IntConsumer action) {
+        root.forEachPostOrder(action);
+    }
+
+    /**
+     * Visit the keys level by level from the root, and every level from left to right
+     */
+    public void forEachLevelOrder(IntConsumer action) {
+        root.forEachLevelOrder(action);
     }
 
     public String preOrder() {
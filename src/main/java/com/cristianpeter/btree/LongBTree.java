@@ -0,0 +1,230 @@
+package com.cristianpeter.btree;
+
+import java.util.function.LongConsumer;
+
+import com.cristianpeter.btree.contracts.ILongBTree;
+import com.cristianpeter.btree.contracts.ILongBTreeCursor;
+import com.cristianpeter.btree.core.BTreeNode;
+import com.cristianpeter.btree.core.LongBTreeNode;
+import com.cristianpeter.btree.cursor.LongBTreeCursor;
+import com.cristianpeter.btree.delete.LongDeleteStrategy;
+import com.cristianpeter.btree.enums.SearchMode;
+import com.cristianpeter.btree.exceptions.NodeNotFoundException;
+
+/**
+ * BTree of primitive long keys, same engine as BTree with LongBTreeNode and the long delete strategies
+ * Keys are never boxed and never compared through Comparable
+ */
+public class LongBTree implements ILongBTree {
+
+    // consecutive inserts at the right edge of the tree that make it an append only ingest
+    private static final int APPEND_RUN = 8;
+
+    private LongBTreeNode root;
+
+    // insert path reused by every add, path[i] is the node at depth i
+    private final LongBTreeNode[] path = new LongBTreeNode[BTreeNode.MAX_HEIGHT];
+
+    // right-most leaf of the tree, keys greater than all others go straight to it, null when unknown
+    private LongBTreeNode rightmost;
+    private int appendRun;
+
+    public LongBTree(int grade) {
+        this(grade, SearchMode.forOrder(grade));
+    }
+
+    /**
+     * @param searchMode
+     *            force how nodes search keys, by default it's chosen by the grade
+     */
+    public LongBTree(int grade, SearchMode searchMode) {
+        root = new LongBTreeNode(grade, null, searchMode);
+    }
+
+    /**
+     * Add the key to its leaf, splitting the overflowing nodes from the leaf up to the root
+     * The descent is a loop over the path stack of the tree, so no call allocates apart from the split nodes
+     * A key greater than every other key skips the descent and goes to the cached right-most leaf, and
+     * after a run of them the right edge is split leaving the left nodes full, see split
+     * 
+     * @return false if the key was already in the tree
+     */
+    @Override
+    public boolean add(long value) throws NodeNotFoundException {
+        if (rightmost != null && rightmost.getKeysSize() > 0 && value > rightmost.getKey(rightmost.getKeysSize() - 1)) {
+            appendRun++;
+            rightmost.addKey(value);
+            if (rightmost.keysOverflowing()) {
+                splitRightEdge();
+            }
+            return true;
+        }
+
+        LongBTreeNode node = root;
+        int depth = 0;
+        path[0] = node;
+        // the key is greater than every key of the nodes of the path
+        boolean rightEdge = isAfterLastKey(node, value);
+        LongBTreeNode next;
+        while ((next = node.nextChild(value)) != null) {
+            node = next;
+            path[++depth] = node;
+            rightEdge &= isAfterLastKey(node, value);
+        }
+        if (node.findKey(value) >= 0) {
+            return false;
+        }
+        node.addKey(value);
+        appendRun = rightEdge ? appendRun + 1 : 0;
+        if (rightEdge) {
+            rightmost = node;
+        }
+        // if node is not overflowing, it's ok, else split is required
+        while (depth >= 0 && path[depth].keysOverflowing()) {
+            LongBTreeNode split = path[depth];
+            LongBTreeNode right = split(depth--, rightEdge && appendRun >= APPEND_RUN);
+            if (split == rightmost) {
+                // the greatest keys of the tree went to the right half
+                rightmost = right;
+            }
+        }
+        return true;
+    }
+
+    public boolean delete(long key) throws NodeNotFoundException {
+        forgetRightEdge();
+        boolean removed = LongDeleteStrategy.delete(root, key);
+        root = LongDeleteStrategy.collapseRoot(root);
+        return removed;
+    }
+
+    /**
+     * Walk from the root to a leaf following the key arrays of each node.
+     * Do not allocate and do not throw, so it is safe for hot read paths
+     */
+    @Override
+    public boolean contains(long key) {
+        LongBTreeNode node = root;
+        while (node != null) {
+            int index = node.findKey(key);
+            if (index >= 0) {
+                return true;
+            }
+            // a leaf has no children, so getChild will return null and stop the walk
+            node = node.getChild(-index - 1);
+        }
+        return false;
+    }
+
+    /**
+     * Cursor over the keys without building any string, see LongBTreeCursor
+     */
+    @Override
+    public ILongBTreeCursor cursor() {
+        return new LongBTreeCursor(root);
+    }
+
+    private static boolean isAfterLastKey(LongBTreeNode node, long key) {
+        return node.getKeysSize() == 0 || key > node.getKey(node.getKeysSize() - 1);
+    }
+
+    /**
+     * Split the cached right-most leaf and its overflowing fathers, the path is rebuilt from the parent
+     * references, that is cheaper than a descent and only happens once every few inserts
+     */
+    private void splitRightEdge() {
+        int height = 0;
+        for (LongBTreeNode node = rightmost; node != null; node = node.getParent()) {
+            height++;
+        }
+        int depth = height - 1;
+        for (LongBTreeNode node = rightmost; node != null; node = node.getParent()) {
+            path[depth--] = node;
+        }
+        boolean append = appendRun >= APPEND_RUN;
+        depth = height - 1;
+        rightmost = split(depth--, append);
+        while (depth >= 0 && path[depth].keysOverflowing()) {
+            split(depth--, append);
+        }
+    }
+
+    /**
+     * Deletes can change the right edge without following it, the next insert finds it again
+     */
+    private void forgetRightEdge() {
+        rightmost = null;
+        appendRun = 0;
+    }
+
+    /**
+     * Split the node at the depth of the path, the father is the previous node of the path
+     * Parent references are still kept because delete strategies walk up with them
+     * 
+     * @param append
+     *            the node is on the right edge of an append only ingest, then the left node keeps all the keys but
+     *            the pivot and the greatest one, it will never receive more keys, so it stays full
+     * @return the new right node
+     */
+    private LongBTreeNode split(int depth, boolean append) {
+        LongBTreeNode node = path[depth];
+        int pivot = append ? node.getKeysSize() - 2 : node.getKeysSize() / 2;
+        long pivotValue = node.getKey(pivot);
+
+        LongBTreeNode parent;
+        if (depth == 0) {
+            // elevate to a new node and change root node
+            parent = new LongBTreeNode(node.getOrder(), null, node.getSearchMode());
+            parent.addChild(0, node);
+            node.setParent(parent);
+            root = parent;
+        } else {
+            parent = path[depth - 1];
+        }
+
+        // create a new node for right values and children, the left node keeps the rest
+        LongBTreeNode rightNode = new LongBTreeNode(node.getOrder(), parent, node.getSearchMode());
+        node.moveRightHalf(pivot, rightNode);
+
+        // right node goes just after the pivot
+        int pivotPosition = parent.addKey(pivotValue);
+        parent.addChild(pivotPosition + 1, rightNode);
+        return rightNode;
+    }
+
+    /**
+     * Visit all the keys in ascending order, without the cursor and without recursion
+     */
+    @Override
+    public void forEachInOrder(LongConsumer action) {
+        root.forEachInOrder(action);
+    }
+
+    public void forEachPreOrder(LongConsumer action) {
+        root.forEachPreOrder(action);
+    }
+
+    public void forEachPostOrder(LongConsumer action) {
+        root.forEachPostOrder(action);
+    }
+
+    /**
+     * Visit the keys level by level from the root, and every level from left to right
+     */
+    public void forEachLevelOrder(LongConsumer action) {
+        root.forEachLevelOrder(action);
+    }
+
+    public String preOrder() {
+        return root.preOrder();
+    }
+
+    public String postOrder() {
+        return root.postOrder();
+    }
+
+    public String inOrder() {
+        return root.inOrder();
+    }
+
+}
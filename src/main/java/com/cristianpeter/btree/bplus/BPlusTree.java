@@ -0,0 +1,386 @@
+package com.cristianpeter.btree.bplus;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+import com.cristianpeter.btree.contracts.IBTree;
+import com.cristianpeter.btree.contracts.IBTreeCursor;
+import com.cristianpeter.btree.core.BTreeNode;
+
+import lombok.Getter;
+
+/**
+ * B+tree of int keys, keys only live in the leaves and the leaves are linked in both directions
+ * Inner nodes only keep separators for routing, the separator of a child is lower or equal than all its keys
+ * Range scans go down once and then follow the leaf links
+ * Same as BTree, this class is not thread safe
+ */
+public class BPlusTree implements IBTree {
+
+    @Getter
+    private final int order;
+    private final int minKeys;
+    private Node root;
+    private int size;
+
+    // descent path reused by every write, path[i] is the node at depth i
+    // and slots[i] the child index taken in that node, or the key index in the leaf
+    private final Node[] path = new Node[BTreeNode.MAX_HEIGHT];
+    private final int[] slots = new int[BTreeNode.MAX_HEIGHT];
+
+    /**
+     * @param order
+     *            maximum keys per node
+     */
+    public BPlusTree(int order) {
+        this.order = order;
+        this.minKeys = (int) Math.ceil((double) (order + 1) / 2 - 1);
+        this.root = new Node(order, true);
+    }
+
+    @Override
+    public boolean add(int key) {
+        int depth = descend(key);
+        int slot = slots[depth];
+        if (slot >= 0) {
+            return false;
+        }
+        path[depth].insertAt(-slot - 1, key, null);
+        size++;
+        while (depth >= 0 && path[depth].size > order) {
+            split(depth--);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean delete(int key) {
+        int depth = descend(key);
+        int slot = slots[depth];
+        if (slot < 0) {
+            return false;
+        }
+        path[depth].removeAt(slot);
+        size--;
+        rebalance(depth);
+        return true;
+    }
+
+    @Override
+    public boolean contains(int key) {
+        Node node = root;
+        while (!node.isLeaf()) {
+            node = node.children[node.route(key)];
+        }
+        return node.find(key) >= 0;
+    }
+
+    @Override
+    public IBTreeCursor cursor() {
+        return new Cursor();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Go down from the root to the leaf of the key, filling the path
+     * 
+     * @return depth of the leaf, its slot is the result of the key search in the leaf
+     */
+    private int descend(int key) {
+        Node node = root;
+        int depth = 0;
+        while (!node.isLeaf()) {
+            int child = node.route(key);
+            path[depth] = node;
+            slots[depth++] = child;
+            node = node.children[child];
+        }
+        path[depth] = node;
+        slots[depth] = node.find(key);
+        return depth;
+    }
+
+    private Node leaf(int key) {
+        Node node = root;
+        while (!node.isLeaf()) {
+            node = node.children[node.route(key)];
+        }
+        return node;
+    }
+
+    private Node lastLeaf() {
+        Node node = root;
+        while (!node.isLeaf()) {
+            node = node.children[node.size];
+        }
+        return node;
+    }
+
+    /**
+     * Move the right half of the node to a new node
+     * A leaf copies its first right key to the father, an inner node moves its pivot to the father
+     */
+    private void split(int depth) {
+        Node node = path[depth];
+        Node right = new Node(order, node.isLeaf());
+        int separator;
+        if (node.isLeaf()) {
+            int pivot = (node.size + 1) / 2;
+            int moved = node.size - pivot;
+            System.arraycopy(node.keys, pivot, right.keys, 0, moved);
+            right.size = moved;
+            node.size = pivot;
+            separator = right.keys[0];
+            // link the new leaf after the node
+            right.next = node.next;
+            right.previous = node;
+            if (node.next != null) {
+                node.next.previous = right;
+            }
+            node.next = right;
+        } else {
+            int pivot = node.size / 2;
+            int moved = node.size - pivot - 1;
+            separator = node.keys[pivot];
+            System.arraycopy(node.keys, pivot + 1, right.keys, 0, moved);
+            System.arraycopy(node.children, pivot + 1, right.children, 0, moved + 1);
+            Arrays.fill(node.children, pivot + 1, node.size + 1, null);
+            right.size = moved;
+            node.size = pivot;
+        }
+
+        if (depth == 0) {
+            Node newRoot = new Node(order, false);
+            newRoot.keys[0] = separator;
+            newRoot.children[0] = node;
+            newRoot.children[1] = right;
+            newRoot.size = 1;
+            root = newRoot;
+            return;
+        }
+        path[depth - 1].insertAt(slots[depth - 1], separator, right);
+    }
+
+    /**
+     * Fix the underflowing nodes of the path, from the depth up to the root
+     */
+    private void rebalance(int depth) {
+        for (; depth > 0 && path[depth].size < minKeys; depth--) {
+            Node node = path[depth];
+            Node parent = path[depth - 1];
+            int childIndex = slots[depth - 1];
+            Node left = childIndex > 0 ? parent.children[childIndex - 1] : null;
+            Node right = childIndex < parent.size ? parent.children[childIndex + 1] : null;
+
+            if (left != null && left.size > minKeys) {
+                borrowFromLeft(parent, childIndex - 1, left, node);
+            } else if (right != null && right.size > minKeys) {
+                borrowFromRight(parent, childIndex, node, right);
+            } else if (left != null) {
+                merge(parent, childIndex - 1, left, node);
+            } else {
+                merge(parent, childIndex, node, right);
+            }
+        }
+        if (root.size == 0 && !root.isLeaf()) {
+            root = root.children[0];
+        }
+    }
+
+    /**
+     * The greatest key of the left sibling goes to the node
+     * For leaves it becomes the new separator, for inner nodes it rotates through the father
+     */
+    private void borrowFromLeft(Node parent, int separator, Node left, Node node) {
+        System.arraycopy(node.keys, 0, node.keys, 1, node.size);
+        int last = left.size - 1;
+        if (node.isLeaf()) {
+            node.keys[0] = left.keys[last];
+            parent.keys[separator] = node.keys[0];
+        } else {
+            System.arraycopy(node.children, 0, node.children, 1, node.size + 1);
+            node.children[0] = left.children[left.size];
+            left.children[left.size] = null;
+            node.keys[0] = parent.keys[separator];
+            parent.keys[separator] = left.keys[last];
+        }
+        node.size++;
+        left.size--;
+    }
+
+    /**
+     * The lowest key of the right sibling goes to the node
+     * For leaves the next key of the sibling becomes the separator, for inner nodes it rotates through the father
+     */
+    private void borrowFromRight(Node parent, int separator, Node node, Node right) {
+        if (node.isLeaf()) {
+            node.keys[node.size] = right.keys[0];
+            parent.keys[separator] = right.keys[1];
+        } else {
+            node.keys[node.size] = parent.keys[separator];
+            node.children[node.size + 1] = right.children[0];
+            parent.keys[separator] = right.keys[0];
+            System.arraycopy(right.children, 1, right.children, 0, right.size);
+            right.children[right.size] = null;
+        }
+        node.size++;
+        System.arraycopy(right.keys, 1, right.keys, 0, right.size - 1);
+        right.size--;
+    }
+
+    /**
+     * Join the right node into the left node, the right node disappear
+     * Inner nodes also take the father key, leaves drop it and unlink the right leaf
+     */
+    private void merge(Node parent, int separator, Node left, Node right) {
+        if (left.isLeaf()) {
+            System.arraycopy(right.keys, 0, left.keys, left.size, right.size);
+            left.size += right.size;
+            left.next = right.next;
+            if (right.next != null) {
+                right.next.previous = left;
+            }
+        } else {
+            left.keys[left.size] = parent.keys[separator];
+            System.arraycopy(right.keys, 0, left.keys, left.size + 1, right.size);
+            System.arraycopy(right.children, 0, left.children, left.size + 1, right.size + 1);
+            left.size += right.size + 1;
+        }
+        parent.removeAt(separator);
+    }
+
+    private static final class Node {
+        private final int[] keys;
+        // null for leaves, a node never changes from leaf to inner node
+        private final Node[] children;
+        // leaf links, always null for inner nodes
+        private Node previous;
+        private Node next;
+        private int size;
+
+        private Node(int order, boolean leaf) {
+            // overpass maximum by 1 for making split more easy
+            keys = new int[order + 1];
+            children = leaf ? null : new Node[order + 2];
+        }
+
+        private boolean isLeaf() {
+            return children == null;
+        }
+
+        /**
+         * @return index of the key, or (-(insertion index) - 1) when the key is not in this node
+         */
+        private int find(int key) {
+            return Arrays.binarySearch(keys, 0, size, key);
+        }
+
+        /**
+         * @return index of the child that can contain the key, the one after the separators lower or equal than it
+         */
+        private int route(int key) {
+            int index = find(key);
+            return index >= 0 ? index + 1 : -index - 1;
+        }
+
+        /**
+         * Add the key at index, and for inner nodes the right child just after it
+         */
+        private void insertAt(int index, int key, Node rightChild) {
+            System.arraycopy(keys, index, keys, index + 1, size - index);
+            keys[index] = key;
+            if (rightChild != null) {
+                System.arraycopy(children, index + 1, children, index + 2, size - index);
+                children[index + 1] = rightChild;
+            }
+            size++;
+        }
+
+        /**
+         * Remove the key at index, and for inner nodes the child just after it
+         */
+        private void removeAt(int index) {
+            System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+            if (children != null) {
+                System.arraycopy(children, index + 2, children, index + 1, size - index - 1);
+                children[size] = null;
+            }
+            size--;
+        }
+    }
+
+    /**
+     * Cursor over the leaf links, the gap is before the key at index of the leaf
+     * The tree must not be modified while the cursor is used
+     */
+    private final class Cursor implements IBTreeCursor {
+
+        private Node leaf;
+        private int index;
+
+        private Cursor() {
+            seekFirst();
+        }
+
+        @Override
+        public void seekFirst() {
+            leaf = leaf(Integer.MIN_VALUE);
+            index = 0;
+        }
+
+        @Override
+        public void seekLast() {
+            leaf = lastLeaf();
+            index = leaf.size;
+        }
+
+        @Override
+        public void seek(int key) {
+            leaf = leaf(key);
+            int found = leaf.find(key);
+            index = found >= 0 ? found : -found - 1;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (index >= leaf.size && leaf.next != null) {
+                leaf = leaf.next;
+                index = 0;
+            }
+            return index < leaf.size;
+        }
+
+        @Override
+        public int nextInt() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return leaf.keys[index++];
+        }
+
+        @Override
+        public boolean hasPrevious() {
+            while (index == 0 && leaf.previous != null) {
+                leaf = leaf.previous;
+                index = leaf.size;
+            }
+            return index > 0;
+        }
+
+        @Override
+        public int previous() {
+            if (!hasPrevious()) {
+                throw new NoSuchElementException();
+            }
+            return leaf.keys[--index];
+        }
+    }
+
+}
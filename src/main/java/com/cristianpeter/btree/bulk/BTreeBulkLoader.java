@@ -0,0 +1,176 @@
+package com.cristianpeter.btree.bulk;
+
+import java.util.Arrays;
+import java.util.PrimitiveIterator;
+import java.util.stream.IntStream;
+
+import com.cristianpeter.btree.core.BTreeNode;
+import com.cristianpeter.btree.enums.SearchMode;
+
+import lombok.Getter;
+
+/**
+ * Build a BTree from sorted keys bottom-up in O(n), without splits
+ * <p>
+ * In a BTree the keys of the inner nodes are the separators between leaves, so the sorted keys are read once:
+ * each leaf takes its keys and the next key is kept as separator. Every upper level is built the same way from
+ * the separators of the level below, until only the root is left.
+ * Nodes of a level are sized evenly around the fill factor and never below the minimum keys.
+ */
+@Getter
+public class BTreeBulkLoader {
+
+    public static final double DEFAULT_FILL_FACTOR = 1.0;
+
+    private final int order;
+    private final SearchMode searchMode;
+    private final int minKeys;
+    private final int maxKeys;
+    // keys wanted per node for the fill factor
+    private final int targetKeys;
+
+    /**
+     * @param order
+     *            maximum keys per node
+     * @param fillFactor
+     *            fraction of the maximum keys to put in each node, between 0 and 1
+     */
+    public BTreeBulkLoader(int order, double fillFactor) {
+        this(order, fillFactor, SearchMode.forOrder(order));
+    }
+
+    public BTreeBulkLoader(int order, double fillFactor, SearchMode searchMode) {
+        if (fillFactor <= 0 || fillFactor > 1) {
+            throw new IllegalArgumentException("Fill factor must be greater than 0 and not greater than 1: " + fillFactor);
+        }
+        this.order = order;
+        this.searchMode = searchMode;
+        // same limits as BTreeNode
+        BTreeNode sample = new BTreeNode(order, null, searchMode);
+        this.minKeys = sample.getMinKeys();
+        this.maxKeys = sample.getMaxKeys();
+        this.targetKeys = Math.max(Math.max(minKeys, 1), Math.min(maxKeys, (int) Math.round(fillFactor * maxKeys)));
+    }
+
+    /**
+     * @param keys
+     *            sorted keys without duplicates
+     * @return the root of the new tree
+     */
+    public BTreeNode load(int[] keys) {
+        return load(keys, keys.length);
+    }
+
+    /**
+     * The stream is consumed to an array first, the tree shape depends on the number of keys
+     */
+    public BTreeNode load(IntStream keys) {
+        return load(keys.toArray());
+    }
+
+    /**
+     * The iterator is consumed to an array first, the tree shape depends on the number of keys
+     */
+    public BTreeNode load(PrimitiveIterator.OfInt keys) {
+        int[] buffer = new int[1024];
+        int size = 0;
+        while (keys.hasNext()) {
+            if (size == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            buffer[size++] = keys.nextInt();
+        }
+        return load(buffer, size);
+    }
+
+    /**
+     * @param keys
+     *            sorted keys without duplicates
+     * @param size
+     *            number of keys to load from the start of the array
+     * @return the root of the new tree
+     */
+    public BTreeNode load(int[] keys, int size) {
+        checkSorted(keys, size);
+        if (size <= maxKeys) {
+            BTreeNode root = newNode();
+            root.appendKeys(keys, 0, size);
+            return root;
+        }
+
+        // every leaf but the last one is followed by its separator
+        int leaves = groups(size + 1, targetKeys + 1);
+        int leafKeys = size - (leaves - 1);
+        BTreeNode[] level = new BTreeNode[leaves];
+        int[] separators = new int[leaves - 1];
+        int base = leafKeys / leaves;
+        int extra = leafKeys % leaves;
+        int cursor = 0;
+        for (int i = 0; i < leaves; i++) {
+            int length = base + (i < extra ? 1 : 0);
+            level[i] = newNode();
+            level[i].appendKeys(keys, cursor, length);
+            cursor += length;
+            if (i < leaves - 1) {
+                separators[i] = keys[cursor++];
+            }
+        }
+
+        // the separators of a level become the keys of the next one
+        int count = leaves;
+        while (count > 1) {
+            int parents = count <= maxKeys + 1 ? 1 : groups(count, targetKeys + 1);
+            BTreeNode[] upper = new BTreeNode[parents];
+            int[] upperSeparators = new int[parents - 1];
+            base = count / parents;
+            extra = count % parents;
+            int child = 0;
+            int separator = 0;
+            for (int i = 0; i < parents; i++) {
+                int children = base + (i < extra ? 1 : 0);
+                BTreeNode parent = newNode();
+                parent.appendKeys(separators, separator, children - 1);
+                separator += children - 1;
+                for (int c = 0; c < children; c++) {
+                    level[child].setParent(parent);
+                    parent.addChild(c, level[child++]);
+                }
+                upper[i] = parent;
+                if (i < parents - 1) {
+                    upperSeparators[i] = separators[separator++];
+                }
+            }
+            level = upper;
+            separators = upperSeparators;
+            count = parents;
+        }
+        return level[0];
+    }
+
+    /**
+     * Number of nodes for the items, where an item is a child, or a key with its separator for leaves
+     * As close as possible to the target, but every node must stay between the minimum and the maximum
+     */
+    private int groups(int items, int target) {
+        int groups = Math.max(ceilDiv(items, target), ceilDiv(items, maxKeys + 1));
+        return Math.max(1, Math.min(groups, items / (minKeys + 1)));
+    }
+
+    private static int ceilDiv(int dividend, int divisor) {
+        return (dividend + divisor - 1) / divisor;
+    }
+
+    private BTreeNode newNode() {
+        return new BTreeNode(order, null, searchMode);
+    }
+
+    private static void checkSorted(int[] keys, int size) {
+        for (int i = 1; i < size; i++) {
+            if (keys[i - 1] >= keys[i]) {
+                throw new IllegalArgumentException("Keys must be sorted without duplicates, found " + keys[i - 1] + " before "
+                        + keys[i] + " at position " + i);
+            }
+        }
+    }
+
+}
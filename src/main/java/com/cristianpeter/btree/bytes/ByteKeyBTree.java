@@ -0,0 +1,593 @@
+package com.cristianpeter.btree.bytes;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import com.cristianpeter.btree.contracts.IByteKeyBTree;
+import com.cristianpeter.btree.core.BTreeNode;
+
+import lombok.Getter;
+
+/**
+ * B+tree of variable length byte[] keys stored in slotted pages
+ * <p>
+ * Each node is a page of bytes: the common prefix of its keys, a directory of slots growing from the start and
+ * the cells with the rest of each key growing from the end. A node holds as many keys as fit in its page, so
+ * short keys and long shared prefixes, such as URLs or tenant prefixed ids, put many more keys in each node.
+ * Leaves are linked in both directions and inner nodes only keep separators, the shortest prefix of the first
+ * key of the right child that is still greater than the last key of the left child.
+ * Keys are compared as unsigned bytes, see ByteKeys for encodings that keep the order of other types.
+ * Deletes merge two siblings when they fit in one page, nodes that can not merge stay under filled.
+ * Same as BTree, this class is not thread safe
+ */
+public class ByteKeyBTree implements IByteKeyBTree {
+
+    public static final int DEFAULT_PAGE_SIZE = 4096;
+    public static final int MIN_PAGE_SIZE = 256;
+    // offsets and lengths inside the page are stored in 2 bytes
+    public static final int MAX_PAGE_SIZE = 1 << 16;
+
+    // prefix length before the prefix, slot and length before the suffix of each cell
+    private static final int HEADER_BYTES = 2;
+    private static final int SLOT_BYTES = 2;
+    private static final int CELL_HEADER_BYTES = 2;
+
+    @Getter
+    private final int pageSize;
+    // at least 4 keys fit in a page, so both halves of a split always fit
+    @Getter
+    private final int maxKeyLength;
+    // a node using less bytes tries to merge with a sibling
+    private final int underflowBytes;
+    private final int maxKeysPerPage;
+    private Node root;
+    private int size;
+    @Getter
+    private int nodeCount;
+
+    // descent path reused by every write, path[i] is the node at depth i
+    // and slots[i] the child index taken in that node, or the key search result in the leaf
+    private final Node[] path = new Node[BTreeNode.MAX_HEIGHT];
+    private final int[] slots = new int[BTreeNode.MAX_HEIGHT];
+
+    public ByteKeyBTree() {
+        this(DEFAULT_PAGE_SIZE);
+    }
+
+    /**
+     * @param pageSize
+     *            bytes of each node, between MIN_PAGE_SIZE and MAX_PAGE_SIZE
+     */
+    public ByteKeyBTree(int pageSize) {
+        if (pageSize < MIN_PAGE_SIZE || pageSize > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between " + MIN_PAGE_SIZE + " and " + MAX_PAGE_SIZE + ": "
+                    + pageSize);
+        }
+        this.pageSize = pageSize;
+        this.maxKeyLength = (pageSize - HEADER_BYTES) / 4 - SLOT_BYTES - CELL_HEADER_BYTES;
+        this.underflowBytes = pageSize / 4;
+        this.maxKeysPerPage = (pageSize - HEADER_BYTES) / (SLOT_BYTES + CELL_HEADER_BYTES);
+        this.root = newNode(true);
+    }
+
+    @Override
+    public boolean add(byte[] key) {
+        checkKey(key);
+        int depth = descend(key);
+        int slot = slots[depth];
+        if (slot >= 0) {
+            return false;
+        }
+        insert(depth, -slot - 1, key, null);
+        size++;
+        return true;
+    }
+
+    @Override
+    public boolean delete(byte[] key) {
+        checkKey(key);
+        int depth = descend(key);
+        int slot = slots[depth];
+        if (slot < 0) {
+            return false;
+        }
+        path[depth].removeAt(slot);
+        size--;
+        rebalance(depth);
+        return true;
+    }
+
+    @Override
+    public boolean contains(byte[] key) {
+        Node node = root;
+        while (!node.isLeaf()) {
+            node = node.children[node.route(key)];
+        }
+        return node.find(key) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return number of levels, 1 when the root is a leaf
+     */
+    public int height() {
+        int height = 1;
+        for (Node node = root; !node.isLeaf(); node = node.children[0]) {
+            height++;
+        }
+        return height;
+    }
+
+    @Override
+    public Iterator<byte[]> iterator() {
+        Node leaf = root;
+        while (!leaf.isLeaf()) {
+            leaf = leaf.children[0];
+        }
+        return new KeyIterator(leaf, 0);
+    }
+
+    @Override
+    public Iterator<byte[]> iterator(byte[] from) {
+        Node leaf = root;
+        while (!leaf.isLeaf()) {
+            leaf = leaf.children[leaf.route(from)];
+        }
+        int found = leaf.find(from);
+        return new KeyIterator(leaf, found >= 0 ? found : -found - 1);
+    }
+
+    private void checkKey(byte[] key) {
+        if (key.length > maxKeyLength) {
+            throw new IllegalArgumentException("Key length must not pass " + maxKeyLength + " bytes: " + key.length);
+        }
+    }
+
+    private Node newNode(boolean leaf) {
+        nodeCount++;
+        return new Node(pageSize, leaf ? 0 : maxKeysPerPage + 2);
+    }
+
+    /**
+     * Go down from the root to the leaf of the key, filling the path
+     * 
+     * @return depth of the leaf, its slot is the result of the key search in the leaf
+     */
+    private int descend(byte[] key) {
+        Node node = root;
+        int depth = 0;
+        while (!node.isLeaf()) {
+            int child = node.route(key);
+            path[depth] = node;
+            slots[depth++] = child;
+            node = node.children[child];
+        }
+        path[depth] = node;
+        slots[depth] = node.find(key);
+        return depth;
+    }
+
+    /**
+     * Add the key at index of the node at the depth, and for inner nodes the right child just after it
+     * The key goes in place when it shares the prefix of the node and there is room, otherwise the node is
+     * written again with the common prefix of all its keys, or split when they do not fit in one page
+     */
+    private void insert(int depth, int index, byte[] key, Node rightChild) {
+        Node node = path[depth];
+        if (node.insertInPlace(index, key, rightChild)) {
+            return;
+        }
+        int count = node.size + 1;
+        byte[][] keys = new byte[count][];
+        Node[] children = node.isLeaf() ? null : new Node[count + 1];
+        for (int i = 0, j = 0; i < count; i++) {
+            keys[i] = i == index ? key : node.key(j++);
+        }
+        if (children != null) {
+            System.arraycopy(node.children, 0, children, 0, index + 1);
+            children[index + 1] = rightChild;
+            System.arraycopy(node.children, index + 1, children, index + 2, node.size - index);
+        }
+        if (pageBytes(keys, 0, count) <= pageSize) {
+            node.write(keys, children, 0, count);
+        } else {
+            split(depth, keys, children, count);
+        }
+    }
+
+    /**
+     * Write the keys of an overflowing node in the node and a new right node, cut where the bytes are balanced
+     * A leaf sends a truncated copy of the first right key to the father, an inner node moves its pivot to the father
+     */
+    private void split(int depth, byte[][] keys, Node[] children, int count) {
+        Node node = path[depth];
+        Node right = newNode(node.isLeaf());
+        byte[] separator;
+        if (node.isLeaf()) {
+            int pivot = pivot(keys, 1, count - 1, count, true);
+            node.write(keys, null, 0, pivot);
+            right.write(keys, null, pivot, count);
+            separator = shortestSeparator(keys[pivot - 1], keys[pivot]);
+            // link the new leaf after the node
+            right.next = node.next;
+            right.previous = node;
+            if (node.next != null) {
+                node.next.previous = right;
+            }
+            node.next = right;
+        } else {
+            int pivot = pivot(keys, 1, count - 2, count, false);
+            separator = keys[pivot];
+            node.write(keys, children, 0, pivot);
+            right.write(keys, Arrays.copyOfRange(children, pivot + 1, count + 1), pivot + 1, count);
+        }
+
+        if (depth == 0) {
+            Node newRoot = newNode(false);
+            newRoot.write(new byte[][] { separator }, new Node[] { node, right }, 0, 1);
+            root = newRoot;
+            return;
+        }
+        insert(depth - 1, slots[depth - 1], separator, right);
+    }
+
+    /**
+     * Choose the pivot between first and last that makes the fuller half as small as possible
+     * Each half is measured with its own common prefix, a key that broke the prefix of the node is always at one end
+     * and can go alone to its half, so both halves fit
+     * 
+     * @param leaf
+     *            the pivot starts the right half, otherwise it goes to the father and belongs to no half
+     */
+    private int pivot(byte[][] keys, int first, int last, int count, boolean leaf) {
+        long[] cells = new long[count + 1];
+        for (int i = 0; i < count; i++) {
+            cells[i + 1] = cells[i] + SLOT_BYTES + CELL_HEADER_BYTES + keys[i].length;
+        }
+        int best = first;
+        long bestBytes = Long.MAX_VALUE;
+        for (int pivot = first; pivot <= last; pivot++) {
+            int rightStart = leaf ? pivot : pivot + 1;
+            int leftPrefix = commonPrefix(keys[0], keys[pivot - 1]);
+            int rightPrefix = commonPrefix(keys[rightStart], keys[count - 1]);
+            long left = HEADER_BYTES + leftPrefix + cells[pivot] - (long) pivot * leftPrefix;
+            long right = HEADER_BYTES + rightPrefix + cells[count] - cells[rightStart]
+                    - (long) (count - rightStart) * rightPrefix;
+            long bytes = Math.max(left, right);
+            if (bytes < bestBytes) {
+                bestBytes = bytes;
+                best = pivot;
+            }
+        }
+        if (bestBytes > pageSize) {
+            throw new IllegalStateException("No split of " + count + " keys fits in pages of " + pageSize + " bytes");
+        }
+        return best;
+    }
+
+    /**
+     * Shortest key greater than left and lower or equal than right, a prefix of right
+     */
+    private static byte[] shortestSeparator(byte[] left, byte[] right) {
+        int common = Arrays.mismatch(left, right);
+        return Arrays.copyOf(right, common + 1);
+    }
+
+    /**
+     * Merge the underflowing nodes of the path with a sibling, from the depth up to the root
+     */
+    private void rebalance(int depth) {
+        for (; depth > 0 && path[depth].usedBytes() < underflowBytes; depth--) {
+            Node parent = path[depth - 1];
+            int childIndex = slots[depth - 1];
+            int separator = childIndex > 0 ? childIndex - 1 : childIndex;
+            if (separator >= parent.size) {
+                // an inner node left without keys has no sibling
+                break;
+            }
+            if (!merge(parent, separator, parent.children[separator], parent.children[separator + 1])) {
+                break;
+            }
+        }
+        while (root.size == 0 && !root.isLeaf()) {
+            root = root.children[0];
+            nodeCount--;
+        }
+    }
+
+    /**
+     * Join the right node into the left node when both fit in one page, the right node disappear
+     * Inner nodes also take the father key, leaves drop it and unlink the right leaf
+     * 
+     * @return false if they do not fit in one page
+     */
+    private boolean merge(Node parent, int separator, Node left, Node right) {
+        boolean leaf = left.isLeaf();
+        int count = left.size + right.size + (leaf ? 0 : 1);
+        byte[][] keys = new byte[count][];
+        int k = 0;
+        for (int i = 0; i < left.size; i++) {
+            keys[k++] = left.key(i);
+        }
+        if (!leaf) {
+            keys[k++] = parent.key(separator);
+        }
+        for (int i = 0; i < right.size; i++) {
+            keys[k++] = right.key(i);
+        }
+        if (pageBytes(keys, 0, count) > pageSize) {
+            return false;
+        }
+        Node[] children = null;
+        if (!leaf) {
+            children = new Node[count + 1];
+            System.arraycopy(left.children, 0, children, 0, left.size + 1);
+            System.arraycopy(right.children, 0, children, left.size + 1, right.size + 1);
+        }
+        left.write(keys, children, 0, count);
+        if (leaf) {
+            left.next = right.next;
+            if (right.next != null) {
+                right.next.previous = left;
+            }
+        }
+        parent.removeAt(separator);
+        nodeCount--;
+        return true;
+    }
+
+    /**
+     * Bytes of a page holding the keys from first to end, with their common prefix stored once
+     */
+    private static long pageBytes(byte[][] keys, int first, int end) {
+        int prefix = first < end ? commonPrefix(keys[first], keys[end - 1]) : 0;
+        long bytes = HEADER_BYTES + prefix;
+        for (int i = first; i < end; i++) {
+            bytes += SLOT_BYTES + CELL_HEADER_BYTES + keys[i].length - prefix;
+        }
+        return bytes;
+    }
+
+    /**
+     * The keys are sorted, so the common prefix of all of them is the one of the first and the last
+     */
+    private static int commonPrefix(byte[] first, byte[] last) {
+        int mismatch = Arrays.mismatch(first, last);
+        return mismatch < 0 ? first.length : mismatch;
+    }
+
+    private static int readShort(byte[] page, int offset) {
+        return ((page[offset] & 0xFF) << 8) | (page[offset + 1] & 0xFF);
+    }
+
+    private static void writeShort(byte[] page, int offset, int value) {
+        page[offset] = (byte) (value >>> 8);
+        page[offset + 1] = (byte) value;
+    }
+
+    /**
+     * Slotted page: prefix length, prefix and slots from the start, cells of length and suffix from the end
+     * Removed cells leave garbage that is compacted when an insert needs the room
+     */
+    private static final class Node {
+        private final byte[] page;
+        // null for leaves, a node never changes from leaf to inner node
+        private final Node[] children;
+        // leaf links, always null for inner nodes
+        private Node previous;
+        private Node next;
+        private int size;
+        private int prefixLength;
+        // first byte of the cells area
+        private int cellStart;
+        private int garbage;
+
+        private Node(int pageSize, int maxChildren) {
+            page = new byte[pageSize];
+            children = maxChildren == 0 ? null : new Node[maxChildren];
+            cellStart = pageSize;
+        }
+
+        private boolean isLeaf() {
+            return children == null;
+        }
+
+        private int slotsStart() {
+            return HEADER_BYTES + prefixLength;
+        }
+
+        private int cell(int index) {
+            return readShort(page, slotsStart() + index * SLOT_BYTES);
+        }
+
+        private int usedBytes() {
+            return page.length - (cellStart - slotsStart() - size * SLOT_BYTES) - garbage;
+        }
+
+        /**
+         * @return a new array with the prefix and the suffix of the key at index
+         */
+        private byte[] key(int index) {
+            int cell = cell(index);
+            int length = readShort(page, cell);
+            byte[] key = new byte[prefixLength + length];
+            System.arraycopy(page, HEADER_BYTES, key, 0, prefixLength);
+            System.arraycopy(page, cell + CELL_HEADER_BYTES, key, prefixLength, length);
+            return key;
+        }
+
+        /**
+         * Compare the prefix once, then binary search the suffixes in place, nothing is allocated
+         * 
+         * @return index of the key, or (-(insertion index) - 1) when the key is not in this node
+         */
+        private int find(byte[] key) {
+            int compared = Math.min(prefixLength, key.length);
+            int prefix = Arrays.compareUnsigned(key, 0, compared, page, HEADER_BYTES, HEADER_BYTES + compared);
+            if (prefix < 0 || (prefix == 0 && key.length < prefixLength)) {
+                return -1;
+            }
+            if (prefix > 0) {
+                return -size - 1;
+            }
+            int low = 0;
+            int high = size - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                int cell = cell(middle);
+                int from = cell + CELL_HEADER_BYTES;
+                int comparison = Arrays.compareUnsigned(key, prefixLength, key.length, page, from, from + readShort(page, cell));
+                if (comparison > 0) {
+                    low = middle + 1;
+                } else if (comparison < 0) {
+                    high = middle - 1;
+                } else {
+                    return middle;
+                }
+            }
+            return -low - 1;
+        }
+
+        /**
+         * @return index of the child that can contain the key, the one after the separators lower or equal than it
+         */
+        private int route(byte[] key) {
+            int index = find(key);
+            return index >= 0 ? index + 1 : -index - 1;
+        }
+
+        /**
+         * Add the key at index without writing the page again, and for inner nodes the right child just after it
+         * 
+         * @return false if the key does not share the prefix of the node or there is no room for it
+         */
+        private boolean insertInPlace(int index, byte[] key, Node rightChild) {
+            if (key.length < prefixLength || Arrays.mismatch(key, 0, prefixLength, page, HEADER_BYTES,
+                    HEADER_BYTES + prefixLength) >= 0) {
+                return false;
+            }
+            int length = key.length - prefixLength;
+            int needed = SLOT_BYTES + CELL_HEADER_BYTES + length;
+            int slotsEnd = slotsStart() + size * SLOT_BYTES;
+            if (cellStart - slotsEnd < needed) {
+                if (cellStart - slotsEnd + garbage < needed) {
+                    return false;
+                }
+                compact();
+            }
+            cellStart -= CELL_HEADER_BYTES + length;
+            writeShort(page, cellStart, length);
+            System.arraycopy(key, prefixLength, page, cellStart + CELL_HEADER_BYTES, length);
+            int slot = slotsStart() + index * SLOT_BYTES;
+            System.arraycopy(page, slot, page, slot + SLOT_BYTES, (size - index) * SLOT_BYTES);
+            writeShort(page, slot, cellStart);
+            if (rightChild != null) {
+                System.arraycopy(children, index + 1, children, index + 2, size - index);
+                children[index + 1] = rightChild;
+            }
+            size++;
+            return true;
+        }
+
+        /**
+         * Remove the key at index, and for inner nodes the child just after it
+         */
+        private void removeAt(int index) {
+            garbage += CELL_HEADER_BYTES + readShort(page, cell(index));
+            int slot = slotsStart() + index * SLOT_BYTES;
+            System.arraycopy(page, slot + SLOT_BYTES, page, slot, (size - index - 1) * SLOT_BYTES);
+            if (children != null) {
+                System.arraycopy(children, index + 2, children, index + 1, size - index - 1);
+                children[size] = null;
+            }
+            size--;
+        }
+
+        /**
+         * Move the cells to the end of the page again, in slot order, dropping the garbage
+         */
+        private void compact() {
+            byte[] copy = page.clone();
+            int end = page.length;
+            for (int i = 0; i < size; i++) {
+                int cell = readShort(copy, slotsStart() + i * SLOT_BYTES);
+                int bytes = CELL_HEADER_BYTES + readShort(copy, cell);
+                end -= bytes;
+                System.arraycopy(copy, cell, page, end, bytes);
+                writeShort(page, slotsStart() + i * SLOT_BYTES, end);
+            }
+            cellStart = end;
+            garbage = 0;
+        }
+
+        /**
+         * Write the page again with the keys from first to end and their common prefix
+         * 
+         * @param children
+         *            children of inner nodes, from the one before the first key, ignored for leaves
+         */
+        private void write(byte[][] keys, Node[] children, int first, int end) {
+            prefixLength = first < end ? commonPrefix(keys[first], keys[end - 1]) : 0;
+            writeShort(page, 0, prefixLength);
+            if (prefixLength > 0) {
+                System.arraycopy(keys[first], 0, page, HEADER_BYTES, prefixLength);
+            }
+            size = end - first;
+            cellStart = page.length;
+            garbage = 0;
+            for (int i = 0; i < size; i++) {
+                byte[] key = keys[first + i];
+                int length = key.length - prefixLength;
+                cellStart -= CELL_HEADER_BYTES + length;
+                writeShort(page, cellStart, length);
+                System.arraycopy(key, prefixLength, page, cellStart + CELL_HEADER_BYTES, length);
+                writeShort(page, slotsStart() + i * SLOT_BYTES, cellStart);
+            }
+            if (this.children != null) {
+                System.arraycopy(children, 0, this.children, 0, size + 1);
+                Arrays.fill(this.children, size + 1, this.children.length, null);
+            }
+        }
+    }
+
+    /**
+     * Iterator over the leaf links, the next key is the one at index of the leaf
+     */
+    private static final class KeyIterator implements Iterator<byte[]> {
+
+        private Node leaf;
+        private int index;
+
+        private KeyIterator(Node leaf, int index) {
+            this.leaf = leaf;
+            this.index = index;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (index >= leaf.size && leaf.next != null) {
+                leaf = leaf.next;
+                index = 0;
+            }
+            return index < leaf.size;
+        }
+
+        @Override
+        public byte[] next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return leaf.key(index++);
+        }
+    }
+
+}
@@ -0,0 +1,66 @@
+package com.cristianpeter.btree.bytes;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encodings to byte-comparable keys, two values keep their order when their encoded keys are compared
+ * as unsigned bytes, see ByteKeyBTree
+ */
+public final class ByteKeys {
+
+    // ends every part of a composite key, lower than any escaped byte so shorter parts sort first
+    private static final byte TERMINATOR = 0x01;
+    private static final byte ESCAPE = (byte) 0xFF;
+
+    private ByteKeys() {
+    }
+
+    /**
+     * UTF-8 keeps the order of the code points
+     */
+    public static byte[] of(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Big endian with the sign bit flipped, so negative values sort before positive ones
+     */
+    public static byte[] of(int value) {
+        int flipped = value ^ Integer.MIN_VALUE;
+        return new byte[] { (byte) (flipped >>> 24), (byte) (flipped >>> 16), (byte) (flipped >>> 8), (byte) flipped };
+    }
+
+    /**
+     * Big endian with the sign bit flipped, so negative values sort before positive ones
+     */
+    public static byte[] of(long value) {
+        long flipped = value ^ Long.MIN_VALUE;
+        byte[] key = new byte[Long.BYTES];
+        for (int i = 0; i < Long.BYTES; i++) {
+            key[i] = (byte) (flipped >>> (56 - 8 * i));
+        }
+        return key;
+    }
+
+    /**
+     * Concatenate encoded parts ordering by the first part, then by the second one and so on
+     * A zero byte inside a part is escaped as 0x00 0xFF and every part ends with 0x00 0x01, so a part
+     * that is a prefix of another one sorts before it and parts never mix
+     */
+    public static byte[] composite(byte[]... parts) {
+        ByteArrayOutputStream key = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            for (byte b : part) {
+                key.write(b);
+                if (b == 0) {
+                    key.write(ESCAPE);
+                }
+            }
+            key.write(0);
+            key.write(TERMINATOR);
+        }
+        return key.toByteArray();
+    }
+
+}
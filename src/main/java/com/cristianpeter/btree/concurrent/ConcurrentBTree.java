@@ -0,0 +1,448 @@
+package com.cristianpeter.btree.concurrent;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+import com.cristianpeter.btree.contracts.IBTree;
+import com.cristianpeter.btree.contracts.IBTreeCursor;
+
+import lombok.Getter;
+
+/**
+ * Thread safe B+tree of int keys with optimistic lock coupling
+ * <p>
+ * Every node has a version, odd while a writer holds the node. Readers never write shared memory: they read the
+ * version, read the node and validate the version again, and go down keeping the father validated until the child
+ * version is read. Any validation that fails restarts the operation from the root.
+ * Writers go down the same way and only latch the nodes they change, upgrading the version they read with a CAS.
+ * Full nodes are split on the way down, so a split only latches the node and its father, which always has room.
+ * Deletes do not merge nodes, an emptied leaf stays in the tree and is filled again by later inserts.
+ */
+public class ConcurrentBTree implements IBTree {
+
+    private static final VarHandle VERSION;
+
+    static {
+        try {
+            VERSION = MethodHandles.lookup().findVarHandle(Node.class, "version", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    // version read from a locked node, the operation must restart
+    private static final long RESTART = -1L;
+
+    @Getter
+    private final int order;
+    private volatile Node root;
+
+    /**
+     * @param order
+     *            maximum keys per node, at least 3
+     */
+    public ConcurrentBTree(int order) {
+        if (order < 3) {
+            throw new IllegalArgumentException("Order must be at least 3: " + order);
+        }
+        this.order = order;
+        this.root = new Node(order, true);
+    }
+
+    @Override
+    public boolean add(int key) {
+        restart: while (true) {
+            Node parent = null;
+            long parentVersion = 0;
+            Node node = root;
+            long version = readLock(node);
+            if (version == RESTART || node != root) {
+                Thread.onSpinWait();
+                continue;
+            }
+            while (true) {
+                if (node.size == order) {
+                    // the father had room when it was read, the CAS fails if it changed since then
+                    if (parent != null && !upgrade(parent, parentVersion)) {
+                        continue restart;
+                    }
+                    if (!upgrade(node, version)) {
+                        if (parent != null) {
+                            unlock(parent);
+                        }
+                        continue restart;
+                    }
+                    if (parent == null && node != root) {
+                        unlock(node);
+                        continue restart;
+                    }
+                    split(parent, node);
+                    unlock(node);
+                    if (parent != null) {
+                        unlock(parent);
+                    }
+                    continue restart;
+                }
+                if (parent != null && !validate(parent, parentVersion)) {
+                    continue restart;
+                }
+                if (node.isLeaf()) {
+                    break;
+                }
+                Node child = node.children[node.route(key)];
+                if (!validate(node, version)) {
+                    continue restart;
+                }
+                long childVersion = readLock(child);
+                if (childVersion == RESTART) {
+                    continue restart;
+                }
+                parent = node;
+                parentVersion = version;
+                node = child;
+                version = childVersion;
+            }
+            if (!upgrade(node, version)) {
+                continue;
+            }
+            int index = node.find(key);
+            boolean added = index < 0;
+            if (added) {
+                node.insertAt(-index - 1, key, null);
+            }
+            unlock(node);
+            return added;
+        }
+    }
+
+    @Override
+    public boolean delete(int key) {
+        restart: while (true) {
+            Node node = root;
+            long version = readLock(node);
+            if (version == RESTART || node != root) {
+                Thread.onSpinWait();
+                continue;
+            }
+            while (!node.isLeaf()) {
+                Node child = node.children[node.route(key)];
+                if (!validate(node, version)) {
+                    continue restart;
+                }
+                long childVersion = readLock(child);
+                if (childVersion == RESTART || !validate(node, version)) {
+                    continue restart;
+                }
+                node = child;
+                version = childVersion;
+            }
+            if (!upgrade(node, version)) {
+                continue;
+            }
+            int index = node.find(key);
+            boolean deleted = index >= 0;
+            if (deleted) {
+                node.removeAt(index);
+            }
+            unlock(node);
+            return deleted;
+        }
+    }
+
+    @Override
+    public boolean contains(int key) {
+        restart: while (true) {
+            Node node = root;
+            long version = readLock(node);
+            if (version == RESTART || node != root) {
+                Thread.onSpinWait();
+                continue;
+            }
+            while (!node.isLeaf()) {
+                Node child = node.children[node.route(key)];
+                if (!validate(node, version)) {
+                    continue restart;
+                }
+                long childVersion = readLock(child);
+                if (childVersion == RESTART || !validate(node, version)) {
+                    continue restart;
+                }
+                node = child;
+                version = childVersion;
+            }
+            boolean found = node.find(key) >= 0;
+            if (validate(node, version)) {
+                return found;
+            }
+        }
+    }
+
+    /**
+     * Weakly consistent cursor, it never locks and never fails
+     * Keys come in order, every key present during the whole iteration is returned,
+     * keys added or deleted meanwhile may be returned or not
+     */
+    @Override
+    public IBTreeCursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * Split the full node, the caller holds the node and its father
+     * The right half goes to a new node, the father takes the separator or a new root is created
+     */
+    private void split(Node parent, Node node) {
+        Node right = new Node(order, node.isLeaf());
+        int separator;
+        if (node.isLeaf()) {
+            int pivot = node.size / 2;
+            int moved = node.size - pivot;
+            System.arraycopy(node.keys, pivot, right.keys, 0, moved);
+            right.size = moved;
+            separator = right.keys[0];
+            node.size = pivot;
+        } else {
+            int pivot = node.size / 2;
+            int moved = node.size - pivot - 1;
+            separator = node.keys[pivot];
+            System.arraycopy(node.keys, pivot + 1, right.keys, 0, moved);
+            System.arraycopy(node.children, pivot + 1, right.children, 0, moved + 1);
+            right.size = moved;
+            node.size = pivot;
+            // readers may still hold old children positions, the validation will send them back
+            Arrays.fill(node.children, pivot + 1, node.children.length, null);
+        }
+        if (parent == null) {
+            Node newRoot = new Node(order, false);
+            newRoot.keys[0] = separator;
+            newRoot.children[0] = node;
+            newRoot.children[1] = right;
+            newRoot.size = 1;
+            root = newRoot;
+            return;
+        }
+        // the separator is never in the father, so route gives its insertion index
+        parent.insertAt(parent.route(separator), separator, right);
+    }
+
+    private static long readLock(Node node) {
+        long version = (long) VERSION.getAcquire(node);
+        return (version & 1) == 0 ? version : RESTART;
+    }
+
+    /**
+     * @return true if the node did not change since the version was read
+     */
+    private static boolean validate(Node node, long version) {
+        // the reads of the node must not move after the new read of the version
+        VarHandle.acquireFence();
+        return (long) VERSION.getVolatile(node) == version;
+    }
+
+    /**
+     * Latch the node if it did not change since the version was read
+     * The CAS is a full fence, so the changes of the holder are never seen before the odd version
+     */
+    private static boolean upgrade(Node node, long version) {
+        return VERSION.compareAndSet(node, version, version + 1);
+    }
+
+    private static void unlock(Node node) {
+        VERSION.setRelease(node, (long) VERSION.getVolatile(node) + 1);
+    }
+
+    private static final class Node {
+        private final int[] keys;
+        // null for leaves, a node never changes from leaf to inner node
+        private final Node[] children;
+        // written only by the holder of the node, read by anyone before validating the version
+        private int size;
+        @SuppressWarnings("unused")
+        private volatile long version;
+
+        private Node(int order, boolean leaf) {
+            // full nodes are split before going down, so they never overflow
+            keys = new int[order];
+            children = leaf ? null : new Node[order + 1];
+        }
+
+        private boolean isLeaf() {
+            return children == null;
+        }
+
+        private int find(int key) {
+            // size can be read while a writer changes it, keep it inside the array until the validation
+            return Arrays.binarySearch(keys, 0, Math.min(size, keys.length), key);
+        }
+
+        private int route(int key) {
+            int index = find(key);
+            return index >= 0 ? index + 1 : -index - 1;
+        }
+
+        private void insertAt(int index, int key, Node rightChild) {
+            System.arraycopy(keys, index, keys, index + 1, size - index);
+            keys[index] = key;
+            if (rightChild != null) {
+                System.arraycopy(children, index + 1, children, index + 2, size - index);
+                children[index + 1] = rightChild;
+            }
+            size++;
+        }
+
+        private void removeAt(int index) {
+            System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+            size--;
+        }
+    }
+
+    /**
+     * The cursor sits before the position, nextInt returns the ceiling of the position and previous the floor of
+     * the position minus one. Keys are copied from one leaf at a time to a buffer, validated with the leaf version
+     */
+    private final class Cursor implements IBTreeCursor {
+
+        private static final long NO_BOUND = Long.MIN_VALUE;
+
+        // long, so it can go after Integer.MAX_VALUE
+        private long position;
+        private final int[] buffer = new int[order];
+        private int start;
+        private int end;
+        // the buffer holds the keys after the position when forward, the keys before it when backward
+        private boolean loaded;
+        private boolean forward;
+
+        private Cursor() {
+            seekFirst();
+        }
+
+        @Override
+        public void seekFirst() {
+            moveTo(Integer.MIN_VALUE);
+        }
+
+        @Override
+        public void seekLast() {
+            moveTo(Integer.MAX_VALUE + 1L);
+        }
+
+        @Override
+        public void seek(int key) {
+            moveTo(key);
+        }
+
+        private void moveTo(long newPosition) {
+            position = newPosition;
+            loaded = false;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (!loaded || !forward || start == end) {
+                forward = true;
+                fill();
+            }
+            return start < end;
+        }
+
+        @Override
+        public int nextInt() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            int key = buffer[start++];
+            position = key + 1L;
+            return key;
+        }
+
+        @Override
+        public boolean hasPrevious() {
+            if (!loaded || forward || start == end) {
+                forward = false;
+                fill();
+            }
+            return start < end;
+        }
+
+        @Override
+        public int previous() {
+            if (!hasPrevious()) {
+                throw new NoSuchElementException();
+            }
+            int key = buffer[--end];
+            position = key;
+            return key;
+        }
+
+        /**
+         * Load the next leaf with keys in the direction of the cursor, skipping empty ones
+         */
+        private void fill() {
+            loaded = true;
+            start = 0;
+            end = 0;
+            long probe = forward ? position : position - 1;
+            while (probe >= Integer.MIN_VALUE && probe <= Integer.MAX_VALUE) {
+                long bound = load((int) probe);
+                if (end > 0 || bound == NO_BOUND) {
+                    return;
+                }
+                // the leaf had nothing in this direction, go to the next one
+                probe = forward ? bound : bound - 1;
+            }
+        }
+
+        /**
+         * Copy the keys of the leaf of the probe that are after it when forward, or until it when backward
+         * 
+         * @return the first key of the next leaf when forward, the lowest possible key of the leaf when backward,
+         *         or NO_BOUND when there is no leaf in that direction
+         */
+        private long load(int probe) {
+            restart: while (true) {
+                Node node = root;
+                long version = readLock(node);
+                if (version == RESTART || node != root) {
+                    Thread.onSpinWait();
+                    continue;
+                }
+                long bound = NO_BOUND;
+                while (!node.isLeaf()) {
+                    int index = node.route(probe);
+                    if (forward && index < node.size) {
+                        bound = node.keys[index];
+                    } else if (!forward && index > 0) {
+                        bound = node.keys[index - 1];
+                    }
+                    Node child = node.children[index];
+                    if (!validate(node, version)) {
+                        continue restart;
+                    }
+                    long childVersion = readLock(child);
+                    if (childVersion == RESTART || !validate(node, version)) {
+                        continue restart;
+                    }
+                    node = child;
+                    version = childVersion;
+                }
+                int size = Math.min(node.size, node.keys.length);
+                int count = 0;
+                for (int i = 0; i < size; i++) {
+                    int key = node.keys[i];
+                    if (forward ? key >= probe : key <= probe) {
+                        buffer[count++] = key;
+                    }
+                }
+                if (!validate(node, version)) {
+                    continue;
+                }
+                end = count;
+                return bound;
+            }
+        }
+    }
+
+}
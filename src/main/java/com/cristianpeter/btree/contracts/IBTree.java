@@ -1,13 +1,90 @@
 package com.cristianpeter.btree.contracts;
 
-import com.cristianpeter.btree.exceptions.KeyNotFoundException;
+import java.util.OptionalInt;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+import com.cristianpeter.btree.cursor.RangeIterator;
 import com.cristianpeter.btree.exceptions.NodeNotFoundException;
 
 public interface IBTree {
 
     boolean add(int key) throws NodeNotFoundException;
 
-    boolean delete(int key) throws NodeNotFoundException, KeyNotFoundException;
+    boolean delete(int key) throws NodeNotFoundException;
 
     boolean contains(int key);
+
+    /**
+     * @return a new cursor before the first key, the tree must not be modified while it is used
+     */
+    IBTreeCursor cursor();
+
+    default OptionalInt first() {
+        IBTreeCursor cursor = cursor();
+        return cursor.hasNext() ? OptionalInt.of(cursor.nextInt()) : OptionalInt.empty();
+    }
+
+    default OptionalInt last() {
+        IBTreeCursor cursor = cursor();
+        cursor.seekLast();
+        return cursor.hasPrevious() ? OptionalInt.of(cursor.previous()) : OptionalInt.empty();
+    }
+
+    /**
+     * @return the lowest key greater or equal than the key
+     */
+    default OptionalInt ceiling(int key) {
+        IBTreeCursor cursor = cursor();
+        cursor.seek(key);
+        return cursor.hasNext() ? OptionalInt.of(cursor.nextInt()) : OptionalInt.empty();
+    }
+
+    /**
+     * @return the greatest key lower or equal than the key
+     */
+    default OptionalInt floor(int key) {
+        IBTreeCursor cursor = cursor();
+        if (key == Integer.MAX_VALUE) {
+            cursor.seekLast();
+        } else {
+            cursor.seek(key + 1);
+        }
+        return cursor.hasPrevious() ? OptionalInt.of(cursor.previous()) : OptionalInt.empty();
+    }
+
+    /**
+     * Lazy stream of the keys between from and to, both included, in ascending order
+     */
+    default IntStream range(int from, int to) {
+        IBTreeCursor cursor = cursor();
+        cursor.seek(from);
+        return toStream(new RangeIterator(cursor, to));
+    }
+
+    /**
+     * Visit all the keys in ascending order
+     */
+    default void forEachInOrder(IntConsumer action) {
+        IBTreeCursor cursor = cursor();
+        while (cursor.hasNext()) {
+            action.accept(cursor.nextInt());
+        }
+    }
+
+    /**
+     * Lazy stream of all the keys in ascending order
+     */
+    default IntStream stream() {
+        return toStream(cursor());
+    }
+
+    private static IntStream toStream(PrimitiveIterator.OfInt keys) {
+        int characteristics = Spliterator.ORDERED | Spliterator.SORTED | Spliterator.DISTINCT | Spliterator.NONNULL;
+        return StreamSupport.intStream(Spliterators.spliteratorUnknownSize(keys, characteristics), false);
+    }
 }
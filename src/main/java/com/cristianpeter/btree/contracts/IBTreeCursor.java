@@ -0,0 +1,34 @@
+package com.cristianpeter.btree.contracts;
+
+import java.util.PrimitiveIterator;
+
+/**
+ * Ordered cursor over the keys of a tree, it always sits in a gap between two keys
+ * nextInt returns the key after the gap and previous the key before it, both move the gap over the returned key
+ */
+public interface IBTreeCursor extends PrimitiveIterator.OfInt {
+
+    boolean hasPrevious();
+
+    /**
+     * @return the greatest key before the cursor
+     * @throws java.util.NoSuchElementException
+     *             if the cursor is before the first key
+     */
+    int previous();
+
+    /**
+     * Move the cursor just before the lowest key greater or equal than the key
+     */
+    void seek(int key);
+
+    /**
+     * Move the cursor before the first key
+     */
+    void seekFirst();
+
+    /**
+     * Move the cursor after the last key
+     */
+    void seekLast();
+}
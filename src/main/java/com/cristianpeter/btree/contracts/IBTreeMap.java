@@ -0,0 +1,29 @@
+package com.cristianpeter.btree.contracts;
+
+import java.util.function.BiFunction;
+
+/**
+ * Map with ordered keys, null is used for absent values as in java.util.Map
+ */
+public interface IBTreeMap<K, V> {
+
+    V put(K key, V value);
+
+    V get(K key);
+
+    boolean containsKey(K key);
+
+    V remove(K key);
+
+    V putIfAbsent(K key, V value);
+
+    /**
+     * The function receives the key and the current value, or null if the key is not present
+     * If the function returns null the key is removed
+     * 
+     * @return the new value
+     */
+    V compute(K key, BiFunction<? super K, ? super V, ? extends V> remapping);
+
+    int size();
+}
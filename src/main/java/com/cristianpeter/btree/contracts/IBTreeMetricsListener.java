@@ -0,0 +1,60 @@
+package com.cristianpeter.btree.contracts;
+
+import com.cristianpeter.btree.enums.BTreeOperation;
+
+/**
+ * Receive what a BTree does to its nodes, every method is called on the thread that changes the tree
+ * Every method does nothing by default, so a listener only overrides the ones it needs
+ */
+public interface IBTreeMetricsListener {
+
+    /**
+     * Default listener of a tree, a tree with it does not even read the clock
+     */
+    IBTreeMetricsListener NOOP = new IBTreeMetricsListener() {
+        @Override
+        public boolean timed() {
+            return false;
+        }
+    };
+
+    /**
+     * Asked before every operation, the tree only reads the clock and calls operation when it is true
+     * 
+     * @return false to skip the timing, for listeners that only count or that are disabled for now
+     */
+    default boolean timed() {
+        return true;
+    }
+
+    /**
+     * A node overflowed and was split in two
+     * 
+     * @param leaf
+     *            the split node is a leaf
+     * @param root
+     *            the split node was the root, so the tree is one level higher
+     */
+    default void split(boolean leaf, boolean root) {
+    }
+
+    /**
+     * An underflowing node took a key from a sibling
+     */
+    default void borrow(boolean leaf) {
+    }
+
+    /**
+     * An underflowing node was merged with a sibling
+     */
+    default void merge(boolean leaf) {
+    }
+
+    /**
+     * @param nanos
+     *            wall time of the operation, including the splits and rebalances it caused
+     */
+    default void operation(BTreeOperation operation, long nanos) {
+    }
+
+}
@@ -0,0 +1,34 @@
+package com.cristianpeter.btree.contracts;
+
+import java.util.Iterator;
+
+/**
+ * Set of variable length byte[] keys, ordered as unsigned bytes compared lexicographically
+ * Keys are copied when they are added, so the caller can reuse its arrays
+ */
+public interface IByteKeyBTree {
+
+    /**
+     * @return false if the key was already present
+     */
+    boolean add(byte[] key);
+
+    /**
+     * @return false if the key was not present
+     */
+    boolean delete(byte[] key);
+
+    boolean contains(byte[] key);
+
+    int size();
+
+    /**
+     * @return keys in ascending order, the tree must not be modified while it is used
+     */
+    Iterator<byte[]> iterator();
+
+    /**
+     * @return keys greater or equal than from in ascending order, the tree must not be modified while it is used
+     */
+    Iterator<byte[]> iterator(byte[] from);
+}
@@ -0,0 +1,46 @@
+package com.cristianpeter.btree.contracts;
+
+import java.util.function.LongBinaryOperator;
+
+/**
+ * Map from int keys to long values, without boxing
+ * Absent keys are reported with the no entry value of the map
+ */
+public interface IIntLongBTreeMap {
+
+    /**
+     * @return previous value, or the no entry value if the key was not present
+     */
+    long put(int key, long value);
+
+    /**
+     * @return value of the key, or the no entry value if the key is not present
+     */
+    long get(int key);
+
+    long getOrDefault(int key, long defaultValue);
+
+    boolean containsKey(int key);
+
+    /**
+     * @return removed value, or the no entry value if the key was not present
+     */
+    long remove(int key);
+
+    /**
+     * @return current value, or the no entry value if the key was not present and the value was added
+     */
+    long putIfAbsent(int key, long value);
+
+    /**
+     * Replace the value of the key with the result of the remapping function
+     * The function receives the key and the current value, or the no entry value if the key is not present
+     * 
+     * @return the new value
+     */
+    long compute(int key, LongBinaryOperator remapping);
+
+    int size();
+
+    long getNoEntryValue();
+}
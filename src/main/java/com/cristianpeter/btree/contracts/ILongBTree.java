@@ -0,0 +1,90 @@
+package com.cristianpeter.btree.contracts;
+
+import java.util.OptionalLong;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.LongConsumer;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
+
+import com.cristianpeter.btree.cursor.LongRangeIterator;
+import com.cristianpeter.btree.exceptions.NodeNotFoundException;
+
+public interface ILongBTree {
+
+    boolean add(long key) throws NodeNotFoundException;
+
+    boolean delete(long key) throws NodeNotFoundException;
+
+    boolean contains(long key);
+
+    /**
+     * @return a new cursor before the first key, the tree must not be modified while it is used
+     */
+    ILongBTreeCursor cursor();
+
+    default OptionalLong first() {
+        ILongBTreeCursor cursor = cursor();
+        return cursor.hasNext() ? OptionalLong.of(cursor.nextLong()) : OptionalLong.empty();
+    }
+
+    default OptionalLong last() {
+        ILongBTreeCursor cursor = cursor();
+        cursor.seekLast();
+        return cursor.hasPrevious() ? OptionalLong.of(cursor.previous()) : OptionalLong.empty();
+    }
+
+    /**
+     * @return the lowest key greater or equal than the key
+     */
+    default OptionalLong ceiling(long key) {
+        ILongBTreeCursor cursor = cursor();
+        cursor.seek(key);
+        return cursor.hasNext() ? OptionalLong.of(cursor.nextLong()) : OptionalLong.empty();
+    }
+
+    /**
+     * @return the greatest key lower or equal than the key
+     */
+    default OptionalLong floor(long key) {
+        ILongBTreeCursor cursor = cursor();
+        if (key == Long.MAX_VALUE) {
+            cursor.seekLast();
+        } else {
+            cursor.seek(key + 1);
+        }
+        return cursor.hasPrevious() ? OptionalLong.of(cursor.previous()) : OptionalLong.empty();
+    }
+
+    /**
+     * Lazy stream of the keys between from and to, both included, in ascending order
+     */
+    default LongStream range(long from, long to) {
+        ILongBTreeCursor cursor = cursor();
+        cursor.seek(from);
+        return toStream(new LongRangeIterator(cursor, to));
+    }
+
+    /**
+     * Visit all the keys in ascending order
+     */
+    default void forEachInOrder(LongConsumer action) {
+        ILongBTreeCursor cursor = cursor();
+        while (cursor.hasNext()) {
+            action.accept(cursor.nextLong());
+        }
+    }
+
+    /**
+     * Lazy stream of all the keys in ascending order
+     */
+    default LongStream stream() {
+        return toStream(cursor());
+    }
+
+    private static LongStream toStream(PrimitiveIterator.OfLong keys) {
+        int characteristics = Spliterator.ORDERED | Spliterator.SORTED | Spliterator.DISTINCT | Spliterator.NONNULL;
+        return StreamSupport.longStream(Spliterators.spliteratorUnknownSize(keys, characteristics), false);
+    }
+}
@@ -1,25 +1,33 @@
 package com.cristianpeter.btree.core;
 
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.function.IntConsumer;
 
+import com.cristianpeter.btree.enums.SearchMode;
 import com.cristianpeter.btree.enums.SiblingOffset;
 import com.cristianpeter.btree.exceptions.KeyNotFoundException;
 import com.cristianpeter.btree.exceptions.NodeNotFoundException;
-import com.cristianpeter.btree.exceptions.interfaces.ExceptionalFunction;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 
 @Getter
 public class BTreeNode {
 
+    /**
+     * Deepest path of any tree, every node but the root has at least two children so a tree of 2^63 keys is
+     * lower than this, the fixed path and stack arrays of the trees and cursors are sized with it
+     */
+    public static final int MAX_HEIGHT = 64;
+    private static final int PRE_ORDER = 0;
+    private static final int IN_ORDER = 1;
+    private static final int POST_ORDER = 2;
+
     private int keysSize = 0;
     private int childrenSize = 0;
-    private int[] keys;
+    private final int[] keys;
     private final BTreeNode[] children;
     @Setter
     private BTreeNode parent;
@@ -28,13 +36,28 @@ public class BTreeNode {
     private final int maxKeys;
     private final int minChildren;
     private final int maxChildren;
+    private final SearchMode searchMode;
+    // keys of the subtree, -1 until it is counted again after a change, see countKeys
+    @Getter(AccessLevel.NONE)
+    private int subtreeKeys = -1;
 
     /**
      * @param order
      *            Here order stand for maximum keys per node
      */
     public BTreeNode(int order, BTreeNode parent) {
+        this(order, parent, SearchMode.forOrder(order));
+    }
+
+    /**
+     * @param order
+     *            Here order stand for maximum keys per node
+     * @param searchMode
+     *            how keys are searched inside the node
+     */
+    public BTreeNode(int order, BTreeNode parent, SearchMode searchMode) {
         this.order = order;
+        this.searchMode = searchMode;
         // overpass maximum by 1 for making split more easy
         keys = new int[order + 1];
         // overpass maximum by 1 for making split more easy
@@ -47,14 +70,20 @@ public class BTreeNode {
     }
 
     /**
-     * Add key and increase key size
+     * Add key in its sorted position and increase key size
+     * Greater keys are shifted one position to the right
      * 
      * @param value
      *            to add to keys array
+     * @return index where the key was added
      */
-    public void addKey(int value) {
-        keys[keysSize++] = value;
-        Arrays.sort(keys, 0, keysSize);
+    public int addKey(int value) {
+        int index = getNextIndexByKey(value);
+        System.arraycopy(keys, index, keys, index + 1, keysSize - index);
+        keys[index] = value;
+        keysSize++;
+        keysChanged();
+        return index;
     }
 
     /**
@@ -70,6 +99,7 @@ public class BTreeNode {
         if (child == null) {
             return;
         }
+        keysChanged();
 
         if (children[index] != null) {
             newChildCarryingToRight(this, index, child);
@@ -87,14 +117,11 @@ public class BTreeNode {
      *            starting point
      */
     private void newChildCarryingToRight(BTreeNode parent, int index, BTreeNode child) {
-        BTreeNode carry = child;
-        BTreeNode actual;
-        // simulate a new child was already added with childrenSize + 1
-        for (; index < parent.childrenSize + 1; index++) {
-            actual = parent.getChild(index);
-            parent.children[index] = carry;
-            carry = actual;
+        int carried = parent.childrenSize - index;
+        if (carried > 0) {
+            System.arraycopy(parent.children, index, parent.children, index + 1, carried);
         }
+        parent.children[index] = child;
         // increase the counter
         parent.childrenSize++;
     }
@@ -143,8 +170,8 @@ public class BTreeNode {
      * Return the index of the node in children array
      */
     public int getChildIndex(BTreeNode node) {
-        for (int i = 0; i < this.children.length; i++) {
-            if (getChild(i) == node)
+        for (int i = 0; i < this.childrenSize; i++) {
+            if (children[i] == node)
                 return i;
         }
         return this.childrenSize;
@@ -177,26 +204,95 @@ public class BTreeNode {
     }
 
     /**
-     * Given an array of keys will overwrite the next keys starting by the keySize value
+     * Given an array of keys will add all of them keeping the keys sorted
+     * Keys greater than the current ones are appended starting by the keySize value
      * Will increase also keySize
      * 
      * @param leftKeys
+     *            keys to add, must contain only used keys
      */
     public void mergeKeys(int[] leftKeys) {
+        keysChanged();
         for (int key : leftKeys) {
-            if (key != 0) {
-                keys[keysSize] = key;
-                keysSize++;
+            if (keysSize == 0 || key > keys[keysSize - 1]) {
+                keys[keysSize++] = key;
+            } else {
+                addKey(key);
             }
         }
     }
 
+    /**
+     * Same as mergeKeys with an array, taking the used keys of the source node without copying them
+     * 
+     * @param source
+     *            node with the keys to add
+     */
+    public void mergeKeys(BTreeNode source) {
+        keysChanged();
+        for (int i = 0; i < source.keysSize; i++) {
+            int key = source.keys[i];
+            if (keysSize == 0 || key > keys[keysSize - 1]) {
+                keys[keysSize++] = key;
+            } else {
+                addKey(key);
+            }
+        }
+    }
+
+    /**
+     * Copy keys after the current ones, starting by the keySize value
+     * The keys must be sorted and greater than the current ones
+     * 
+     * @param source
+     *            array with the keys
+     * @param offset
+     *            position of the first key to copy
+     * @param length
+     *            number of keys to copy
+     */
+    public void appendKeys(int[] source, int offset, int length) {
+        System.arraycopy(source, offset, keys, keysSize, length);
+        keysSize += length;
+        keysChanged();
+    }
+
+    /**
+     * Move the keys and children at the right of the pivot to an empty node, and drop the pivot key
+     * The caller must elevate the pivot key to the father
+     * 
+     * @param pivot
+     *            index of the pivot key
+     * @param right
+     *            empty node that receives the right half
+     */
+    public void moveRightHalf(int pivot, BTreeNode right) {
+        keysChanged();
+        right.keysChanged();
+        int moved = keysSize - pivot - 1;
+        System.arraycopy(keys, pivot + 1, right.keys, 0, moved);
+        right.keysSize = moved;
+        Arrays.fill(keys, pivot, keysSize, 0);
+        keysSize = pivot;
+        // the children after the pivot move to the front of the right node
+        int movedChildren = Math.max(0, childrenSize - pivot - 1);
+        for (int i = 0; i < movedChildren; i++) {
+            BTreeNode child = children[pivot + 1 + i];
+            child.parent = right;
+            right.children[i] = child;
+            children[pivot + 1 + i] = null;
+        }
+        right.childrenSize = movedChildren;
+        childrenSize -= movedChildren;
+    }
+
     /**
      * Given an array of keys will overwrite the next children starting by the childrenSize value
      * Will change parent reference to new node
      * Will increase also childrenSize
      */
     public void mergeChildren(BTreeNode[] nodes) {
+        keysChanged();
         for (BTreeNode node : nodes) {
             changeNodeParent(node, this);
             children[childrenSize] = node;
@@ -204,6 +300,20 @@ public class BTreeNode {
         }
     }
 
+    /**
+     * Same as mergeChildren with an array, taking the children of the source node without copying them
+     */
+    public void mergeChildren(BTreeNode source) {
+        keysChanged();
+        for (BTreeNode node : source.children) {
+            if (node != null) {
+                changeNodeParent(node, this);
+                children[childrenSize] = node;
+                childrenSize++;
+            }
+        }
+    }
+
     private void changeNodeParent(BTreeNode current, BTreeNode parent) {
         current.parent = parent;
     }
@@ -215,13 +325,34 @@ public class BTreeNode {
      * @return index position
      */
     public int getNextIndexByKey(int key) {
-        for (int i = 0; i < keys.length; i++) {
+        if (searchMode == SearchMode.BINARY) {
+            return binaryNextIndexByKey(key);
+        }
+        return linearNextIndexByKey(key);
+    }
+
+    private int linearNextIndexByKey(int key) {
+        for (int i = 0; i < keysSize; i++) {
             if (keys[i] > key)
                 return i;
         }
         return keysSize;
     }
 
+    private int binaryNextIndexByKey(int key) {
+        int low = 0;
+        int high = keysSize;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (keys[middle] > key) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return low;
+    }
+
     /**
      * @param key
      *            Receive a key and return the index position
@@ -229,14 +360,29 @@ public class BTreeNode {
      * @return index position
      */
     public int getIndexByKey(int key) throws KeyNotFoundException {
-        int i = this.getNextIndexByKey(key) - 1;
-        int index = safeKeysIndex(i);
-        if (keys[index] != key) {
+        int index = this.getNextIndexByKey(key) - 1;
+        if (index < 0 || keys[index] != key) {
             throw new KeyNotFoundException();
         }
         return index;
     }
 
+    /**
+     * Lookup a key only between the used keys, without throwing
+     * 
+     * @param key
+     *            key to find
+     * @return index of the key, or (-(child index) - 1) when the key is not in this node,
+     *         where child index is the child that can contain the key
+     */
+    public int findKey(int key) {
+        int next = getNextIndexByKey(key);
+        if (next > 0 && keys[next - 1] == key) {
+            return next - 1;
+        }
+        return -next - 1;
+    }
+
     /**
      * Receive and index and prevent to access index out of bound
      * 
@@ -275,34 +421,72 @@ public class BTreeNode {
      *            key that we want to insert
      */
     public BTreeNode searchChild(int key) throws NodeNotFoundException {
+        BTreeNode node = this;
+        BTreeNode next;
+        while ((next = node.nextChild(key)) != null) {
+            node = next;
+        }
+        return node;
+    }
+
+    /**
+     * One step of the descent for the key, the caller loops over it to go down the tree
+     * 
+     * @param key
+     *            key that we want to reach
+     * @return the child that can contain the key, or null if the key is in this node or this node is a leaf
+     */
+    public BTreeNode nextChild(int key) throws NodeNotFoundException {
         if (childrenSize == 0) {
-            return this;
+            return null;
         }
-        for (int i = 0; i < keys.length; i++) {
-            if (getKey(i) == key) {
-                return this;
-            }
-            if (getKey(i) > key && children[i] != null) {
-                return children[i].searchChild(key);
-            }
+        int i = getNextIndexByKey(key);
+        if (i > 0 && keys[i - 1] == key) {
+            return null;
         }
-
-        // if are all less, search the at the rightest
-        if (children[keysSize] != null) {
-            return children[keysSize].searchChild(key);
+        BTreeNode child = children[i];
+        if (child == null) {
+            throw new NodeNotFoundException();
         }
+        return child;
+    }
 
-        throw new NodeNotFoundException();
+    /**
+     * Same descent as searchChild, but a missing child gives null instead of an exception
+     * 
+     * @param key
+     *            key that we want to reach
+     * @return the node where the key is or must be added, or null when the descent finds no child
+     */
+    public BTreeNode searchChildOrNull(int key) {
+        BTreeNode node = this;
+        while (node.childrenSize > 0) {
+            int i = node.getNextIndexByKey(key);
+            if (i > 0 && node.keys[i - 1] == key) {
+                return node;
+            }
+            BTreeNode next = node.children[i];
+            if (next == null) {
+                return null;
+            }
+            node = next;
+        }
+        return node;
     }
 
     public boolean isLeaf() {
         return this.childrenSize == 0;
     }
 
+    /**
+     * Remove the lowest key, and shift the rest one position to the left
+     * The keys array is kept, so the node never loses capacity
+     */
     public int removeFirstKey() {
         int first = keys[0];
-        keys = Arrays.copyOfRange(keys, 1, keys.length);
-        keysSize--;
+        System.arraycopy(keys, 1, keys, 0, keysSize - 1);
+        keys[--keysSize] = 0;
+        keysChanged();
         return first;
     }
 
@@ -311,16 +495,36 @@ public class BTreeNode {
         int last = keys[lastIndexWithValue];
         keys[lastIndexWithValue] = 0;
         keysSize--;
+        keysChanged();
         return last;
     }
 
     /**
-     * Given a key, remove it, and reorganize the keys
+     * Given a key, remove it, and shift the greater keys one position to the left
      */
     public void removeByKey(int key) throws KeyNotFoundException {
-        int index = this.getIndexByKey(key);
-        removeByIndex(index);
-        this.reorganizekeys();
+        removeKeyAt(this.getIndexByKey(key));
+    }
+
+    /**
+     * Remove the key at the index, and shift the greater keys one position to the left
+     * 
+     * @return the removed key
+     */
+    public int removeKeyAt(int index) {
+        int key = keys[index];
+        System.arraycopy(keys, index + 1, keys, index, keysSize - index - 1);
+        keys[--keysSize] = 0;
+        keysChanged();
+        return key;
+    }
+
+    /**
+     * Put another key at the index, the caller keeps the keys sorted
+     * The number of keys does not change, so the counts are kept
+     */
+    public void replaceKey(int index, int key) {
+        keys[index] = key;
     }
 
     /**
@@ -332,41 +536,69 @@ public class BTreeNode {
     public void removeByIndex(int index) {
         keys[index] = 0;
         keysSize--;
+        keysChanged();
     }
 
     /**
      * Remove a child reference at index position
+     * The position is left empty, the tree keeps its children packed at the left and removes them with removeChildAt
      */
     public void removeChildByIndex(int index) {
         children[index] = null;
         childrenSize--;
+        keysChanged();
     }
 
+    /**
+     * Remove the child at the index, and shift the next children one position to the left
+     * 
+     * @return the removed child
+     */
+    public BTreeNode removeChildAt(int index) {
+        BTreeNode child = children[index];
+        System.arraycopy(children, index + 1, children, index, childrenSize - index - 1);
+        children[--childrenSize] = null;
+        keysChanged();
+        return child;
+    }
+
+    /**
+     * Same as removeChildByIndex, the position of the node is left empty
+     */
     public void removeChildByNode(BTreeNode node) {
         children[this.getChildIndex(node)] = null;
         childrenSize--;
+        keysChanged();
     }
 
     /**
-     * Move all keys with value of 0 to the end
-     * All positions with 0 means not value present
+     * Keys of the subtree, the count is kept between calls and only the nodes changed since the last one are counted
+     * again, so after a few changes it costs the order times the height
      */
-    private void reorganizekeys() {
-        // move all values greater than 0 to first positions
-        int index = 0;
-        for (int i = 0; i < keys.length; i++) {
-            if (keys[i] != 0) {
-                keys[index++] = keys[i];
+    public int countKeys() {
+        if (subtreeKeys < 0) {
+            int count = keysSize;
+            for (int i = 0; i < childrenSize; i++) {
+                count += children[i].countKeys();
             }
+            subtreeKeys = count;
         }
-        Arrays.sort(keys, 0, index);
-        Arrays.fill(keys, index, keys.length, 0);
+        return subtreeKeys;
+    }
 
+    /**
+     * Clear the count of the node and its ancestors, an ancestor already cleared has all of its ancestors cleared
+     * Trees that never count stop at the node itself
+     */
+    private void keysChanged() {
+        for (BTreeNode node = this; node != null && node.subtreeKeys >= 0; node = node.parent) {
+            node.subtreeKeys = -1;
+        }
     }
 
     private BTreeNode getSibling(SiblingOffset offset) {
-        for (int i = 0; i < parent.children.length; i++) {
-            if (parent.getChild(i) == this)
+        for (int i = 0; i < parent.childrenSize; i++) {
+            if (parent.children[i] == this)
                 return parent.getChild(i + offset.getOffset());
         }
         return null;
@@ -380,78 +612,204 @@ public class BTreeNode {
         return this.getSibling(SiblingOffset.RIGHT_SIBLING);
     }
 
-    public Optional<BTreeNode> greaterLSB(int key) {
-        return withoutException(this::searchChild, key);
+    /**
+     * @return the node of the greatest key not greater than the key, or null when there is none
+     */
+    public BTreeNode greaterLSB(int key) {
+        return searchChildOrNull(key);
     }
 
-    public Optional<BTreeNode> lowerRSB(int key) {
-        return withoutException(this::searchChild, key);
+    /**
+     * @return the node of the lowest key not lower than the key, or null when there is none
+     */
+    public BTreeNode lowerRSB(int key) {
+        return searchChildOrNull(key);
     }
 
-    public Optional<BTreeNode> withoutException(ExceptionalFunction<Integer, BTreeNode> function, int key) {
-        try {
-            return Optional.ofNullable(function.apply(key));
-        } catch (Exception e) {
-            return Optional.empty();
-        }
+    /**
+     * Visit the keys in order, a key after the children at its left, without recursion
+     */
+    public void forEachInOrder(IntConsumer action) {
+        traverse(IN_ORDER, action, null);
     }
 
-    private String currentKeysAsString() {
-        return Arrays.stream(this.keys).filter(key -> key != 0).mapToObj(String::valueOf).collect(Collectors.joining(" -> "));
+    /**
+     * Visit the keys of every node before the keys of its children, without recursion
+     */
+    public void forEachPreOrder(IntConsumer action) {
+        traverse(PRE_ORDER, action, null);
     }
 
-    public String preOrder() {
-        List<String> result = new ArrayList<>();
-
-        // current keys
-        result.add(currentKeysAsString());
+    /**
+     * Visit the keys of every node after the keys of its children, without recursion
+     */
+    public void forEachPostOrder(IntConsumer action) {
+        traverse(POST_ORDER, action, null);
+    }
 
-        // child keys
-        for (BTreeNode child : this.children) {
-            if (child != null) {
-                result.add(child.preOrder());
+    /**
+     * Visit the keys level by level from the root, and every level from left to right
+     * The walk keeps the path from the root to a node of the level, and reaches the next node of the level through the
+     * deepest node of the path with a child on the right, so the upper levels are only crossed between their children
+     */
+    public void forEachLevelOrder(IntConsumer action) {
+        int height = height();
+        BTreeNode[] path = new BTreeNode[height];
+        int[] indexes = new int[height];
+        path[0] = this;
+        for (int level = 0; level < height; level++) {
+            int depth = 0;
+            indexes[0] = 0;
+            while (depth >= 0) {
+                // down the left edge of the child at the index
+                for (; depth < level; depth++) {
+                    path[depth + 1] = path[depth].children[indexes[depth]];
+                    indexes[depth + 1] = 0;
+                }
+                path[level].visitKeys(action, null);
+                // up to the deepest node with a child on the right
+                do {
+                    depth--;
+                } while (depth >= 0 && indexes[depth] >= path[depth].keysSize);
+                if (depth >= 0) {
+                    indexes[depth]++;
+                }
             }
         }
+    }
 
-        return String.join(" -> ", result);
+    public String preOrder() {
+        KeysJoiner joiner = new KeysJoiner();
+        traverse(PRE_ORDER, joiner, joiner);
+        return joiner.toString();
     }
 
     public String postOrder() {
-        List<String> result = new ArrayList<>();
+        KeysJoiner joiner = new KeysJoiner();
+        traverse(POST_ORDER, joiner, joiner);
+        return joiner.toString();
+    }
 
-        // child keys
-        for (BTreeNode child : this.children) {
-            if (child != null) {
-                result.add(child.postOrder());
+    public String inOrder() {
+        KeysJoiner joiner = new KeysJoiner();
+        traverse(IN_ORDER, joiner, joiner);
+        return joiner.toString();
+    }
+
+    /**
+     * Depth first walk over an explicit stack, the elements of a node are its children and keys interleaved as in
+     * BTreeCursor, element 2i is the child i and element 2i+1 is the key i
+     * The stack holds the inner nodes of the path and is sized with the height of the subtree, leaves are visited
+     * without going down, so the walk of a leaf allocates nothing
+     * <p>
+     * The String traversals show an empty item for a node without keys in pre order, as the old recursive join
+     * 
+     * @param empty
+     *            called for each empty item, null to skip them
+     */
+    private void traverse(int mode, IntConsumer action, Runnable empty) {
+        if (childrenSize == 0) {
+            // every order visits the keys of a leaf from left to right
+            visitKeys(action, mode == PRE_ORDER ? empty : null);
+            return;
+        }
+        BTreeNode[] nodes = new BTreeNode[height() - 1];
+        int[] elements = new int[nodes.length];
+        int depth = 0;
+        nodes[0] = this;
+        while (depth >= 0) {
+            BTreeNode node = nodes[depth];
+            int element = elements[depth]++;
+            if (element == 0 && mode == PRE_ORDER) {
+                node.visitKeys(action, empty);
+            }
+            // the last element of an inner node is the child after its last key
+            if (element > 2 * node.keysSize) {
+                if (mode == POST_ORDER) {
+                    node.visitKeys(action, null);
+                }
+                depth--;
+                continue;
+            }
+            int index = element >> 1;
+            if ((element & 1) == 1) {
+                if (mode == IN_ORDER) {
+                    action.accept(node.keys[index]);
+                }
+                continue;
+            }
+            BTreeNode child = node.children[index];
+            if (child == null) {
+                continue;
+            }
+            if (child.childrenSize == 0) {
+                child.visitKeys(action, mode == PRE_ORDER ? empty : null);
+                continue;
+            }
+            if (++depth == nodes.length) {
+                // only nodes built by hand have leaves deeper than the left edge
+                nodes = Arrays.copyOf(nodes, depth * 2);
+                elements = Arrays.copyOf(elements, depth * 2);
             }
+            nodes[depth] = child;
+            elements[depth] = 0;
         }
-        // current key
-        String currentKeys = currentKeysAsString();
+    }
 
-        if (!currentKeys.isEmpty()) {
-            result.add(currentKeys);
+    /**
+     * @param empty
+     *            called when the node has no keys, null to skip it
+     */
+    private void visitKeys(IntConsumer action, Runnable empty) {
+        if (keysSize == 0 && empty != null) {
+            empty.run();
         }
+        for (int i = 0; i < keysSize; i++) {
+            action.accept(keys[i]);
+        }
+    }
 
-        return String.join(" -> ", result);
+    /**
+     * Levels of the subtree along its left edge, 1 for a leaf
+     */
+    private int height() {
+        int height = 1;
+        for (BTreeNode node = this; node.childrenSize > 0 && node.children[0] != null; node = node.children[0]) {
+            height++;
+        }
+        return height;
     }
 
-    public String inOrder() {
-        List<String> result = new ArrayList<>();
+    /**
+     * Join the visited keys, and the empty items, with the separator of the String traversals
+     */
+    private static final class KeysJoiner implements IntConsumer, Runnable {
 
-        for (int i = 0; i < this.keys.length; i++) {
-            // left child
-            BTreeNode leftChild = getChild(i);
-            if (leftChild != null) {
-                result.add(leftChild.inOrder());
-            }
+        private final StringBuilder builder = new StringBuilder();
+        private boolean first = true;
+
+        @Override
+        public void accept(int key) {
+            separate();
+            builder.append(key);
+        }
 
-            // actual key for child
-            int key = getKey(i);
-            if (key != 0) {
-                result.add(String.valueOf(key));
+        @Override
+        public void run() {
+            separate();
+        }
+
+        private void separate() {
+            if (!first) {
+                builder.append(" -> ");
             }
+            first = false;
+        }
+
+        @Override
+        public String toString() {
+            return builder.toString();
         }
-        return String.join(" -> ", result);
     }
 
 }
@@ -0,0 +1,768 @@
+package com.cristianpeter.btree.core;
+
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.function.LongConsumer;
+
+import com.cristianpeter.btree.enums.SearchMode;
+import com.cristianpeter.btree.enums.SiblingOffset;
+import com.cristianpeter.btree.exceptions.KeyNotFoundException;
+import com.cristianpeter.btree.exceptions.NodeNotFoundException;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Node of LongBTree, same as BTreeNode with long keys
+ * Keys are compared as primitives, nothing is boxed on the search, insert or delete paths
+ */
+@Getter
+public class LongBTreeNode {
+
+    private static final int PRE_ORDER = 0;
+    private static final int IN_ORDER = 1;
+    private static final int POST_ORDER = 2;
+
+    private int keysSize = 0;
+    private int childrenSize = 0;
+    private final long[] keys;
+    private final LongBTreeNode[] children;
+    @Setter
+    private LongBTreeNode parent;
+    private final int order;
+    private final int minKeys;
+    private final int maxKeys;
+    private final int minChildren;
+    private final int maxChildren;
+    private final SearchMode searchMode;
+
+    /**
+     * @param order
+     *            Here order stand for maximum keys per node
+     */
+    public LongBTreeNode(int order, LongBTreeNode parent) {
+        this(order, parent, SearchMode.forOrder(order));
+    }
+
+    /**
+     * @param order
+     *            Here order stand for maximum keys per node
+     * @param searchMode
+     *            how keys are searched inside the node
+     */
+    public LongBTreeNode(int order, LongBTreeNode parent, SearchMode searchMode) {
+        this.order = order;
+        this.searchMode = searchMode;
+        // overpass maximum by 1 for making split more easy
+        keys = new long[order + 1];
+        // overpass maximum by 1 for making split more easy
+        children = new LongBTreeNode[order + 2];
+        this.parent = parent;
+        this.minKeys = (int) Math.ceil((double) (order + 1) / 2 - 1);
+        this.maxKeys = order;
+        this.maxChildren = order + 1;
+        this.minChildren = (int) Math.ceil((double) (order + 1) / 2);
+    }
+
+    /**
+     * Add key in its sorted position and increase key size
+     * Greater keys are shifted one position to the right
+     * 
+     * @param value
+     *            to add to keys array
+     * @return index where the key was added
+     */
+    public int addKey(long value) {
+        int index = getNextIndexByKey(value);
+        System.arraycopy(keys, index, keys, index + 1, keysSize - index);
+        keys[index] = value;
+        keysSize++;
+        return index;
+    }
+
+    /**
+     * Add a child to the index position, carry the rest to the right
+     * If there is a child at this position(not null) will call another method for adding children
+     * 
+     * @param index
+     *            the position where the child must be added
+     * @param child
+     *            the new node
+     */
+    public void addChild(int index, LongBTreeNode child) {
+        if (child == null) {
+            return;
+        }
+
+        if (children[index] != null) {
+            newChildCarryingToRight(this, index, child);
+            return;
+        }
+        children[index] = child;
+        childrenSize++;
+    }
+
+    /**
+     * Will displace children to the right starting from index
+     * At the index will be added the child node, childrenSize counter will be increased.
+     * 
+     * @param index
+     *            starting point
+     */
+    private void newChildCarryingToRight(LongBTreeNode parent, int index, LongBTreeNode child) {
+        int carried = parent.childrenSize - index;
+        if (carried > 0) {
+            System.arraycopy(parent.children, index, parent.children, index + 1, carried);
+        }
+        parent.children[index] = child;
+        // increase the counter
+        parent.childrenSize++;
+    }
+
+    /**
+     * Key size greater that allowed
+     * 
+     * @return
+     */
+    public boolean keysOverflowing() {
+        return this.keysSize > maxKeys;
+    }
+
+    /**
+     * Key size less that allowed
+     * 
+     * @return
+     */
+    public boolean keysUnderflowing() {
+        return !isRoot() && this.keysSize < minKeys;
+    }
+
+    public boolean canLendKey() {
+        return (this.keysSize - 1) >= minKeys;
+    }
+
+    /**
+     * Return the key at specified index
+     * 
+     * @param index
+     *            position
+     * @return int
+     */
+    public long getKey(int index) {
+        return keys[index];
+    }
+
+    public LongBTreeNode getChild(int index) {
+        // control index out of bounds
+        if (index < 0 || index >= children.length)
+            return null;
+        return children[index];
+    }
+
+    /**
+     * Return the index of the node in children array
+     */
+    public int getChildIndex(LongBTreeNode node) {
+        for (int i = 0; i < this.childrenSize; i++) {
+            if (children[i] == node)
+                return i;
+        }
+        return this.childrenSize;
+    }
+
+    /**
+     * Get an array of keys starting at
+     * startIndex and finish at endIndex(not include on result)
+     * 
+     * @param startIndex
+     * @param endIndex
+     * @return
+     */
+    public long[] getKeyRange(int startIndex, int endIndex) {
+        return Arrays.copyOfRange(keys, startIndex, endIndex);
+    }
+
+    /**
+     * Return all the children in a range
+     */
+    public Optional<LongBTreeNode[]> getChildrenRange(int startIndex, int endIndex) {
+        if (startIndex > endIndex) {
+            return Optional.empty();
+        }
+        return Optional.of(Arrays.copyOfRange(children, startIndex, endIndex));
+    }
+
+    public boolean isRoot() {
+        return parent == null;
+    }
+
+    /**
+     * Given an array of keys will add all of them keeping the keys sorted
+     * Keys greater than the current ones are appended starting by the keySize value
+     * Will increase also keySize
+     * 
+     * @param leftKeys
+     *            keys to add, must contain only used keys
+     */
+    public void mergeKeys(long[] leftKeys) {
+        for (long key : leftKeys) {
+            if (keysSize == 0 || key > keys[keysSize - 1]) {
+                keys[keysSize++] = key;
+            } else {
+                addKey(key);
+            }
+        }
+    }
+
+    /**
+     * Same as mergeKeys with an array, taking the used keys of the source node without copying them
+     * 
+     * @param source
+     *            node with the keys to add
+     */
+    public void mergeKeys(LongBTreeNode source) {
+        for (int i = 0; i < source.keysSize; i++) {
+            long key = source.keys[i];
+            if (keysSize == 0 || key > keys[keysSize - 1]) {
+                keys[keysSize++] = key;
+            } else {
+                addKey(key);
+            }
+        }
+    }
+
+    /**
+     * Copy keys after the current ones, starting by the keySize value
+     * The keys must be sorted and greater than the current ones
+     * 
+     * @param source
+     *            array with the keys
+     * @param offset
+     *            position of the first key to copy
+     * @param length
+     *            number of keys to copy
+     */
+    public void appendKeys(long[] source, int offset, int length) {
+        System.arraycopy(source, offset, keys, keysSize, length);
+        keysSize += length;
+    }
+
+    /**
+     * Move the keys and children at the right of the pivot to an empty node, and drop the pivot key
+     * The caller must elevate the pivot key to the father
+     * 
+     * @param pivot
+     *            index of the pivot key
+     * @param right
+     *            empty node that receives the right half
+     */
+    public void moveRightHalf(int pivot, LongBTreeNode right) {
+        int moved = keysSize - pivot - 1;
+        System.arraycopy(keys, pivot + 1, right.keys, 0, moved);
+        right.keysSize = moved;
+        Arrays.fill(keys, pivot, keysSize, 0);
+        keysSize = pivot;
+        // the children after the pivot move to the front of the right node
+        int movedChildren = Math.max(0, childrenSize - pivot - 1);
+        for (int i = 0; i < movedChildren; i++) {
+            LongBTreeNode child = children[pivot + 1 + i];
+            child.parent = right;
+            right.children[i] = child;
+            children[pivot + 1 + i] = null;
+        }
+        right.childrenSize = movedChildren;
+        childrenSize -= movedChildren;
+    }
+
+    /**
+     * Given an array of keys will overwrite the next children starting by the childrenSize value
+     * Will change parent reference to new node
+     * Will increase also childrenSize
+     */
+    public void mergeChildren(LongBTreeNode[] nodes) {
+        for (LongBTreeNode node : nodes) {
+            changeNodeParent(node, this);
+            children[childrenSize] = node;
+            childrenSize++;
+        }
+    }
+
+    /**
+     * Same as mergeChildren with an array, taking the children of the source node without copying them
+     */
+    public void mergeChildren(LongBTreeNode source) {
+        for (LongBTreeNode node : source.children) {
+            if (node != null) {
+                changeNodeParent(node, this);
+                children[childrenSize] = node;
+                childrenSize++;
+            }
+        }
+    }
+
+    private void changeNodeParent(LongBTreeNode current, LongBTreeNode parent) {
+        current.parent = parent;
+    }
+
+    /**
+     * @param key
+     *            Receive a key and return the next index position
+     *            Return the first index greater than the key, or keySize for default
+     * @return index position
+     */
+    public int getNextIndexByKey(long key) {
+        if (searchMode == SearchMode.BINARY) {
+            return binaryNextIndexByKey(key);
+        }
+        return linearNextIndexByKey(key);
+    }
+
+    private int linearNextIndexByKey(long key) {
+        for (int i = 0; i < keysSize; i++) {
+            if (keys[i] > key)
+                return i;
+        }
+        return keysSize;
+    }
+
+    private int binaryNextIndexByKey(long key) {
+        int low = 0;
+        int high = keysSize;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (keys[middle] > key) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @param key
+     *            Receive a key and return the index position
+     *            Return the first lower key index, or keySize for default
+     * @return index position
+     */
+    public int getIndexByKey(long key) throws KeyNotFoundException {
+        int index = this.getNextIndexByKey(key) - 1;
+        if (index < 0 || keys[index] != key) {
+            throw new KeyNotFoundException();
+        }
+        return index;
+    }
+
+    /**
+     * Lookup a key only between the used keys, without throwing
+     * 
+     * @param key
+     *            key to find
+     * @return index of the key, or (-(child index) - 1) when the key is not in this node,
+     *         where child index is the child that can contain the key
+     */
+    public int findKey(long key) {
+        int next = getNextIndexByKey(key);
+        if (next > 0 && keys[next - 1] == key) {
+            return next - 1;
+        }
+        return -next - 1;
+    }
+
+    /**
+     * Receive and index and prevent to access index out of bound
+     * 
+     * @param i
+     *            index position
+     * @return safe index
+     */
+    public int safeKeysIndex(int i) {
+        if (i < 0)
+            return 0;
+        else if (i > keys.length - 1)
+            return keys.length - 1;
+        return i;
+    }
+
+    /**
+     * Receive and index and prevent to access index out of bound
+     * 
+     * @param i
+     *            index position
+     * @return safe index
+     */
+    public int safeChildrenIndex(int i) {
+        if (i < 0)
+            return 0;
+        else if (i > children.length - 1)
+            return children.length - 1;
+        return i;
+    }
+
+    /**
+     * Will return the node where key must be added
+     * If the key already exists, will return that node
+     * 
+     * @param key
+     *            key that we want to insert
+     */
+    public LongBTreeNode searchChild(long key) throws NodeNotFoundException {
+        LongBTreeNode node = this;
+        LongBTreeNode next;
+        while ((next = node.nextChild(key)) != null) {
+            node = next;
+        }
+        return node;
+    }
+
+    /**
+     * One step of the descent for the key, the caller loops over it to go down the tree
+     * 
+     * @param key
+     *            key that we want to reach
+     * @return the child that can contain the key, or null if the key is in this node or this node is a leaf
+     */
+    public LongBTreeNode nextChild(long key) throws NodeNotFoundException {
+        if (childrenSize == 0) {
+            return null;
+        }
+        int i = getNextIndexByKey(key);
+        if (i > 0 && keys[i - 1] == key) {
+            return null;
+        }
+        LongBTreeNode child = children[i];
+        if (child == null) {
+            throw new NodeNotFoundException();
+        }
+        return child;
+    }
+
+    /**
+     * Same descent as searchChild, but a missing child gives null instead of an exception
+     * 
+     * @param key
+     *            key that we want to reach
+     * @return the node where the key is or must be added, or null when the descent finds no child
+     */
+    public LongBTreeNode searchChildOrNull(long key) {
+        LongBTreeNode node = this;
+        while (node.childrenSize > 0) {
+            int i = node.getNextIndexByKey(key);
+            if (i > 0 && node.keys[i - 1] == key) {
+                return node;
+            }
+            LongBTreeNode next = node.children[i];
+            if (next == null) {
+                return null;
+            }
+            node = next;
+        }
+        return node;
+    }
+
+    public boolean isLeaf() {
+        return this.childrenSize == 0;
+    }
+
+    /**
+     * Remove the lowest key, and shift the rest one position to the left
+     * The keys array is kept, so the node never loses capacity
+     */
+    public long removeFirstKey() {
+        long first = keys[0];
+        System.arraycopy(keys, 1, keys, 0, keysSize - 1);
+        keys[--keysSize] = 0;
+        return first;
+    }
+
+    public long removeLastKey() {
+        int lastIndexWithValue = keysSize - 1;
+        long last = keys[lastIndexWithValue];
+        keys[lastIndexWithValue] = 0;
+        keysSize--;
+        return last;
+    }
+
+    /**
+     * Given a key, remove it, and shift the greater keys one position to the left
+     */
+    public void removeByKey(long key) throws KeyNotFoundException {
+        removeKeyAt(this.getIndexByKey(key));
+    }
+
+    /**
+     * Remove the key at the index, and shift the greater keys one position to the left
+     * 
+     * @return the removed key
+     */
+    public long removeKeyAt(int index) {
+        long key = keys[index];
+        System.arraycopy(keys, index + 1, keys, index, keysSize - index - 1);
+        keys[--keysSize] = 0;
+        return key;
+    }
+
+    /**
+     * Put another key at the index, the caller keeps the keys sorted
+     */
+    public void replaceKey(int index, long key) {
+        keys[index] = key;
+    }
+
+    /**
+     * Only delete the key at a index position, not perform reorganization
+     * 
+     * @param index
+     *            position where perform delete
+     */
+    public void removeByIndex(int index) {
+        keys[index] = 0;
+        keysSize--;
+    }
+
+    /**
+     * Remove a child reference at index position
+     * The position is left empty, the tree keeps its children packed at the left and removes them with removeChildAt
+     */
+    public void removeChildByIndex(int index) {
+        children[index] = null;
+        childrenSize--;
+    }
+
+    /**
+     * Remove the child at the index, and shift the next children one position to the left
+     * 
+     * @return the removed child
+     */
+    public LongBTreeNode removeChildAt(int index) {
+        LongBTreeNode child = children[index];
+        System.arraycopy(children, index + 1, children, index, childrenSize - index - 1);
+        children[--childrenSize] = null;
+        return child;
+    }
+
+    /**
+     * Same as removeChildByIndex, the position of the node is left empty
+     */
+    public void removeChildByNode(LongBTreeNode node) {
+        children[this.getChildIndex(node)] = null;
+        childrenSize--;
+    }
+
+    private LongBTreeNode getSibling(SiblingOffset offset) {
+        for (int i = 0; i < parent.childrenSize; i++) {
+            if (parent.children[i] == this)
+                return parent.getChild(i + offset.getOffset());
+        }
+        return null;
+    }
+
+    public LongBTreeNode leftSibling() {
+        return this.getSibling(SiblingOffset.LEFT_SIBLING);
+    }
+
+    public LongBTreeNode rightSibling() {
+        return this.getSibling(SiblingOffset.RIGHT_SIBLING);
+    }
+
+    /**
+     * @return the node of the greatest key not greater than the key, or null when there is none
+     */
+    public LongBTreeNode greaterLSB(long key) {
+        return searchChildOrNull(key);
+    }
+
+    /**
+     * @return the node of the lowest key not lower than the key, or null when there is none
+     */
+    public LongBTreeNode lowerRSB(long key) {
+        return searchChildOrNull(key);
+    }
+
+    /**
+     * Visit the keys in order, a key after the children at its left, without recursion
+     */
+    public void forEachInOrder(LongConsumer action) {
+        traverse(IN_ORDER, action, null);
+    }
+
+    /**
+     * Visit the keys of every node before the keys of its children, without recursion
+     */
+    public void forEachPreOrder(LongConsumer action) {
+        traverse(PRE_ORDER, action, null);
+    }
+
+    /**
+     * Visit the keys of every node after the keys of its children, without recursion
+     */
+    public void forEachPostOrder(LongConsumer action) {
+        traverse(POST_ORDER, action, null);
+    }
+
+    /**
+     * Visit the keys level by level from the root, and every level from left to right
+     * The walk keeps the path from the root to a node of the level, and reaches the next node of the level through the
+     * deepest node of the path with a child on the right, so the upper levels are only crossed between their children
+     */
+    public void forEachLevelOrder(LongConsumer action) {
+        int height = height();
+        LongBTreeNode[] path = new LongBTreeNode[height];
+        int[] indexes = new int[height];
+        path[0] = this;
+        for (int level = 0; level < height; level++) {
+            int depth = 0;
+            indexes[0] = 0;
+            while (depth >= 0) {
+                // down the left edge of the child at the index
+                for (; depth < level; depth++) {
+                    path[depth + 1] = path[depth].children[indexes[depth]];
+                    indexes[depth + 1] = 0;
+                }
+                path[level].visitKeys(action, null);
+                // up to the deepest node with a child on the right
+                do {
+                    depth--;
+                } while (depth >= 0 && indexes[depth] >= path[depth].keysSize);
+                if (depth >= 0) {
+                    indexes[depth]++;
+                }
+            }
+        }
+    }
+
+    public String preOrder() {
+        KeysJoiner joiner = new KeysJoiner();
+        traverse(PRE_ORDER, joiner, joiner);
+        return joiner.toString();
+    }
+
+    public String postOrder() {
+        KeysJoiner joiner = new KeysJoiner();
+        traverse(POST_ORDER, joiner, joiner);
+        return joiner.toString();
+    }
+
+    public String inOrder() {
+        KeysJoiner joiner = new KeysJoiner();
+        traverse(IN_ORDER, joiner, joiner);
+        return joiner.toString();
+    }
+
+    /**
+     * Depth first walk over an explicit stack, the elements of a node are its children and keys interleaved as in
+     * LongBTreeCursor, element 2i is the child i and element 2i+1 is the key i
+     * The stack holds the inner nodes of the path and is sized with the height of the subtree, leaves are visited
+     * without going down, so the walk of a leaf allocates nothing
+     * <p>
+     * The String traversals show an empty item for a node without keys in pre order, as the old recursive join
+     * 
+     * @param empty
+     *            called for each empty item, null to skip them
+     */
+    private void traverse(int mode, LongConsumer action, Runnable empty) {
+        if (childrenSize == 0) {
+            // every order visits the keys of a leaf from left to right
+            visitKeys(action, mode == PRE_ORDER ? empty : null);
+            return;
+        }
+        LongBTreeNode[] nodes = new LongBTreeNode[height() - 1];
+        int[] elements = new int[nodes.length];
+        int depth = 0;
+        nodes[0] = this;
+        while (depth >= 0) {
+            LongBTreeNode node = nodes[depth];
+            int element = elements[depth]++;
+            if (element == 0 && mode == PRE_ORDER) {
+                node.visitKeys(action, empty);
+            }
+            // the last element of an inner node is the child after its last key
+            if (element > 2 * node.keysSize) {
+                if (mode == POST_ORDER) {
+                    node.visitKeys(action, null);
+                }
+                depth--;
+                continue;
+            }
+            int index = element >> 1;
+            if ((element & 1) == 1) {
+                if (mode == IN_ORDER) {
+                    action.accept(node.keys[index]);
+                }
+                continue;
+            }
+            LongBTreeNode child = node.children[index];
+            if (child == null) {
+                continue;
+            }
+            if (child.childrenSize == 0) {
+                child.visitKeys(action, mode == PRE_ORDER ? empty : null);
+                continue;
+            }
+            if (++depth == nodes.length) {
+                // only nodes built by hand have leaves deeper than the left edge
+                nodes = Arrays.copyOf(nodes, depth * 2);
+                elements = Arrays.copyOf(elements, depth * 2);
+            }
+            nodes[depth] = child;
+            elements[depth] = 0;
+        }
+    }
+
+    /**
+     * @param empty
+     *            called when the node has no keys, null to skip it
+     */
+    private void visitKeys(LongConsumer action, Runnable empty) {
+        if (keysSize == 0 && empty != null) {
+            empty.run();
+        }
+        for (int i = 0; i < keysSize; i++) {
+            action.accept(keys[i]);
+        }
+    }
+
+    /**
+     * Levels of the subtree along its left edge, 1 for a leaf
+     */
+    private int height() {
+        int height = 1;
+        for (LongBTreeNode node = this; node.childrenSize > 0 && node.children[0] != null; node = node.children[0]) {
+            height++;
+        }
+        return height;
+    }
+
+    /**
+     * Join the visited keys, and the empty items, with the separator of the String traversals
+     */
+    private static final class KeysJoiner implements LongConsumer, Runnable {
+
+        private final StringBuilder builder = new StringBuilder();
+        private boolean first = true;
+
+        @Override
+        public void accept(long key) {
+            separate();
+            builder.append(key);
+        }
+
+        @Override
+        public void run() {
+            separate();
+        }
+
+        private void separate() {
+            if (!first) {
+                builder.append(" -> ");
+            }
+            first = false;
+        }
+
+        @Override
+        public String toString() {
+            return builder.toString();
+        }
+    }
+
+}
@@ -0,0 +1,228 @@
+package com.cristianpeter.btree.cursor;
+
+import java.util.Comparator;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.function.IntConsumer;
+
+import com.cristianpeter.btree.core.BTreeNode;
+
+/**
+ * Spliterator over the keys of a BTree between two bounds, for parallel streams
+ * <p>
+ * It covers a range of the elements of a node, with the same encoding as BTreeCursor: element 2i is the child i and
+ * element 2i+1 is the key i. A split cuts the range at a child boundary near the middle, and a range left with a
+ * single child goes down into it, so each part is a run of whole subtrees and the keys between them.
+ * Children fully inside the bounds are visited with BTreeNode.forEachInOrder, only the children holding a bound are
+ * walked again with the bounds.
+ * Sizes come from BTreeNode.countKeys, so without bounds the spliterator and every part of a split are SIZED, with
+ * bounds the children holding a bound are counted whole and the size is an estimate.
+ * The tree must not be modified while the spliterator is used
+ */
+public class BTreeSpliterator implements Spliterator.OfInt {
+
+    private static final int CHARACTERISTICS = ORDERED | SORTED | DISTINCT | NONNULL;
+
+    private final int from;
+    private final int to;
+    private BTreeNode node;
+    // next element to visit and first element after the range
+    private int element;
+    private int end;
+    // keys left of the child tryAdvance is inside, null between children
+    private PrimitiveIterator.OfInt current;
+    private long estimate;
+    private final int characteristics;
+
+    /**
+     * All the keys of the tree
+     */
+    public BTreeSpliterator(BTreeNode root) {
+        this(root, Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param from
+     *            lowest key, included
+     * @param to
+     *            greatest key, included
+     */
+    public BTreeSpliterator(BTreeNode root, int from, int to) {
+        this.from = from;
+        this.to = to;
+        this.characteristics = characteristics(from, to);
+        enter(root);
+        this.estimate = countKeys(element, end);
+    }
+
+    private BTreeSpliterator(BTreeNode node, int element, int end, int from, int to, long estimate) {
+        this.from = from;
+        this.to = to;
+        this.node = node;
+        this.element = element;
+        this.end = end;
+        this.estimate = estimate;
+        this.characteristics = characteristics(from, to);
+    }
+
+    @Override
+    public boolean tryAdvance(IntConsumer action) {
+        while (true) {
+            if (current != null) {
+                if (current.hasNext()) {
+                    estimate--;
+                    action.accept(current.nextInt());
+                    return true;
+                }
+                current = null;
+            }
+            if (element >= end) {
+                return false;
+            }
+            int index = element >> 1;
+            if ((element++ & 1) == 1) {
+                if (index < node.getKeysSize()) {
+                    estimate--;
+                    action.accept(node.getKey(index));
+                    return true;
+                }
+            } else if (node.getChild(index) != null) {
+                BTreeCursor cursor = new BTreeCursor(node.getChild(index));
+                cursor.seek(from);
+                current = new RangeIterator(cursor, to);
+            }
+        }
+    }
+
+    @Override
+    public void forEachRemaining(IntConsumer action) {
+        if (current != null) {
+            current.forEachRemaining(action);
+            current = null;
+        }
+        estimate = 0;
+        for (; element < end; element++) {
+            int index = element >> 1;
+            if ((element & 1) == 1) {
+                if (index < node.getKeysSize()) {
+                    action.accept(node.getKey(index));
+                }
+                continue;
+            }
+            BTreeNode child = node.getChild(index);
+            if (child == null) {
+                continue;
+            }
+            if (inside(index)) {
+                child.forEachInOrder(action);
+            } else {
+                new BTreeSpliterator(child, from, to).forEachRemaining(action);
+            }
+        }
+    }
+
+    /**
+     * Give away the first half of the range, cut before a child element
+     * 
+     * @return null for a single key, a leaf, or once tryAdvance is inside a child
+     */
+    @Override
+    public Spliterator.OfInt trySplit() {
+        if (current != null) {
+            return null;
+        }
+        // a single child, go down into it
+        while (end - element == 1 && (element & 1) == 0 && node.getChild(element >> 1) != null) {
+            enter(node.getChild(element >> 1));
+        }
+        if (node.isLeaf() || end - element < 2) {
+            return null;
+        }
+        int middle = (element + end) >>> 1 & ~1;
+        if (middle <= element) {
+            middle = element + 2;
+        }
+        if (middle >= end) {
+            // the first child and the key after it
+            middle = element + 1;
+        }
+        BTreeSpliterator prefix = new BTreeSpliterator(node, element, middle, from, to, countKeys(element, middle));
+        element = middle;
+        estimate = countKeys(element, end);
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return estimate;
+    }
+
+    @Override
+    public int characteristics() {
+        return characteristics;
+    }
+
+    /**
+     * Natural order of the keys
+     */
+    @Override
+    public Comparator<? super Integer> getComparator() {
+        return null;
+    }
+
+    /**
+     * Range over the elements of the node between the bounds
+     */
+    private void enter(BTreeNode target) {
+        node = target;
+        element = 0;
+        end = target.isLeaf() ? 2 * target.getKeysSize() : 2 * target.getKeysSize() + 1;
+        if (from != Integer.MIN_VALUE) {
+            int index = target.findKey(from);
+            element = index >= 0 ? 2 * index + 1 : 2 * (-index - 1);
+        }
+        if (to != Integer.MAX_VALUE) {
+            int index = target.findKey(to);
+            if (index >= 0) {
+                end = 2 * index + 2;
+            } else if (-index - 1 < target.getKeysSize()) {
+                end = 2 * (-index - 1) + 1;
+            }
+        }
+        end = Math.max(element, end);
+    }
+
+    /**
+     * @return true if all the keys of the child are between the bounds
+     */
+    private boolean inside(int child) {
+        boolean lower = from == Integer.MIN_VALUE || child > 0 && node.getKey(child - 1) >= from;
+        boolean upper = to == Integer.MAX_VALUE || child < node.getKeysSize() && node.getKey(child) <= to;
+        return lower && upper;
+    }
+
+    /**
+     * Keys of the elements of the node between first, included, and last, excluded, counting whole children
+     */
+    private long countKeys(int first, int last) {
+        long keys = 0;
+        for (int i = first; i < last; i++) {
+            int index = i >> 1;
+            if ((i & 1) == 1) {
+                keys += index < node.getKeysSize() ? 1 : 0;
+            } else if (node.getChild(index) != null) {
+                keys += node.getChild(index).countKeys();
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Exact sizes only without bounds
+     */
+    private static int characteristics(int from, int to) {
+        boolean unbounded = from == Integer.MIN_VALUE && to == Integer.MAX_VALUE;
+        return unbounded ? CHARACTERISTICS | SIZED | SUBSIZED : CHARACTERISTICS;
+    }
+
+}
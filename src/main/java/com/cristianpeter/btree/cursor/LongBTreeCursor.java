@@ -0,0 +1,174 @@
+package com.cristianpeter.btree.cursor;
+
+import java.util.NoSuchElementException;
+
+import com.cristianpeter.btree.contracts.ILongBTreeCursor;
+import com.cristianpeter.btree.core.BTreeNode;
+import com.cristianpeter.btree.core.LongBTreeNode;
+
+/**
+ * Cursor over the keys of a LongBTree, same as BTreeCursor, without recursion and in constant memory
+ * <p>
+ * The elements of a node are its children and keys interleaved: element 2i is the child i and element 2i+1 is the
+ * key i. An inner node ends with the child after its last key, a leaf only has its keys.
+ * The cursor keeps the path from the root, every node with the element before the gap. Inner nodes of the path
+ * point to the child element the path goes through.
+ * The tree must not be modified while the cursor is used
+ */
+public class LongBTreeCursor implements ILongBTreeCursor {
+
+    private final LongBTreeNode root;
+    private final LongBTreeNode[] nodes = new LongBTreeNode[BTreeNode.MAX_HEIGHT];
+    private final int[] elements = new int[BTreeNode.MAX_HEIGHT];
+    private int depth;
+
+    public LongBTreeCursor(LongBTreeNode root) {
+        this.root = root;
+        seekFirst();
+    }
+
+    @Override
+    public void seekFirst() {
+        depth = 0;
+        nodes[0] = root;
+        elements[0] = 0;
+    }
+
+    @Override
+    public void seekLast() {
+        depth = 0;
+        nodes[0] = root;
+        elements[0] = end(root);
+    }
+
+    @Override
+    public void seek(long key) {
+        depth = 0;
+        LongBTreeNode node = root;
+        while (true) {
+            nodes[depth] = node;
+            int index = node.findKey(key);
+            if (index >= 0) {
+                elements[depth] = 2 * index + 1;
+                return;
+            }
+            int child = -index - 1;
+            elements[depth] = 2 * child;
+            // leaves stop here, the gap is already before the next greater key
+            node = node.getChild(child);
+            if (node == null) {
+                return;
+            }
+            depth++;
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        return forward();
+    }
+
+    @Override
+    public long nextLong() {
+        if (!forward()) {
+            throw new NoSuchElementException();
+        }
+        long key = nodes[depth].getKey(elements[depth] >> 1);
+        elements[depth]++;
+        return key;
+    }
+
+    @Override
+    public boolean hasPrevious() {
+        return backward();
+    }
+
+    @Override
+    public long previous() {
+        if (!backward()) {
+            throw new NoSuchElementException();
+        }
+        elements[depth]--;
+        return nodes[depth].getKey(elements[depth] >> 1);
+    }
+
+    /**
+     * Move the gap forward over subtree edges until the next element is a key
+     * The gap never passes over a key, so the position of the cursor does not change
+     * 
+     * @return false if there are no keys after the cursor
+     */
+    private boolean forward() {
+        while (true) {
+            LongBTreeNode node = nodes[depth];
+            int element = elements[depth];
+            if (element >= end(node)) {
+                if (depth == 0) {
+                    return false;
+                }
+                // go up, after the child element of the father
+                elements[--depth]++;
+            } else if ((element & 1) == 1) {
+                if ((element >> 1) < node.getKeysSize()) {
+                    return true;
+                }
+                elements[depth]++;
+            } else {
+                LongBTreeNode child = node.getChild(element >> 1);
+                if (child == null) {
+                    elements[depth]++;
+                } else {
+                    nodes[++depth] = child;
+                    elements[depth] = 0;
+                }
+            }
+        }
+    }
+
+    /**
+     * Move the gap backward over subtree edges until the previous element is a key
+     * The gap never passes over a key, so the position of the cursor does not change
+     * 
+     * @return false if there are no keys before the cursor
+     */
+    private boolean backward() {
+        while (true) {
+            LongBTreeNode node = nodes[depth];
+            int element = elements[depth];
+            if (element == 0) {
+                if (depth == 0) {
+                    return false;
+                }
+                // go up, the father already points before the child element
+                depth--;
+                continue;
+            }
+            int before = element - 1;
+            elements[depth] = before;
+            if ((before & 1) == 1) {
+                if ((before >> 1) < node.getKeysSize()) {
+                    // keep the key after the gap until previous moves over it
+                    elements[depth] = element;
+                    return true;
+                }
+            } else {
+                LongBTreeNode child = node.getChild(before >> 1);
+                if (child != null) {
+                    nodes[++depth] = child;
+                    elements[depth] = end(child);
+                }
+            }
+        }
+    }
+
+    /**
+     * Number of elements of the node, leaves only have keys
+     */
+    private static int end(LongBTreeNode node) {
+        if (node.isLeaf()) {
+            return 2 * node.getKeysSize();
+        }
+        return 2 * node.getKeysSize() + 1;
+    }
+
+}
@@ -0,0 +1,50 @@
+package com.cristianpeter.btree.cursor;
+
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * Iterate sorted keys until the upper bound, the first key after the bound is read and discarded
+ */
+public class LongRangeIterator implements PrimitiveIterator.OfLong {
+
+    private final PrimitiveIterator.OfLong keys;
+    private final long to;
+    private boolean ready;
+    private boolean finished;
+    private long next;
+
+    /**
+     * @param keys
+     *            keys in ascending order
+     * @param to
+     *            last key to return, included
+     */
+    public LongRangeIterator(PrimitiveIterator.OfLong keys, long to) {
+        this.keys = keys;
+        this.to = to;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (ready || finished) {
+            return ready;
+        }
+        if (keys.hasNext()) {
+            next = keys.nextLong();
+            ready = next <= to;
+        }
+        finished = !ready;
+        return ready;
+    }
+
+    @Override
+    public long nextLong() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        ready = false;
+        return next;
+    }
+
+}
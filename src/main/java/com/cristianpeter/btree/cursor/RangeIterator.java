@@ -0,0 +1,50 @@
+package com.cristianpeter.btree.cursor;
+
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * Iterate sorted keys until the upper bound, the first key after the bound is read and discarded
+ */
+public class RangeIterator implements PrimitiveIterator.OfInt {
+
+    private final PrimitiveIterator.OfInt keys;
+    private final int to;
+    private boolean ready;
+    private boolean finished;
+    private int next;
+
+    /**
+     * @param keys
+     *            keys in ascending order
+     * @param to
+     *            last key to return, included
+     */
+    public RangeIterator(PrimitiveIterator.OfInt keys, int to) {
+        this.keys = keys;
+        this.to = to;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (ready || finished) {
+            return ready;
+        }
+        if (keys.hasNext()) {
+            next = keys.nextInt();
+            ready = next <= to;
+        }
+        finished = !ready;
+        return ready;
+    }
+
+    @Override
+    public int nextInt() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        ready = false;
+        return next;
+    }
+
+}
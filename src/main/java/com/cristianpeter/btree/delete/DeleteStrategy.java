@@ -1,66 +1,124 @@
 package com.cristianpeter.btree.delete;
 
-import java.util.List;
-import java.util.Optional;
-import java.util.function.Function;
-
-import org.apache.commons.lang3.tuple.Pair;
-
+import com.cristianpeter.btree.contracts.IBTreeMetricsListener;
 import com.cristianpeter.btree.core.BTreeNode;
-import com.cristianpeter.btree.exceptions.KeyNotFoundException;
-import com.cristianpeter.btree.exceptions.NodeNotFoundException;
-import com.cristianpeter.btree.exceptions.interfaces.ExceptionalBiPredicate;
 
+/**
+ * Remove a key and rebalance the nodes that underflow, from the leaf up to the root
+ * An underflowing node borrows a key from a sibling that can lend one, otherwise it is merged with a sibling and
+ * the father, that lost a key, is rebalanced in turn. Leaves and inner nodes only differ in the children they move
+ * Nothing is allocated and nothing is thrown, a key that is not in the tree is reported with false
+ */
 public abstract class DeleteStrategy {
 
-    public static boolean delete(BTreeNode root, int key) throws NodeNotFoundException, KeyNotFoundException {
-        BTreeNode node = root.searchChild(key);
+    // strategies keep no state, the same instances serve every delete
+    private static final LeafDeleteStrategy LEAF = new LeafDeleteStrategy();
+    private static final InternalNodeDeleteStrategy INTERNAL_NODE = new InternalNodeDeleteStrategy();
+
+    public static boolean delete(BTreeNode root, int key) {
+        return delete(root, key, IBTreeMetricsListener.NOOP);
+    }
+
+    /**
+     * A merge of the last two children of the root leaves it without keys, see collapseRoot
+     * 
+     * @param listener
+     *            told about every borrow and merge of the rebalance
+     * @return false if the key was not in the tree
+     */
+    public static boolean delete(BTreeNode root, int key, IBTreeMetricsListener listener) {
+        BTreeNode node = root.searchChildOrNull(key);
+        int index = node == null ? -1 : node.findKey(key);
+        if (index < 0) {
+            return false;
+        }
         if (node.isLeaf()) {
-            return new LeafDeleteStrategy().deleteImpl(node, key);
+            LEAF.deleteImpl(node, index, listener);
         } else {
-            return new InternalNodeDeleteStrategy().deleteImpl(node, key);
+            INTERNAL_NODE.deleteImpl(node, index, listener);
         }
+        return true;
     }
 
-    public abstract Optional<Pair<BTreeNode, Function<BTreeNode, Integer>>> lendKeyProvider(BTreeNode node, int key);
+    /**
+     * @return the root of the tree after a delete, the only child of a root left without keys
+     */
+    public static BTreeNode collapseRoot(BTreeNode root) {
+        if (root.getKeysSize() > 0 || root.isLeaf()) {
+            return root;
+        }
+        BTreeNode child = root.getChild(0);
+        child.setParent(null);
+        return child;
+    }
 
-    public abstract boolean borrowSiblingImpl(BTreeNode node, int key) throws KeyNotFoundException;
+    /**
+     * Borrow keys from a sibling that can lend them, or merge with a sibling and go up while the father underflows
+     * A node that lost several keys, as in BTree.deleteAll, borrows until it has enough or merges
+     * The root never underflows, so the walk stops there at the latest
+     * 
+     * @param listener
+     *            told about every borrow and merge
+     */
+    public static void balanceTree(BTreeNode node, IBTreeMetricsListener listener) {
+        while (node.keysUnderflowing()) {
+            boolean leaf = node.isLeaf();
+            DeleteStrategy strategy = leaf ? LEAF : INTERNAL_NODE;
+            BTreeNode parent = node.getParent();
+            int index = parent.getChildIndex(node);
+            if (strategy.borrowSiblingImpl(node, parent, index)) {
+                listener.borrow(leaf);
+                continue;
+            }
+            strategy.mergeSiblingsImpl(node, parent, index);
+            listener.merge(leaf);
+            node = parent;
+        }
+    }
 
-    public abstract boolean mergeSiblingsImpl(BTreeNode node, int key) throws KeyNotFoundException;
+    /**
+     * @param index
+     *            position of the node in the children of the parent
+     * @return false if no sibling can lend a key
+     */
+    public abstract boolean borrowSiblingImpl(BTreeNode node, BTreeNode parent, int index);
+
+    /**
+     * Merge the node with its left sibling, or with the right one for the first child, the parent loses a key
+     * 
+     * @param index
+     *            position of the node in the children of the parent
+     */
+    public abstract void mergeSiblingsImpl(BTreeNode node, BTreeNode parent, int index);
 
     /**
-     * Borrow parent key to child, removing from parent and adding to child
-     * And move it to the child node
-     * if removeReference is true, the child reference of the parent will be deleted
-     *
-     * @param node
-     *            child node
+     * The separator goes down to the front of the node and the last key of the left sibling takes its place
      */
-    protected void borrowParentKeyToChild(BTreeNode node) throws KeyNotFoundException {
-        // remove key from parent and add it to the child
-        int parentKeyIndex = node.safeKeysIndex(node.getParent().getChildIndex(node) - 1);
-        int parentKey = node.getParent().getKey(parentKeyIndex);
-        node.getParent().removeByKey(parentKey);
-        node.addKey(parentKey);
+    protected static void rotateFromLeft(BTreeNode node, BTreeNode left, BTreeNode parent, int index) {
+        node.addKey(parent.getKey(index - 1));
+        parent.replaceKey(index - 1, left.removeLastKey());
     }
 
-    public boolean balanceTree(BTreeNode node, int key) throws KeyNotFoundException {
-        List<ExceptionalBiPredicate<BTreeNode, Integer>> methods = List.of(this::borrowSiblingImpl, this::mergeSiblingsImpl);
-        boolean result = executeInOrder(methods, node, key);
-        if (node.getParent().keysUnderflowing()) {
-            return this.balanceTree(node.getParent(), key);
-        }
-        return result;
+    /**
+     * The separator goes down to the end of the node and the first key of the right sibling takes its place
+     */
+    protected static void rotateFromRight(BTreeNode node, BTreeNode right, BTreeNode parent, int index) {
+        node.addKey(parent.getKey(index));
+        parent.replaceKey(index, right.removeFirstKey());
     }
 
-    private boolean executeInOrder(List<ExceptionalBiPredicate<BTreeNode, Integer>> methods, BTreeNode node, int key)
-            throws KeyNotFoundException {
-        for (ExceptionalBiPredicate<BTreeNode, Integer> method : methods) {
-            if (method.test(node, key)) {
-                return true;
-            }
-        }
-        return false;
+    /**
+     * The separator and the keys of the right node go to the left one, the parent loses the separator and the right
+     * node
+     * 
+     * @param separator
+     *            index of the key of the parent between the two nodes
+     */
+    protected static void mergeKeys(BTreeNode left, BTreeNode right, BTreeNode parent, int separator) {
+        left.addKey(parent.getKey(separator));
+        left.mergeKeys(right);
+        parent.removeKeyAt(separator);
+        parent.removeChildAt(separator + 1);
     }
 
 }
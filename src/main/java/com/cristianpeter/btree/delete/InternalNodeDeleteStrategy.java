@@ -1,84 +1,74 @@
 package com.cristianpeter.btree.delete;
 
-import java.util.Optional;
-import java.util.function.Function;
-
-import org.apache.commons.lang3.tuple.ImmutablePair;
-import org.apache.commons.lang3.tuple.Pair;
-
+import com.cristianpeter.btree.contracts.IBTreeMetricsListener;
 import com.cristianpeter.btree.core.BTreeNode;
-import com.cristianpeter.btree.exceptions.KeyNotFoundException;
 
 public class InternalNodeDeleteStrategy extends DeleteStrategy {
 
-    public boolean deleteImpl(BTreeNode node, int key) throws KeyNotFoundException {
-        return this.balanceTree(node, key);
-    }
-
-    @Override
-    public boolean borrowSiblingImpl(BTreeNode node, int key) throws KeyNotFoundException {
-        return this.borrowSibling(node, key);
-    }
-
-    @Override
-    public boolean mergeSiblingsImpl(BTreeNode node, int key) throws KeyNotFoundException {
-        return this.mergeSiblings(node, key);
-    }
-
     /**
-     * Will return the node with maximum key in the left subtree or node with minimum key in right subtree
-     * key - 1 will return the node with maximum value in left subtree (recursive)
-     * key + 1 will return the node with minimum key in right subtree (recursive)
+     * The greatest key of the left subtree, or the lowest key of the right subtree when only its leaf can lend,
+     * takes the place of the key, and its leaf is rebalanced
+     * When the children of the key are leaves that cannot lend, they are merged and the key is dropped
      * 
-     * @param node
-     * @param key
-     * @return
+     * @param index
+     *            position of the key in the inner node
      */
-    @Override
-    public Optional<Pair<BTreeNode, Function<BTreeNode, Integer>>> lendKeyProvider(BTreeNode node, int key) {
-
-        BTreeNode leftSibling = node.greaterLSB(key - 1).orElse(null);
-        BTreeNode rightSibling = node.lowerRSB(key + 1).orElse(null);
-
-        if (leftSibling != null && leftSibling.canLendKey()) {
-            return Optional.of(ImmutablePair.of(leftSibling, BTreeNode::removeLastKey));
-        } else if (rightSibling != null && rightSibling.canLendKey()) {
-            return Optional.of(ImmutablePair.of(rightSibling, BTreeNode::removeFirstKey));
-        } else {
-            return Optional.empty();
+    public void deleteImpl(BTreeNode node, int index, IBTreeMetricsListener listener) {
+        BTreeNode left = node.getChild(index);
+        while (!left.isLeaf()) {
+            left = left.getChild(left.getChildrenSize() - 1);
+        }
+        BTreeNode right = node.getChild(index + 1);
+        while (!right.isLeaf()) {
+            right = right.getChild(0);
+        }
+        if (left.getParent() == node && !left.canLendKey() && !right.canLendKey()) {
+            left.mergeKeys(right);
+            node.removeKeyAt(index);
+            node.removeChildAt(index + 1);
+            listener.merge(true);
+            balanceTree(node, listener);
+            return;
         }
+        boolean fromLeft = left.canLendKey() || !right.canLendKey();
+        BTreeNode leaf = fromLeft ? left : right;
+        node.replaceKey(index, fromLeft ? leaf.removeLastKey() : leaf.removeFirstKey());
+        balanceTree(leaf, listener);
     }
 
-    private boolean borrowSibling(BTreeNode node, int key) throws KeyNotFoundException {
-        Pair<BTreeNode, Function<BTreeNode, Integer>> pair = this.lendKeyProvider(node, key).orElse(null);
-        if (pair != null && pair.getLeft() != null) {
-            // first remove the key
-            node.removeByKey(key);
-
-            // remove lend key from sibling
-            int lendKey = pair.getRight().apply(pair.getLeft());
-
-            // add key to current node
-            node.addKey(lendKey);
-
+    /**
+     * Same as the leaf strategy, the child next to the lent key moves with it
+     */
+    @Override
+    public boolean borrowSiblingImpl(BTreeNode node, BTreeNode parent, int index) {
+        BTreeNode left = parent.getChild(index - 1);
+        if (left != null && left.canLendKey()) {
+            rotateFromLeft(node, left, parent, index);
+            BTreeNode child = left.removeChildAt(left.getChildrenSize() - 1);
+            child.setParent(node);
+            node.addChild(0, child);
+            return true;
+        }
+        BTreeNode right = parent.getChild(index + 1);
+        if (right != null && right.canLendKey()) {
+            rotateFromRight(node, right, parent, index);
+            BTreeNode child = right.removeChildAt(0);
+            child.setParent(node);
+            node.addChild(node.getChildrenSize(), child);
             return true;
         }
         return false;
     }
 
-    private boolean mergeSiblings(BTreeNode node, int key) throws KeyNotFoundException {
-        int rightChild = node.getNextIndexByKey(key);
-        BTreeNode leftChildNode = node.getChild(rightChild - 1);
-        BTreeNode rightChildNode = node.getChild(rightChild);
-
-        leftChildNode.mergeKeys(rightChildNode.getKeys());
-
-        // remove the right child from the inner node
-        node.removeChildByIndex(node.getChildIndex(rightChildNode));
-
-        // remove the key from the node
-        node.removeByKey(key);
-        return true;
+    /**
+     * Same as the leaf strategy, the children of the right node go after the children of the left one
+     */
+    @Override
+    public void mergeSiblingsImpl(BTreeNode node, BTreeNode parent, int index) {
+        BTreeNode left = index > 0 ? parent.getChild(index - 1) : node;
+        BTreeNode right = index > 0 ? node : parent.getChild(index + 1);
+        left.mergeChildren(right);
+        mergeKeys(left, right, parent, index > 0 ? index - 1 : index);
     }
 
 }
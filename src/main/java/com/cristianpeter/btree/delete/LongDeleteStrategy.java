@@ -0,0 +1,107 @@
+package com.cristianpeter.btree.delete;
+
+import com.cristianpeter.btree.core.LongBTreeNode;
+
+/**
+ * Delete strategies of LongBTree, same algorithm as DeleteStrategy with long keys
+ */
+public abstract class LongDeleteStrategy {
+
+    // strategies keep no state, the same instances serve every delete
+    private static final LongLeafDeleteStrategy LEAF = new LongLeafDeleteStrategy();
+    private static final LongInternalNodeDeleteStrategy INTERNAL_NODE = new LongInternalNodeDeleteStrategy();
+
+    /**
+     * A merge of the last two children of the root leaves it without keys, see collapseRoot
+     * 
+     * @return false if the key was not in the tree
+     */
+    public static boolean delete(LongBTreeNode root, long key) {
+        LongBTreeNode node = root.searchChildOrNull(key);
+        int index = node == null ? -1 : node.findKey(key);
+        if (index < 0) {
+            return false;
+        }
+        if (node.isLeaf()) {
+            LEAF.deleteImpl(node, index);
+        } else {
+            INTERNAL_NODE.deleteImpl(node, index);
+        }
+        return true;
+    }
+
+    /**
+     * @return the root of the tree after a delete, the only child of a root left without keys
+     */
+    public static LongBTreeNode collapseRoot(LongBTreeNode root) {
+        if (root.getKeysSize() > 0 || root.isLeaf()) {
+            return root;
+        }
+        LongBTreeNode child = root.getChild(0);
+        child.setParent(null);
+        return child;
+    }
+
+    /**
+     * Borrow keys from a sibling that can lend them, or merge with a sibling and go up while the father underflows
+     * The root never underflows, so the walk stops there at the latest
+     */
+    public static void balanceTree(LongBTreeNode node) {
+        while (node.keysUnderflowing()) {
+            LongDeleteStrategy strategy = node.isLeaf() ? LEAF : INTERNAL_NODE;
+            LongBTreeNode parent = node.getParent();
+            int index = parent.getChildIndex(node);
+            if (strategy.borrowSiblingImpl(node, parent, index)) {
+                continue;
+            }
+            strategy.mergeSiblingsImpl(node, parent, index);
+            node = parent;
+        }
+    }
+
+    /**
+     * @param index
+     *            position of the node in the children of the parent
+     * @return false if no sibling can lend a key
+     */
+    public abstract boolean borrowSiblingImpl(LongBTreeNode node, LongBTreeNode parent, int index);
+
+    /**
+     * Merge the node with its left sibling, or with the right one for the first child, the parent loses a key
+     * 
+     * @param index
+     *            position of the node in the children of the parent
+     */
+    public abstract void mergeSiblingsImpl(LongBTreeNode node, LongBTreeNode parent, int index);
+
+    /**
+     * The separator goes down to the front of the node and the last key of the left sibling takes its place
+     */
+    protected static void rotateFromLeft(LongBTreeNode node, LongBTreeNode left, LongBTreeNode parent, int index) {
+        node.addKey(parent.getKey(index - 1));
+        parent.replaceKey(index - 1, left.removeLastKey());
+    }
+
+    /**
+     * The separator goes down to the end of the node and the first key of the right sibling takes its place
+     */
+    protected static void rotateFromRight(LongBTreeNode node, LongBTreeNode right, LongBTreeNode parent, int index) {
+        node.addKey(parent.getKey(index));
+        parent.replaceKey(index, right.removeFirstKey());
+    }
+
+    /**
+     * The separator and the keys of the right node go to the left one, the parent loses the separator and the right
+     * node
+     * 
+     * @param separator
+     *            index of the key of the parent between the two nodes
+     */
+    protected static void mergeKeys(LongBTreeNode left, LongBTreeNode right, LongBTreeNode parent, int separator) {
+        left.addKey(parent.getKey(separator));
+        left.mergeKeys(right);
+        parent.removeKeyAt(separator);
+        parent.removeChildAt(separator + 1);
+    }
+
+}
@@ -0,0 +1,72 @@
+package com.cristianpeter.btree.delete;
+
+import com.cristianpeter.btree.core.LongBTreeNode;
+
+public class LongInternalNodeDeleteStrategy extends LongDeleteStrategy {
+
+    /**
+     * The greatest key of the left subtree, or the lowest key of the right subtree when only its leaf can lend,
+     * takes the place of the key, and its leaf is rebalanced
+     * When the children of the key are leaves that cannot lend, they are merged and the key is dropped
+     * 
+     * @param index
+     *            position of the key in the inner node
+     */
+    public void deleteImpl(LongBTreeNode node, int index) {
+        LongBTreeNode left = node.getChild(index);
+        while (!left.isLeaf()) {
+            left = left.getChild(left.getChildrenSize() - 1);
+        }
+        LongBTreeNode right = node.getChild(index + 1);
+        while (!right.isLeaf()) {
+            right = right.getChild(0);
+        }
+        if (left.getParent() == node && !left.canLendKey() && !right.canLendKey()) {
+            left.mergeKeys(right);
+            node.removeKeyAt(index);
+            node.removeChildAt(index + 1);
+            balanceTree(node);
+            return;
+        }
+        boolean fromLeft = left.canLendKey() || !right.canLendKey();
+        LongBTreeNode leaf = fromLeft ? left : right;
+        node.replaceKey(index, fromLeft ? leaf.removeLastKey() : leaf.removeFirstKey());
+        balanceTree(leaf);
+    }
+
+    /**
+     * Same as the leaf strategy, the child next to the lent key moves with it
+     */
+    @Override
+    public boolean borrowSiblingImpl(LongBTreeNode node, LongBTreeNode parent, int index) {
+        LongBTreeNode left = parent.getChild(index - 1);
+        if (left != null && left.canLendKey()) {
+            rotateFromLeft(node, left, parent, index);
+            LongBTreeNode child = left.removeChildAt(left.getChildrenSize() - 1);
+            child.setParent(node);
+            node.addChild(0, child);
+            return true;
+        }
+        LongBTreeNode right = parent.getChild(index + 1);
+        if (right != null && right.canLendKey()) {
+            rotateFromRight(node, right, parent, index);
+            LongBTreeNode child = right.removeChildAt(0);
+            child.setParent(node);
+            node.addChild(node.getChildrenSize(), child);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Same as the leaf strategy, the children of the right node go after the children of the left one
+     */
+    @Override
+    public void mergeSiblingsImpl(LongBTreeNode node, LongBTreeNode parent, int index) {
+        LongBTreeNode left = index > 0 ? parent.getChild(index - 1) : node;
+        LongBTreeNode right = index > 0 ? node : parent.getChild(index + 1);
+        left.mergeChildren(right);
+        mergeKeys(left, right, parent, index > 0 ? index - 1 : index);
+    }
+
+}
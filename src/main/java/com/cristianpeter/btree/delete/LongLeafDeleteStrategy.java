@@ -0,0 +1,41 @@
+package com.cristianpeter.btree.delete;
+
+import com.cristianpeter.btree.core.LongBTreeNode;
+
+public class LongLeafDeleteStrategy extends LongDeleteStrategy {
+
+    /**
+     * @param index
+     *            position of the key in the leaf
+     */
+    public void deleteImpl(LongBTreeNode node, int index) {
+        node.removeKeyAt(index);
+        balanceTree(node);
+    }
+
+    @Override
+    public boolean borrowSiblingImpl(LongBTreeNode node, LongBTreeNode parent, int index) {
+        // the left sibling lends its last key, otherwise the right sibling lends its first key
+        LongBTreeNode left = parent.getChild(index - 1);
+        if (left != null && left.canLendKey()) {
+            rotateFromLeft(node, left, parent, index);
+            return true;
+        }
+        LongBTreeNode right = parent.getChild(index + 1);
+        if (right != null && right.canLendKey()) {
+            rotateFromRight(node, right, parent, index);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void mergeSiblingsImpl(LongBTreeNode node, LongBTreeNode parent, int index) {
+        if (index > 0) {
+            mergeKeys(parent.getChild(index - 1), node, parent, index - 1);
+        } else {
+            mergeKeys(node, parent.getChild(index + 1), parent, index);
+        }
+    }
+
+}
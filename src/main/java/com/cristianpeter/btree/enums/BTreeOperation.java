@@ -0,0 +1,10 @@
+package com.cristianpeter.btree.enums;
+
+/**
+ * Single key operations of BTree that are timed when a metrics listener is set
+ */
+public enum BTreeOperation {
+    ADD,
+    DELETE,
+    CONTAINS
+}
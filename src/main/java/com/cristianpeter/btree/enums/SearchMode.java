@@ -0,0 +1,25 @@
+package com.cristianpeter.btree.enums;
+
+/**
+ * How a node looks for a key between its keys
+ */
+public enum SearchMode {
+    LINEAR,
+    BINARY;
+
+    /**
+     * From this order binary search is faster than a linear scan, see NodeSearchBenchmark
+     */
+    public static final int BINARY_SEARCH_MIN_ORDER = 256;
+
+    /**
+     * Choose the search mode that fits better for the order
+     * 
+     * @param order
+     *            maximum keys per node
+     */
+    public static SearchMode forOrder(int order) {
+        return order >= BINARY_SEARCH_MIN_ORDER ? BINARY : LINEAR;
+    }
+
+}
@@ -0,0 +1,393 @@
+package com.cristianpeter.btree.map;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.function.BiFunction;
+
+import com.cristianpeter.btree.contracts.IBTreeMap;
+import com.cristianpeter.btree.core.BTreeNode;
+
+import lombok.Getter;
+
+/**
+ * BTree map for any key that is Comparable or has a Comparator
+ * For int or long keys prefer IntLongBTreeMap and LongLongBTreeMap, they do not box
+ * Same as BTree, this class is not thread safe
+ */
+public class BTreeMap<K, V> implements IBTreeMap<K, V> {
+
+    @Getter
+    private final int order;
+    private final int minKeys;
+    // null means natural order of the keys
+    private final Comparator<? super K> comparator;
+    private Node root;
+    private int size;
+
+    // descent path reused by every write, path[i] is the node at depth i
+    // and slots[i] the result of the key search in that node
+    private final Node[] path = new Node[BTreeNode.MAX_HEIGHT];
+    private final int[] slots = new int[BTreeNode.MAX_HEIGHT];
+
+    /**
+     * Keys must implement Comparable
+     * 
+     * @param order
+     *            maximum keys per node
+     */
+    public BTreeMap(int order) {
+        this(order, null);
+    }
+
+    /**
+     * @param order
+     *            maximum keys per node
+     * @param comparator
+     *            order of the keys
+     */
+    public BTreeMap(int order, Comparator<? super K> comparator) {
+        this.order = order;
+        this.minKeys = (int) Math.ceil((double) (order + 1) / 2 - 1);
+        this.comparator = comparator;
+        this.root = new Node(order, true);
+    }
+
+    @Override
+    public V put(K key, V value) {
+        int depth = descend(key);
+        Node node = path[depth];
+        int slot = slots[depth];
+        if (slot >= 0) {
+            V previous = node.value(slot);
+            node.values[slot] = value;
+            return previous;
+        }
+        insert(depth, -slot - 1, key, value);
+        return null;
+    }
+
+    @Override
+    public V get(K key) {
+        Node node = root;
+        while (true) {
+            int slot = find(node, key);
+            if (slot >= 0) {
+                return node.value(slot);
+            }
+            if (node.isLeaf()) {
+                return null;
+            }
+            node = node.children[-slot - 1];
+        }
+    }
+
+    @Override
+    public boolean containsKey(K key) {
+        Node node = root;
+        while (true) {
+            int slot = find(node, key);
+            if (slot >= 0) {
+                return true;
+            }
+            if (node.isLeaf()) {
+                return false;
+            }
+            node = node.children[-slot - 1];
+        }
+    }
+
+    @Override
+    public V remove(K key) {
+        int depth = descend(key);
+        int slot = slots[depth];
+        if (slot < 0) {
+            return null;
+        }
+        V previous = path[depth].value(slot);
+        removeFound(depth, slot);
+        return previous;
+    }
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+        int depth = descend(key);
+        int slot = slots[depth];
+        if (slot >= 0) {
+            return path[depth].value(slot);
+        }
+        insert(depth, -slot - 1, key, value);
+        return null;
+    }
+
+    @Override
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remapping) {
+        int depth = descend(key);
+        Node node = path[depth];
+        int slot = slots[depth];
+        V current = slot >= 0 ? node.value(slot) : null;
+        V value = remapping.apply(key, current);
+        if (slot >= 0) {
+            if (value == null) {
+                removeFound(depth, slot);
+            } else {
+                node.values[slot] = value;
+            }
+        } else if (value != null) {
+            insert(depth, -slot - 1, key, value);
+        }
+        return value;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    private int find(Node node, K key) {
+        if (comparator == null) {
+            return Arrays.binarySearch(node.keys, 0, node.size, key);
+        }
+        return Arrays.binarySearch((K[]) node.keys, 0, node.size, key, comparator);
+    }
+
+    /**
+     * Go down from the root until the key is found or a leaf is reached, filling the path
+     * 
+     * @return depth of the last node of the path
+     */
+    private int descend(K key) {
+        Node node = root;
+        int depth = 0;
+        while (true) {
+            int slot = find(node, key);
+            path[depth] = node;
+            slots[depth] = slot;
+            if (slot >= 0 || node.isLeaf()) {
+                return depth;
+            }
+            node = node.children[-slot - 1];
+            depth++;
+        }
+    }
+
+    /**
+     * Remove the entry at slot of the last node of the path
+     */
+    private void removeFound(int depth, int slot) {
+        Node node = path[depth];
+        if (node.isLeaf()) {
+            node.removeAt(slot);
+        } else {
+            // replace the key with its predecessor, the greatest key of the left subtree
+            slots[depth] = -slot - 1;
+            Node leaf = node.children[slot];
+            while (!leaf.isLeaf()) {
+                path[++depth] = leaf;
+                slots[depth] = -leaf.size - 1;
+                leaf = leaf.children[leaf.size];
+            }
+            path[++depth] = leaf;
+            int last = leaf.size - 1;
+            node.keys[slot] = leaf.keys[last];
+            node.values[slot] = leaf.values[last];
+            leaf.removeAt(last);
+        }
+        size--;
+        rebalance(depth);
+    }
+
+    /**
+     * Add the entry to the leaf at the depth and split the overflowing nodes up to the root
+     */
+    private void insert(int depth, int index, K key, V value) {
+        path[depth].insertAt(index, key, value, null);
+        size++;
+        while (depth >= 0 && path[depth].size > order) {
+            split(depth--);
+        }
+    }
+
+    /**
+     * Move the right half of the node to a new node and elevate the pivot to the father
+     */
+    private void split(int depth) {
+        Node node = path[depth];
+        int pivot = node.size / 2;
+        Object pivotKey = node.keys[pivot];
+        Object pivotValue = node.values[pivot];
+
+        Node right = new Node(order, node.isLeaf());
+        int moved = node.size - pivot - 1;
+        System.arraycopy(node.keys, pivot + 1, right.keys, 0, moved);
+        System.arraycopy(node.values, pivot + 1, right.values, 0, moved);
+        if (!node.isLeaf()) {
+            System.arraycopy(node.children, pivot + 1, right.children, 0, moved + 1);
+            Arrays.fill(node.children, pivot + 1, node.size + 1, null);
+        }
+        right.size = moved;
+        // release references of the moved entries
+        Arrays.fill(node.keys, pivot, node.size, null);
+        Arrays.fill(node.values, pivot, node.size, null);
+        node.size = pivot;
+
+        if (depth == 0) {
+            Node newRoot = new Node(order, false);
+            newRoot.keys[0] = pivotKey;
+            newRoot.values[0] = pivotValue;
+            newRoot.children[0] = node;
+            newRoot.children[1] = right;
+            newRoot.size = 1;
+            root = newRoot;
+            return;
+        }
+        path[depth - 1].insertAt(-slots[depth - 1] - 1, pivotKey, pivotValue, right);
+    }
+
+    /**
+     * Fix the underflowing nodes of the path, from the depth up to the root
+     */
+    private void rebalance(int depth) {
+        for (; depth > 0 && path[depth].size < minKeys; depth--) {
+            Node node = path[depth];
+            Node parent = path[depth - 1];
+            int childIndex = -slots[depth - 1] - 1;
+            Node left = childIndex > 0 ? parent.children[childIndex - 1] : null;
+            Node right = childIndex < parent.size ? parent.children[childIndex + 1] : null;
+
+            if (left != null && left.size > minKeys) {
+                borrowFromLeft(parent, childIndex - 1, left, node);
+            } else if (right != null && right.size > minKeys) {
+                borrowFromRight(parent, childIndex, node, right);
+            } else if (left != null) {
+                merge(parent, childIndex - 1, left, node);
+            } else {
+                merge(parent, childIndex, node, right);
+            }
+        }
+        if (root.size == 0 && !root.isLeaf()) {
+            root = root.children[0];
+        }
+    }
+
+    /**
+     * The father key goes down to the node and the greatest key of the left sibling goes up
+     */
+    private void borrowFromLeft(Node parent, int separator, Node left, Node node) {
+        System.arraycopy(node.keys, 0, node.keys, 1, node.size);
+        System.arraycopy(node.values, 0, node.values, 1, node.size);
+        if (!node.isLeaf()) {
+            System.arraycopy(node.children, 0, node.children, 1, node.size + 1);
+            node.children[0] = left.children[left.size];
+            left.children[left.size] = null;
+        }
+        node.keys[0] = parent.keys[separator];
+        node.values[0] = parent.values[separator];
+        node.size++;
+
+        int last = left.size - 1;
+        parent.keys[separator] = left.keys[last];
+        parent.values[separator] = left.values[last];
+        left.keys[last] = null;
+        left.values[last] = null;
+        left.size--;
+    }
+
+    /**
+     * The father key goes down to the node and the lowest key of the right sibling goes up
+     */
+    private void borrowFromRight(Node parent, int separator, Node node, Node right) {
+        node.keys[node.size] = parent.keys[separator];
+        node.values[node.size] = parent.values[separator];
+        if (!node.isLeaf()) {
+            node.children[node.size + 1] = right.children[0];
+        }
+        node.size++;
+
+        parent.keys[separator] = right.keys[0];
+        parent.values[separator] = right.values[0];
+        System.arraycopy(right.keys, 1, right.keys, 0, right.size - 1);
+        System.arraycopy(right.values, 1, right.values, 0, right.size - 1);
+        right.keys[right.size - 1] = null;
+        right.values[right.size - 1] = null;
+        if (!right.isLeaf()) {
+            System.arraycopy(right.children, 1, right.children, 0, right.size);
+            right.children[right.size] = null;
+        }
+        right.size--;
+    }
+
+    /**
+     * Join the father key and the right node into the left node, the right node disappear
+     */
+    private void merge(Node parent, int separator, Node left, Node right) {
+        left.keys[left.size] = parent.keys[separator];
+        left.values[left.size] = parent.values[separator];
+        System.arraycopy(right.keys, 0, left.keys, left.size + 1, right.size);
+        System.arraycopy(right.values, 0, left.values, left.size + 1, right.size);
+        if (!left.isLeaf()) {
+            System.arraycopy(right.children, 0, left.children, left.size + 1, right.size + 1);
+        }
+        left.size += right.size + 1;
+        parent.removeAt(separator);
+    }
+
+    private static final class Node {
+        private final Object[] keys;
+        private final Object[] values;
+        // null for leaves, a node never changes from leaf to inner node
+        private final Node[] children;
+        private int size;
+
+        private Node(int order, boolean leaf) {
+            // overpass maximum by 1 for making split more easy
+            keys = new Object[order + 1];
+            values = new Object[order + 1];
+            children = leaf ? null : new Node[order + 2];
+        }
+
+        private boolean isLeaf() {
+            return children == null;
+        }
+
+        @SuppressWarnings("unchecked")
+        private <V> V value(int index) {
+            return (V) values[index];
+        }
+
+        /**
+         * Add the entry at index, and the right child just after it when it's not null
+         */
+        private void insertAt(int index, Object key, Object value, Node rightChild) {
+            System.arraycopy(keys, index, keys, index + 1, size - index);
+            System.arraycopy(values, index, values, index + 1, size - index);
+            keys[index] = key;
+            values[index] = value;
+            if (rightChild != null) {
+                System.arraycopy(children, index + 1, children, index + 2, size - index);
+                children[index + 1] = rightChild;
+            }
+            size++;
+        }
+
+        /**
+         * Remove the entry at index, and the child just after it for inner nodes
+         */
+        private void removeAt(int index) {
+            System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+            System.arraycopy(values, index + 1, values, index, size - index - 1);
+            keys[size - 1] = null;
+            values[size - 1] = null;
+            if (children != null) {
+                System.arraycopy(children, index + 2, children, index + 1, size - index - 1);
+                children[size] = null;
+            }
+            size--;
+        }
+    }
+
+}
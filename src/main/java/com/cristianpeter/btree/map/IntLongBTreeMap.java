@@ -0,0 +1,369 @@
+package com.cristianpeter.btree.map;
+
+import java.util.Arrays;
+import java.util.function.LongBinaryOperator;
+
+import com.cristianpeter.btree.contracts.IIntLongBTreeMap;
+import com.cristianpeter.btree.core.BTreeNode;
+
+import lombok.Getter;
+
+/**
+ * BTree map from int keys to long values
+ * Values live in a long array parallel to the keys of each node, so no value is ever boxed
+ * Same as BTree, this class is not thread safe
+ */
+public class IntLongBTreeMap implements IIntLongBTreeMap {
+
+    @Getter
+    private final int order;
+    private final int minKeys;
+    @Getter
+    private final long noEntryValue;
+    private Node root;
+    private int size;
+
+    // descent path reused by every write, path[i] is the node at depth i
+    // and slots[i] the result of the key search in that node
+    private final Node[] path = new Node[BTreeNode.MAX_HEIGHT];
+    private final int[] slots = new int[BTreeNode.MAX_HEIGHT];
+
+    /**
+     * @param order
+     *            maximum keys per node
+     */
+    public IntLongBTreeMap(int order) {
+        this(order, 0L);
+    }
+
+    /**
+     * @param order
+     *            maximum keys per node
+     * @param noEntryValue
+     *            value returned when a key is not present
+     */
+    public IntLongBTreeMap(int order, long noEntryValue) {
+        this.order = order;
+        this.minKeys = (int) Math.ceil((double) (order + 1) / 2 - 1);
+        this.noEntryValue = noEntryValue;
+        this.root = new Node(order, true);
+    }
+
+    @Override
+    public long put(int key, long value) {
+        int depth = descend(key);
+        Node node = path[depth];
+        int slot = slots[depth];
+        if (slot >= 0) {
+            long previous = node.values[slot];
+            node.values[slot] = value;
+            return previous;
+        }
+        insert(depth, -slot - 1, key, value);
+        return noEntryValue;
+    }
+
+    @Override
+    public long get(int key) {
+        return getOrDefault(key, noEntryValue);
+    }
+
+    @Override
+    public long getOrDefault(int key, long defaultValue) {
+        Node node = root;
+        while (true) {
+            int slot = node.find(key);
+            if (slot >= 0) {
+                return node.values[slot];
+            }
+            if (node.isLeaf()) {
+                return defaultValue;
+            }
+            node = node.children[-slot - 1];
+        }
+    }
+
+    @Override
+    public boolean containsKey(int key) {
+        Node node = root;
+        while (true) {
+            int slot = node.find(key);
+            if (slot >= 0) {
+                return true;
+            }
+            if (node.isLeaf()) {
+                return false;
+            }
+            node = node.children[-slot - 1];
+        }
+    }
+
+    @Override
+    public long remove(int key) {
+        int depth = descend(key);
+        int slot = slots[depth];
+        if (slot < 0) {
+            return noEntryValue;
+        }
+        Node node = path[depth];
+        long previous = node.values[slot];
+        if (node.isLeaf()) {
+            node.removeAt(slot);
+        } else {
+            // replace the key with its predecessor, the greatest key of the left subtree
+            slots[depth] = -slot - 1;
+            Node leaf = node.children[slot];
+            while (!leaf.isLeaf()) {
+                path[++depth] = leaf;
+                slots[depth] = -leaf.size - 1;
+                leaf = leaf.children[leaf.size];
+            }
+            path[++depth] = leaf;
+            int last = leaf.size - 1;
+            node.keys[slot] = leaf.keys[last];
+            node.values[slot] = leaf.values[last];
+            leaf.removeAt(last);
+        }
+        size--;
+        rebalance(depth);
+        return previous;
+    }
+
+    @Override
+    public long putIfAbsent(int key, long value) {
+        int depth = descend(key);
+        int slot = slots[depth];
+        if (slot >= 0) {
+            return path[depth].values[slot];
+        }
+        insert(depth, -slot - 1, key, value);
+        return noEntryValue;
+    }
+
+    @Override
+    public long compute(int key, LongBinaryOperator remapping) {
+        int depth = descend(key);
+        Node node = path[depth];
+        int slot = slots[depth];
+        if (slot >= 0) {
+            long value = remapping.applyAsLong(key, node.values[slot]);
+            node.values[slot] = value;
+            return value;
+        }
+        long value = remapping.applyAsLong(key, noEntryValue);
+        insert(depth, -slot - 1, key, value);
+        return value;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Go down from the root until the key is found or a leaf is reached, filling the path
+     * 
+     * @return depth of the last node of the path
+     */
+    private int descend(int key) {
+        Node node = root;
+        int depth = 0;
+        while (true) {
+            int slot = node.find(key);
+            path[depth] = node;
+            slots[depth] = slot;
+            if (slot >= 0 || node.isLeaf()) {
+                return depth;
+            }
+            node = node.children[-slot - 1];
+            depth++;
+        }
+    }
+
+    /**
+     * Add the entry to the leaf at the depth and split the overflowing nodes up to the root
+     */
+    private void insert(int depth, int index, int key, long value) {
+        path[depth].insertAt(index, key, value, null);
+        size++;
+        while (depth >= 0 && path[depth].size > order) {
+            split(depth--);
+        }
+    }
+
+    /**
+     * Move the right half of the node to a new node and elevate the pivot to the father
+     */
+    private void split(int depth) {
+        Node node = path[depth];
+        int pivot = node.size / 2;
+        int pivotKey = node.keys[pivot];
+        long pivotValue = node.values[pivot];
+
+        Node right = new Node(order, node.isLeaf());
+        int moved = node.size - pivot - 1;
+        System.arraycopy(node.keys, pivot + 1, right.keys, 0, moved);
+        System.arraycopy(node.values, pivot + 1, right.values, 0, moved);
+        if (!node.isLeaf()) {
+            System.arraycopy(node.children, pivot + 1, right.children, 0, moved + 1);
+            Arrays.fill(node.children, pivot + 1, node.size + 1, null);
+        }
+        right.size = moved;
+        node.size = pivot;
+
+        if (depth == 0) {
+            Node newRoot = new Node(order, false);
+            newRoot.keys[0] = pivotKey;
+            newRoot.values[0] = pivotValue;
+            newRoot.children[0] = node;
+            newRoot.children[1] = right;
+            newRoot.size = 1;
+            root = newRoot;
+            return;
+        }
+        path[depth - 1].insertAt(-slots[depth - 1] - 1, pivotKey, pivotValue, right);
+    }
+
+    /**
+     * Fix the underflowing nodes of the path, from the depth up to the root
+     */
+    private void rebalance(int depth) {
+        for (; depth > 0 && path[depth].size < minKeys; depth--) {
+            Node node = path[depth];
+            Node parent = path[depth - 1];
+            int childIndex = -slots[depth - 1] - 1;
+            Node left = childIndex > 0 ? parent.children[childIndex - 1] : null;
+            Node right = childIndex < parent.size ? parent.children[childIndex + 1] : null;
+
+            if (left != null && left.size > minKeys) {
+                borrowFromLeft(parent, childIndex - 1, left, node);
+            } else if (right != null && right.size > minKeys) {
+                borrowFromRight(parent, childIndex, node, right);
+            } else if (left != null) {
+                merge(parent, childIndex - 1, left, node);
+            } else {
+                merge(parent, childIndex, node, right);
+            }
+        }
+        if (root.size == 0 && !root.isLeaf()) {
+            root = root.children[0];
+        }
+    }
+
+    /**
+     * The father key goes down to the node and the greatest key of the left sibling goes up
+     */
+    private void borrowFromLeft(Node parent, int separator, Node left, Node node) {
+        System.arraycopy(node.keys, 0, node.keys, 1, node.size);
+        System.arraycopy(node.values, 0, node.values, 1, node.size);
+        if (!node.isLeaf()) {
+            System.arraycopy(node.children, 0, node.children, 1, node.size + 1);
+            node.children[0] = left.children[left.size];
+            left.children[left.size] = null;
+        }
+        node.keys[0] = parent.keys[separator];
+        node.values[0] = parent.values[separator];
+        node.size++;
+
+        int last = left.size - 1;
+        parent.keys[separator] = left.keys[last];
+        parent.values[separator] = left.values[last];
+        left.size--;
+    }
+
+    /**
+     * The father key goes down to the node and the lowest key of the right sibling goes up
+     */
+    private void borrowFromRight(Node parent, int separator, Node node, Node right) {
+        node.keys[node.size] = parent.keys[separator];
+        node.values[node.size] = parent.values[separator];
+        if (!node.isLeaf()) {
+            node.children[node.size + 1] = right.children[0];
+        }
+        node.size++;
+
+        parent.keys[separator] = right.keys[0];
+        parent.values[separator] = right.values[0];
+        System.arraycopy(right.keys, 1, right.keys, 0, right.size - 1);
+        System.arraycopy(right.values, 1, right.values, 0, right.size - 1);
+        if (!right.isLeaf()) {
+            System.arraycopy(right.children, 1, right.children, 0, right.size);
+            right.children[right.size] = null;
+        }
+        right.size--;
+    }
+
+    /**
+     * Join the father key and the right node into the left node, the right node disappear
+     */
+    private void merge(Node parent, int separator, Node left, Node right) {
+        left.keys[left.size] = parent.keys[separator];
+        left.values[left.size] = parent.values[separator];
+        System.arraycopy(right.keys, 0, left.keys, left.size + 1, right.size);
+        System.arraycopy(right.values, 0, left.values, left.size + 1, right.size);
+        if (!left.isLeaf()) {
+            System.arraycopy(right.children, 0, left.children, left.size + 1, right.size + 1);
+        }
+        left.size += right.size + 1;
+        parent.removeAt(separator);
+    }
+
+    private static final class Node {
+        private final int[] keys;
+        private final long[] values;
+        // null for leaves, a node never changes from leaf to inner node
+        private final Node[] children;
+        private int size;
+
+        private Node(int order, boolean leaf) {
+            // overpass maximum by 1 for making split more easy
+            keys = new int[order + 1];
+            values = new long[order + 1];
+            children = leaf ? null : new Node[order + 2];
+        }
+
+        private boolean isLeaf() {
+            return children == null;
+        }
+
+        /**
+         * @return index of the key, or (-(child index) - 1) when the key is not in this node
+         */
+        private int find(int key) {
+            return Arrays.binarySearch(keys, 0, size, key);
+        }
+
+        /**
+         * Add the entry at index, and the right child just after it when it's not null
+         */
+        private void insertAt(int index, int key, long value, Node rightChild) {
+            System.arraycopy(keys, index, keys, index + 1, size - index);
+            System.arraycopy(values, index, values, index + 1, size - index);
+            keys[index] = key;
+            values[index] = value;
+            if (rightChild != null) {
+                System.arraycopy(children, index + 1, children, index + 2, size - index);
+                children[index + 1] = rightChild;
+            }
+            size++;
+        }
+
+        /**
+         * Remove the entry at index, and the child just after it for inner nodes
+         */
+        private void removeAt(int index) {
+            System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+            System.arraycopy(values, index + 1, values, index, size - index - 1);
+            if (children != null) {
+                System.arraycopy(children, index + 2, children, index + 1, size - index - 1);
+                children[size] = null;
+            }
+            size--;
+        }
+    }
+
+}
@@ -0,0 +1,112 @@
+package com.cristianpeter.btree.metrics;
+
+import com.cristianpeter.btree.contracts.IBTreeMetricsListener;
+import com.cristianpeter.btree.enums.BTreeOperation;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Turn what the tree does into JFR events, visible in JDK Mission Control or with the jfr tool
+ * While no recording enables them, each call only checks that the event is disabled, and operations are not timed
+ * Operations are recorded with their duration as a field, because they are reported once finished
+ */
+public class BTreeJfrListener implements IBTreeMetricsListener {
+
+    public static final String SPLIT_EVENT = "com.cristianpeter.btree.Split";
+    public static final String REBALANCE_EVENT = "com.cristianpeter.btree.Rebalance";
+    public static final String OPERATION_EVENT = "com.cristianpeter.btree.Operation";
+
+    private static final EventType OPERATION_TYPE = EventType.getEventType(OperationEvent.class);
+
+    /**
+     * The tree reads the clock only while a recording has the operation event enabled
+     */
+    @Override
+    public boolean timed() {
+        return OPERATION_TYPE.isEnabled();
+    }
+
+    @Override
+    public void split(boolean leaf, boolean root) {
+        SplitEvent event = new SplitEvent();
+        if (event.isEnabled()) {
+            event.leaf = leaf;
+            event.root = root;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void borrow(boolean leaf) {
+        rebalance("BORROW", leaf);
+    }
+
+    @Override
+    public void merge(boolean leaf) {
+        rebalance("MERGE", leaf);
+    }
+
+    @Override
+    public void operation(BTreeOperation operation, long nanos) {
+        OperationEvent event = new OperationEvent();
+        if (event.isEnabled()) {
+            event.operation = operation.name();
+            event.nanos = nanos;
+            event.commit();
+        }
+    }
+
+    private static void rebalance(String kind, boolean leaf) {
+        RebalanceEvent event = new RebalanceEvent();
+        if (event.isEnabled()) {
+            event.kind = kind;
+            event.leaf = leaf;
+            event.commit();
+        }
+    }
+
+    @Name(SPLIT_EVENT)
+    @Label("BTree Split")
+    @Description("A node overflowed and was split in two")
+    @Category("BTree")
+    @StackTrace(false)
+    static final class SplitEvent extends Event {
+        @Label("Leaf")
+        boolean leaf;
+        @Label("Root")
+        @Description("The tree is one level higher")
+        boolean root;
+    }
+
+    @Name(REBALANCE_EVENT)
+    @Label("BTree Rebalance")
+    @Description("An underflowing node borrowed a key from a sibling or was merged with it")
+    @Category("BTree")
+    @StackTrace(false)
+    static final class RebalanceEvent extends Event {
+        @Label("Kind")
+        String kind;
+        @Label("Leaf")
+        boolean leaf;
+    }
+
+    @Name(OPERATION_EVENT)
+    @Label("BTree Operation")
+    @Category("BTree")
+    @StackTrace(false)
+    static final class OperationEvent extends Event {
+        @Label("Operation")
+        String operation;
+        @Label("Duration")
+        @Timespan(Timespan.NANOSECONDS)
+        long nanos;
+    }
+
+}
@@ -0,0 +1,132 @@
+package com.cristianpeter.btree.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import com.cristianpeter.btree.BTree;
+import com.cristianpeter.btree.contracts.IBTreeMetricsListener;
+import com.cristianpeter.btree.enums.BTreeOperation;
+
+import lombok.Getter;
+
+/**
+ * Counters of splits, borrows and merges, and a latency histogram in nanoseconds per operation
+ * Height and fill factor are properties of the whole tree, they are only read when sample is called
+ * One instance can be shared by many trees, counters add up
+ */
+public class BTreeMetrics implements IBTreeMetricsListener {
+
+    private final LongAdder leafSplits = new LongAdder();
+    private final LongAdder innerSplits = new LongAdder();
+    private final LongAdder rootSplits = new LongAdder();
+    private final LongAdder leafBorrows = new LongAdder();
+    private final LongAdder innerBorrows = new LongAdder();
+    private final LongAdder leafMerges = new LongAdder();
+    private final LongAdder innerMerges = new LongAdder();
+    private final Log2Histogram[] latencies = new Log2Histogram[BTreeOperation.values().length];
+
+    // values of the last sample
+    @Getter
+    private volatile int height;
+    @Getter
+    private volatile double fillFactor;
+
+    public BTreeMetrics() {
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = new Log2Histogram();
+        }
+    }
+
+    @Override
+    public void split(boolean leaf, boolean root) {
+        (leaf ? leafSplits : innerSplits).increment();
+        if (root) {
+            rootSplits.increment();
+        }
+    }
+
+    @Override
+    public void borrow(boolean leaf) {
+        (leaf ? leafBorrows : innerBorrows).increment();
+    }
+
+    @Override
+    public void merge(boolean leaf) {
+        (leaf ? leafMerges : innerMerges).increment();
+    }
+
+    @Override
+    public void operation(BTreeOperation operation, long nanos) {
+        latencies[operation.ordinal()].record(nanos);
+    }
+
+    /**
+     * Read the height and the fill factor of the tree, the fill factor visits every node
+     */
+    public void sample(BTree tree) {
+        height = tree.height();
+        fillFactor = tree.fillFactor();
+    }
+
+    public Log2Histogram getLatency(BTreeOperation operation) {
+        return latencies[operation.ordinal()];
+    }
+
+    public long getSplits() {
+        return getLeafSplits() + getInnerSplits();
+    }
+
+    public long getLeafSplits() {
+        return leafSplits.sum();
+    }
+
+    public long getInnerSplits() {
+        return innerSplits.sum();
+    }
+
+    /**
+     * Each root split adds a level to the tree
+     */
+    public long getRootSplits() {
+        return rootSplits.sum();
+    }
+
+    public long getBorrows() {
+        return getLeafBorrows() + getInnerBorrows();
+    }
+
+    public long getLeafBorrows() {
+        return leafBorrows.sum();
+    }
+
+    public long getInnerBorrows() {
+        return innerBorrows.sum();
+    }
+
+    public long getMerges() {
+        return getLeafMerges() + getInnerMerges();
+    }
+
+    public long getLeafMerges() {
+        return leafMerges.sum();
+    }
+
+    public long getInnerMerges() {
+        return innerMerges.sum();
+    }
+
+    public void reset() {
+        leafSplits.reset();
+        innerSplits.reset();
+        rootSplits.reset();
+        leafBorrows.reset();
+        innerBorrows.reset();
+        leafMerges.reset();
+        innerMerges.reset();
+        for (Log2Histogram latency : latencies) {
+            latency.reset();
+        }
+        height = 0;
+        fillFactor = 0;
+    }
+
+}
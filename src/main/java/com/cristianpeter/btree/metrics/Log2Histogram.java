@@ -0,0 +1,101 @@
+package com.cristianpeter.btree.metrics;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of non negative values in power of two buckets, cheap enough to record on every operation
+ * Bucket 0 counts the zeros and bucket i counts the values from 2^(i-1) to 2^i - 1, negative values count as zero
+ * Recording is thread safe, reads taken while other threads record are not a consistent snapshot
+ */
+public class Log2Histogram {
+
+    public static final int BUCKETS = Long.SIZE;
+
+    private final LongAdder[] counts = new LongAdder[BUCKETS];
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    public Log2Histogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = new LongAdder();
+        }
+    }
+
+    public void record(long value) {
+        long positive = Math.max(0, value);
+        counts[bucket(positive)].increment();
+        sum.add(positive);
+        max.accumulate(positive);
+    }
+
+    /**
+     * @return bucket of the value, the number of bits needed to write it
+     */
+    public static int bucket(long value) {
+        return value <= 0 ? 0 : Long.SIZE - Long.numberOfLeadingZeros(value);
+    }
+
+    /**
+     * @return greatest value counted by the bucket
+     */
+    public static long upperBound(int bucket) {
+        // for the last bucket the shift overflows to Long.MIN_VALUE, minus one is Long.MAX_VALUE
+        return bucket == 0 ? 0 : (1L << bucket) - 1;
+    }
+
+    public long getCount(int bucket) {
+        return counts[bucket].sum();
+    }
+
+    public long getCount() {
+        long count = 0;
+        for (LongAdder bucket : counts) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    public long getSum() {
+        return sum.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        long count = getCount();
+        return count == 0 ? 0 : (double) getSum() / count;
+    }
+
+    /**
+     * @param quantile
+     *            between 0 and 1, 0.99 for the 99th percentile
+     * @return upper bound of the bucket of the quantile, at most twice the real value, 0 when nothing was recorded
+     */
+    public long getQuantile(double quantile) {
+        long count = getCount();
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i].sum();
+            if (seen >= rank) {
+                return Math.min(upperBound(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    public void reset() {
+        for (LongAdder bucket : counts) {
+            bucket.reset();
+        }
+        sum.reset();
+        max.reset();
+    }
+
+}
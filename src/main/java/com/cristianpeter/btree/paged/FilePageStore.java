@@ -0,0 +1,421 @@
+package com.cristianpeter.btree.paged;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import lombok.Getter;
+
+/**
+ * Pages in a file, read through a buffer pool of fixed size with CLOCK eviction
+ * <p>
+ * Page 0 is the header with the format, the page size, the page count, the free list and the meta slots, so
+ * opening a file only reads the header and the tree reads its root page on the first operation.
+ * Every page used by an operation stays pinned in its frame until the operation ends, the budget must keep
+ * enough frames for the pages of one operation, about three per level of the tree.
+ * Changes reach the file when frames are evicted, on flush and on close. A file is only consistent after a
+ * flush, durability across crashes is the job of a write-ahead log.
+ * Same as BTree, this class is not thread safe
+ */
+public class FilePageStore implements PageStore {
+
+    public static final int DEFAULT_PAGE_SIZE = 4096;
+    public static final long DEFAULT_MEMORY_BUDGET = 64L << 20;
+    private static final int MIN_FRAMES = 16;
+
+    private static final int MAGIC = 0x42545245;
+    private static final int FORMAT_VERSION = 1;
+    // header ints: magic, format version, page size, page count, free list head, meta slots
+    private static final int HEADER_BYTES = (5 + META_SLOTS) * Integer.BYTES;
+
+    private final FileChannel channel;
+    @Getter
+    private final int pageSize;
+    @Getter
+    private int pageCount;
+    private int freeHead = NO_PAGE;
+    private final int[] meta = new int[META_SLOTS];
+
+    // frames
+    @Getter
+    private final int frames;
+    private final ByteBuffer pool;
+    private final ByteBuffer[] frameBuffers;
+    private final int[] framePages;
+    private final boolean[] dirty;
+    private final boolean[] referenced;
+    private final boolean[] pinned;
+    private final int[] pinnedFrames;
+    private int pinnedCount;
+    private int hand;
+
+    // page to frame table, open addressing with linear probing, keys are page + 1 and 0 is empty
+    private final int[] tableKeys;
+    private final int[] tableFrames;
+
+    // last page used, most accesses of an operation hit the same page
+    private int lastPage = NO_PAGE;
+    private int lastFrame;
+
+    @Getter
+    private long reads;
+    @Getter
+    private long writes;
+
+    /**
+     * Open the file, or create it with the default page size
+     * 
+     * @param memoryBudget
+     *            bytes for the buffer pool
+     */
+    public FilePageStore(Path file, long memoryBudget) throws IOException {
+        this(file, existingPageSize(file), memoryBudget);
+    }
+
+    /**
+     * Open or create the file
+     * 
+     * @param pageSize
+     *            bytes per page, it must be the same as the one of the file if it already exists
+     * @param memoryBudget
+     *            bytes for the buffer pool
+     */
+    public FilePageStore(Path file, int pageSize, long memoryBudget) throws IOException {
+        if (pageSize < HEADER_BYTES || pageSize % Integer.BYTES != 0) {
+            throw new IllegalArgumentException(
+                    "Page size must be a multiple of 4 and at least " + HEADER_BYTES + ": " + pageSize);
+        }
+        long frameCount = memoryBudget / pageSize;
+        if (frameCount < MIN_FRAMES || frameCount > Integer.MAX_VALUE / pageSize) {
+            throw new IllegalArgumentException("Memory budget must hold between " + MIN_FRAMES + " and "
+                    + Integer.MAX_VALUE / pageSize + " pages of " + pageSize + " bytes: " + memoryBudget);
+        }
+        this.pageSize = pageSize;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            if (channel.size() == 0) {
+                pageCount = 1;
+                writeHeader();
+            } else {
+                readHeader();
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+
+        frames = (int) frameCount;
+        pool = ByteBuffer.allocateDirect(frames * pageSize);
+        frameBuffers = new ByteBuffer[frames];
+        for (int i = 0; i < frames; i++) {
+            frameBuffers[i] = pool.slice(i * pageSize, pageSize);
+        }
+        framePages = new int[frames];
+        Arrays.fill(framePages, NO_PAGE);
+        dirty = new boolean[frames];
+        referenced = new boolean[frames];
+        pinned = new boolean[frames];
+        pinnedFrames = new int[frames];
+        int tableSize = Integer.highestOneBit(frames * 2 - 1) << 1;
+        tableKeys = new int[tableSize];
+        tableFrames = new int[tableSize];
+    }
+
+    @Override
+    public int allocate() {
+        if (freeHead != NO_PAGE) {
+            int page = freeHead;
+            freeHead = getInt(page, 0);
+            return page;
+        }
+        // a page after the end of the file has nothing to read
+        int page = pageCount++;
+        int frame = victim();
+        assign(page, frame);
+        frameBuffers[frame].clear();
+        use(frame, true);
+        return page;
+    }
+
+    @Override
+    public void free(int page) {
+        putInt(page, 0, freeHead);
+        freeHead = page;
+    }
+
+    @Override
+    public int getInt(int page, int index) {
+        return pool.getInt(frame(page, false) * pageSize + index * Integer.BYTES);
+    }
+
+    @Override
+    public void putInt(int page, int index, int value) {
+        pool.putInt(frame(page, true) * pageSize + index * Integer.BYTES, value);
+    }
+
+    @Override
+    public void copyInts(int sourcePage, int sourceIndex, int targetPage, int targetIndex, int count) {
+        if (count <= 0) {
+            return;
+        }
+        // both frames stay pinned until the end of the operation
+        int source = frame(sourcePage, false);
+        int target = frame(targetPage, true);
+        pool.put(target * pageSize + targetIndex * Integer.BYTES, pool, source * pageSize + sourceIndex * Integer.BYTES,
+                count * Integer.BYTES);
+    }
+
+    @Override
+    public int getMeta(int slot) {
+        return meta[slot];
+    }
+
+    @Override
+    public void putMeta(int slot, int value) {
+        meta[slot] = value;
+    }
+
+    @Override
+    public void endOperation() {
+        for (int i = 0; i < pinnedCount; i++) {
+            pinned[pinnedFrames[i]] = false;
+        }
+        pinnedCount = 0;
+    }
+
+    /**
+     * Write the dirty pages and the header, and force them to the device
+     */
+    public void flush() {
+        try {
+            for (int frame = 0; frame < frames; frame++) {
+                if (dirty[frame]) {
+                    write(frame);
+                }
+            }
+            writeHeader();
+            channel.force(true);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            flush();
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return frame holding the page, reading it if it is not in the pool
+     */
+    private int frame(int page, boolean write) {
+        int frame;
+        if (page == lastPage) {
+            frame = lastFrame;
+        } else {
+            frame = lookup(page);
+            if (frame < 0) {
+                frame = victim();
+                assign(page, frame);
+                read(frame);
+            }
+            lastPage = page;
+            lastFrame = frame;
+        }
+        use(frame, write);
+        return frame;
+    }
+
+    private void use(int frame, boolean write) {
+        if (!pinned[frame]) {
+            pinned[frame] = true;
+            pinnedFrames[pinnedCount++] = frame;
+        }
+        referenced[frame] = true;
+        dirty[frame] |= write;
+    }
+
+    /**
+     * CLOCK: the hand clears the reference bit of used frames and takes the first frame without it
+     * Pinned frames are skipped, free frames are taken at once
+     */
+    private int victim() {
+        for (int step = 0; step <= 2 * frames; step++) {
+            int frame = hand;
+            hand = hand + 1 == frames ? 0 : hand + 1;
+            if (framePages[frame] == NO_PAGE) {
+                return frame;
+            }
+            if (pinned[frame]) {
+                continue;
+            }
+            if (referenced[frame]) {
+                referenced[frame] = false;
+                continue;
+            }
+            evict(frame);
+            return frame;
+        }
+        throw new IllegalStateException("All the " + frames + " frames are pinned by one operation, raise the memory budget");
+    }
+
+    private void evict(int frame) {
+        try {
+            if (dirty[frame]) {
+                write(frame);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        remove(framePages[frame]);
+        if (frame == lastFrame) {
+            lastPage = NO_PAGE;
+        }
+        framePages[frame] = NO_PAGE;
+    }
+
+    private void assign(int page, int frame) {
+        framePages[frame] = page;
+        dirty[frame] = false;
+        insert(page, frame);
+    }
+
+    private void read(int frame) {
+        ByteBuffer buffer = frameBuffers[frame].clear();
+        long position = (long) framePages[frame] * pageSize;
+        try {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0) {
+                    // never written, the rest of the page is empty
+                    while (buffer.hasRemaining()) {
+                        buffer.put((byte) 0);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        reads++;
+    }
+
+    private void write(int frame) throws IOException {
+        ByteBuffer buffer = frameBuffers[frame].clear();
+        long position = (long) framePages[frame] * pageSize;
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position());
+        }
+        dirty[frame] = false;
+        writes++;
+    }
+
+    private void writeHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(pageSize).putInt(pageCount).putInt(freeHead);
+        for (int value : meta) {
+            header.putInt(value);
+        }
+        header.flip();
+        while (header.hasRemaining()) {
+            channel.write(header, header.position());
+        }
+    }
+
+    private void readHeader() throws IOException {
+        ByteBuffer header = readHeader(channel);
+        if (header.getInt() != MAGIC || header.getInt() != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Not a page file of this format");
+        }
+        int storedPageSize = header.getInt();
+        if (storedPageSize != pageSize) {
+            throw new IllegalArgumentException("The file has pages of " + storedPageSize + " bytes, not " + pageSize);
+        }
+        pageCount = header.getInt();
+        freeHead = header.getInt();
+        for (int i = 0; i < META_SLOTS; i++) {
+            meta[i] = header.getInt();
+        }
+    }
+
+    private static ByteBuffer readHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        while (header.hasRemaining()) {
+            if (channel.read(header, header.position()) < 0) {
+                throw new IllegalArgumentException("Page file header is truncated");
+            }
+        }
+        return header.flip();
+    }
+
+    private static int existingPageSize(Path file) throws IOException {
+        if (!Files.exists(file) || Files.size(file) == 0) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = readHeader(channel);
+            // skip magic and format version, they are checked when the file is opened
+            return header.getInt(2 * Integer.BYTES);
+        }
+    }
+
+    private static int hash(int page) {
+        int hash = page * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    private int lookup(int page) {
+        int mask = tableKeys.length - 1;
+        for (int i = hash(page) & mask;; i = (i + 1) & mask) {
+            int key = tableKeys[i];
+            if (key == 0) {
+                return -1;
+            }
+            if (key == page + 1) {
+                return tableFrames[i];
+            }
+        }
+    }
+
+    private void insert(int page, int frame) {
+        int mask = tableKeys.length - 1;
+        int i = hash(page) & mask;
+        while (tableKeys[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        tableKeys[i] = page + 1;
+        tableFrames[i] = frame;
+    }
+
+    /**
+     * Remove the page and shift back the next entries of its probe sequence, so lookups never stop too early
+     */
+    private void remove(int page) {
+        int mask = tableKeys.length - 1;
+        int i = hash(page) & mask;
+        while (tableKeys[i] != page + 1) {
+            i = (i + 1) & mask;
+        }
+        tableKeys[i] = 0;
+        for (int j = (i + 1) & mask; tableKeys[j] != 0; j = (j + 1) & mask) {
+            int home = hash(tableKeys[j] - 1) & mask;
+            // the entry can stay if its home is between the hole and it
+            boolean reachable = i < j ? home > i && home <= j : home > i || home <= j;
+            if (!reachable) {
+                tableKeys[i] = tableKeys[j];
+                tableFrames[i] = tableFrames[j];
+                tableKeys[j] = 0;
+                i = j;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,125 @@
+package com.cristianpeter.btree.paged;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import lombok.Getter;
+
+/**
+ * Pages in direct memory, outside the java heap
+ * Pages are packed in big direct buffers, so the heap only holds one buffer object per chunk of pages
+ * and the garbage collector never walks the nodes
+ */
+public class OffHeapPageStore implements PageStore {
+
+    public static final int DEFAULT_PAGE_SIZE = 4096;
+    // bytes of each direct buffer
+    private static final int CHUNK_SIZE = 1 << 26;
+
+    @Getter
+    private final int pageSize;
+    private final int pageShift;
+    private final int chunkShift;
+    private final int pageMask;
+    private ByteBuffer[] chunks = new ByteBuffer[1];
+    private final int[] meta = new int[META_SLOTS];
+    @Getter
+    private int pageCount;
+    // freed pages are linked through their first int
+    private int freeHead = NO_PAGE;
+
+    public OffHeapPageStore() {
+        this(DEFAULT_PAGE_SIZE);
+    }
+
+    /**
+     * @param pageSize
+     *            bytes per page, a power of two between 64 and 64MB
+     */
+    public OffHeapPageStore(int pageSize) {
+        if (Integer.bitCount(pageSize) != 1 || pageSize < 64 || pageSize > CHUNK_SIZE) {
+            throw new IllegalArgumentException("Page size must be a power of two between 64 and " + CHUNK_SIZE + ": " + pageSize);
+        }
+        this.pageSize = pageSize;
+        this.pageShift = Integer.numberOfTrailingZeros(pageSize);
+        this.chunkShift = Integer.numberOfTrailingZeros(CHUNK_SIZE) - pageShift;
+        this.pageMask = (1 << chunkShift) - 1;
+    }
+
+    @Override
+    public int allocate() {
+        if (freeHead != NO_PAGE) {
+            int page = freeHead;
+            freeHead = getInt(page, 0);
+            return page;
+        }
+        int page = pageCount++;
+        int chunk = page >>> chunkShift;
+        if (chunk == chunks.length) {
+            chunks = Arrays.copyOf(chunks, chunks.length * 2);
+        }
+        if (chunks[chunk] == null) {
+            chunks[chunk] = ByteBuffer.allocateDirect(CHUNK_SIZE).order(ByteOrder.nativeOrder());
+        }
+        return page;
+    }
+
+    @Override
+    public void free(int page) {
+        putInt(page, 0, freeHead);
+        freeHead = page;
+    }
+
+    @Override
+    public int getInt(int page, int index) {
+        return chunks[page >>> chunkShift].getInt(offset(page, index));
+    }
+
+    @Override
+    public void putInt(int page, int index, int value) {
+        chunks[page >>> chunkShift].putInt(offset(page, index), value);
+    }
+
+    @Override
+    public void copyInts(int sourcePage, int sourceIndex, int targetPage, int targetIndex, int count) {
+        if (count <= 0) {
+            return;
+        }
+        // a bulk put behaves as a memmove, also inside the same buffer
+        chunks[targetPage >>> chunkShift].put(offset(targetPage, targetIndex), chunks[sourcePage >>> chunkShift],
+                offset(sourcePage, sourceIndex), count * Integer.BYTES);
+    }
+
+    @Override
+    public int getMeta(int slot) {
+        return meta[slot];
+    }
+
+    @Override
+    public void putMeta(int slot, int value) {
+        meta[slot] = value;
+    }
+
+    /**
+     * @return bytes reserved outside the heap
+     */
+    public long getOffHeapBytes() {
+        return Arrays.stream(chunks).filter(chunk -> chunk != null).count() * CHUNK_SIZE;
+    }
+
+    /**
+     * Direct buffers can not be released explicitly, the memory goes back when they are collected
+     */
+    @Override
+    public void close() {
+        chunks = new ByteBuffer[0];
+        pageCount = 0;
+        freeHead = NO_PAGE;
+    }
+
+    private int offset(int page, int index) {
+        return ((page & pageMask) << pageShift) + index * Integer.BYTES;
+    }
+
+}
@@ -0,0 +1,74 @@
+package com.cristianpeter.btree.paged;
+
+import java.io.Closeable;
+
+/**
+ * Fixed size pages of ints addressed by page id, the storage of a PagedBTree
+ * Pages are read and written in place, the store decides where they live
+ */
+public interface PageStore extends Closeable {
+
+    /**
+     * Reference to no page, for absent children and leaf links
+     */
+    int NO_PAGE = -1;
+
+    /**
+     * Number of meta slots, small ints the tree keeps next to its pages
+     */
+    int META_SLOTS = 8;
+
+    int getPageSize();
+
+    /**
+     * @return number of ints in a page
+     */
+    default int getPageInts() {
+        return getPageSize() / Integer.BYTES;
+    }
+
+    /**
+     * @return id of a new page, its content is undefined
+     */
+    int allocate();
+
+    /**
+     * Give back a page, its id can be returned again by allocate
+     */
+    void free(int page);
+
+    int getInt(int page, int index);
+
+    void putInt(int page, int index, int value);
+
+    /**
+     * Copy ints between pages or inside the same page, overlapping ranges are allowed
+     */
+    default void copyInts(int sourcePage, int sourceIndex, int targetPage, int targetIndex, int count) {
+        if (sourcePage == targetPage && sourceIndex < targetIndex) {
+            for (int i = count - 1; i >= 0; i--) {
+                putInt(targetPage, targetIndex + i, getInt(sourcePage, sourceIndex + i));
+            }
+        } else {
+            for (int i = 0; i < count; i++) {
+                putInt(targetPage, targetIndex + i, getInt(sourcePage, sourceIndex + i));
+            }
+        }
+    }
+
+    int getMeta(int slot);
+
+    void putMeta(int slot, int value);
+
+    /**
+     * Called by the tree when an operation ends, stores can release the pages used by it
+     */
+    default void endOperation() {
+    }
+
+    /**
+     * Release the pages, the store can not be used after closing it
+     */
+    @Override
+    void close();
+}
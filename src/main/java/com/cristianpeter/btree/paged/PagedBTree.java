@@ -0,0 +1,531 @@
+package com.cristianpeter.btree.paged;
+
+import static com.cristianpeter.btree.paged.PageStore.NO_PAGE;
+
+import java.util.NoSuchElementException;
+
+import com.cristianpeter.btree.contracts.IBTree;
+import com.cristianpeter.btree.contracts.IBTreeCursor;
+import com.cristianpeter.btree.core.BTreeNode;
+
+import lombok.Getter;
+
+/**
+ * B+tree of int keys whose nodes are pages of a PageStore, children and leaf links are page ids
+ * <p>
+ * Page layout in ints: flags, size, next leaf, previous leaf, then order + 1 keys and for inner nodes order + 2
+ * children. Nodes overpass the maximum by one before splitting, as BTreeNode does.
+ * The root page, the size and the order are kept in the meta slots of the store, so a tree can be opened again
+ * from a store that keeps its pages.
+ * Same as BTree, this class is not thread safe
+ */
+public class PagedBTree implements IBTree, AutoCloseable {
+
+    // meta slots
+    private static final int META_ORDER = 0;
+    private static final int META_ROOT = 1;
+    private static final int META_SIZE = 2;
+
+    // page header
+    private static final int FLAGS = 0;
+    private static final int SIZE = 1;
+    private static final int NEXT = 2;
+    private static final int PREVIOUS = 3;
+    private static final int KEYS = 4;
+    private static final int LEAF = 1;
+
+    @Getter
+    private final PageStore store;
+    @Getter
+    private final int order;
+    private final int minKeys;
+    // index of the first child in a page
+    private final int childrenIndex;
+    private int root;
+    private int size;
+
+    // descent path reused by every write, path[i] is the page at depth i
+    // and slots[i] the child index taken in that page, or the key search result in the leaf
+    private final int[] path = new int[BTreeNode.MAX_HEIGHT];
+    private final int[] slots = new int[BTreeNode.MAX_HEIGHT];
+
+    /**
+     * Open the tree of the store, or create it with the biggest order that fits in a page if the store is empty
+     */
+    public PagedBTree(PageStore store) {
+        this(store, maxOrder(store.getPageSize()));
+    }
+
+    /**
+     * Open the tree of the store, or create it with the order if the store is empty
+     * 
+     * @param order
+     *            maximum keys per node, at least 3 and small enough to fit in a page
+     */
+    public PagedBTree(PageStore store, int order) {
+        this.store = store;
+        int stored = store.getMeta(META_ORDER);
+        if (stored != 0) {
+            order = stored;
+        } else if (order < 3 || order > maxOrder(store.getPageSize())) {
+            throw new IllegalArgumentException("Order must be between 3 and " + maxOrder(store.getPageSize()) + " for pages of "
+                    + store.getPageSize() + " bytes: " + order);
+        }
+        this.order = order;
+        this.minKeys = (int) Math.ceil((double) (order + 1) / 2 - 1);
+        this.childrenIndex = KEYS + order + 1;
+        if (stored != 0) {
+            root = store.getMeta(META_ROOT);
+            size = store.getMeta(META_SIZE);
+        } else {
+            root = newPage(true);
+            store.putMeta(META_ORDER, order);
+            store.putMeta(META_ROOT, root);
+            store.putMeta(META_SIZE, 0);
+            store.endOperation();
+        }
+    }
+
+    /**
+     * @return biggest order whose nodes fit in a page of that size
+     */
+    public static int maxOrder(int pageSize) {
+        return (pageSize / Integer.BYTES - KEYS - 3) / 2;
+    }
+
+    @Override
+    public boolean add(int key) {
+        try {
+            int depth = descend(key);
+            int slot = slots[depth];
+            if (slot >= 0) {
+                return false;
+            }
+            insertAt(path[depth], -slot - 1, key, NO_PAGE);
+            setSize(size + 1);
+            while (depth >= 0 && size(path[depth]) > order) {
+                split(depth--);
+            }
+            return true;
+        } finally {
+            store.endOperation();
+        }
+    }
+
+    @Override
+    public boolean delete(int key) {
+        try {
+            int depth = descend(key);
+            int slot = slots[depth];
+            if (slot < 0) {
+                return false;
+            }
+            removeAt(path[depth], slot);
+            setSize(size - 1);
+            rebalance(depth);
+            return true;
+        } finally {
+            store.endOperation();
+        }
+    }
+
+    @Override
+    public boolean contains(int key) {
+        try {
+            return find(leaf(key), key) >= 0;
+        } finally {
+            store.endOperation();
+        }
+    }
+
+    @Override
+    public IBTreeCursor cursor() {
+        return new Cursor();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public void close() {
+        store.close();
+    }
+
+    private void setSize(int newSize) {
+        size = newSize;
+        store.putMeta(META_SIZE, newSize);
+    }
+
+    private void setRoot(int page) {
+        root = page;
+        store.putMeta(META_ROOT, page);
+    }
+
+    private int newPage(boolean leaf) {
+        int page = store.allocate();
+        store.putInt(page, FLAGS, leaf ? LEAF : 0);
+        store.putInt(page, SIZE, 0);
+        store.putInt(page, NEXT, NO_PAGE);
+        store.putInt(page, PREVIOUS, NO_PAGE);
+        return page;
+    }
+
+    private boolean isLeaf(int page) {
+        return store.getInt(page, FLAGS) == LEAF;
+    }
+
+    private int size(int page) {
+        return store.getInt(page, SIZE);
+    }
+
+    private int key(int page, int index) {
+        return store.getInt(page, KEYS + index);
+    }
+
+    private int child(int page, int index) {
+        return store.getInt(page, childrenIndex + index);
+    }
+
+    /**
+     * @return index of the key, or (-(insertion index) - 1) when the key is not in the page
+     */
+    private int find(int page, int key) {
+        int low = 0;
+        int high = size(page) - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int current = key(page, middle);
+            if (current < key) {
+                low = middle + 1;
+            } else if (current > key) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -low - 1;
+    }
+
+    /**
+     * @return index of the child that can contain the key, the one after the separators lower or equal than it
+     */
+    private int route(int page, int key) {
+        int index = find(page, key);
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+
+    private int leaf(int key) {
+        int page = root;
+        while (!isLeaf(page)) {
+            page = child(page, route(page, key));
+        }
+        return page;
+    }
+
+    private int lastLeaf() {
+        int page = root;
+        while (!isLeaf(page)) {
+            page = child(page, size(page));
+        }
+        return page;
+    }
+
+    /**
+     * Go down from the root to the leaf of the key, filling the path
+     * 
+     * @return depth of the leaf, its slot is the result of the key search in the leaf
+     */
+    private int descend(int key) {
+        int page = root;
+        int depth = 0;
+        while (!isLeaf(page)) {
+            int child = route(page, key);
+            path[depth] = page;
+            slots[depth++] = child;
+            page = child(page, child);
+        }
+        path[depth] = page;
+        slots[depth] = find(page, key);
+        return depth;
+    }
+
+    /**
+     * Add the key at index, and for inner nodes the right child just after it
+     */
+    private void insertAt(int page, int index, int key, int rightChild) {
+        int size = size(page);
+        store.copyInts(page, KEYS + index, page, KEYS + index + 1, size - index);
+        store.putInt(page, KEYS + index, key);
+        if (rightChild != NO_PAGE) {
+            store.copyInts(page, childrenIndex + index + 1, page, childrenIndex + index + 2, size - index);
+            store.putInt(page, childrenIndex + index + 1, rightChild);
+        }
+        store.putInt(page, SIZE, size + 1);
+    }
+
+    /**
+     * Remove the key at index, and for inner nodes the child just after it
+     */
+    private void removeAt(int page, int index) {
+        int size = size(page);
+        store.copyInts(page, KEYS + index + 1, page, KEYS + index, size - index - 1);
+        if (!isLeaf(page)) {
+            store.copyInts(page, childrenIndex + index + 2, page, childrenIndex + index + 1, size - index - 1);
+        }
+        store.putInt(page, SIZE, size - 1);
+    }
+
+    /**
+     * Move the right half of the page to a new page
+     * A leaf copies its first right key to the father, an inner node moves its pivot to the father
+     */
+    private void split(int depth) {
+        int page = path[depth];
+        int size = size(page);
+        boolean leaf = isLeaf(page);
+        int right = newPage(leaf);
+        int separator;
+        if (leaf) {
+            int pivot = (size + 1) / 2;
+            int moved = size - pivot;
+            store.copyInts(page, KEYS + pivot, right, KEYS, moved);
+            store.putInt(right, SIZE, moved);
+            store.putInt(page, SIZE, pivot);
+            separator = key(right, 0);
+            // link the new leaf after the page
+            int next = store.getInt(page, NEXT);
+            store.putInt(right, NEXT, next);
+            store.putInt(right, PREVIOUS, page);
+            if (next != NO_PAGE) {
+                store.putInt(next, PREVIOUS, right);
+            }
+            store.putInt(page, NEXT, right);
+        } else {
+            int pivot = size / 2;
+            int moved = size - pivot - 1;
+            separator = key(page, pivot);
+            store.copyInts(page, KEYS + pivot + 1, right, KEYS, moved);
+            store.copyInts(page, childrenIndex + pivot + 1, right, childrenIndex, moved + 1);
+            store.putInt(right, SIZE, moved);
+            store.putInt(page, SIZE, pivot);
+        }
+
+        if (depth == 0) {
+            int newRoot = newPage(false);
+            store.putInt(newRoot, KEYS, separator);
+            store.putInt(newRoot, childrenIndex, page);
+            store.putInt(newRoot, childrenIndex + 1, right);
+            store.putInt(newRoot, SIZE, 1);
+            setRoot(newRoot);
+            return;
+        }
+        insertAt(path[depth - 1], slots[depth - 1], separator, right);
+    }
+
+    /**
+     * Fix the underflowing pages of the path, from the depth up to the root
+     */
+    private void rebalance(int depth) {
+        for (; depth > 0 && size(path[depth]) < minKeys; depth--) {
+            int page = path[depth];
+            int parent = path[depth - 1];
+            int childIndex = slots[depth - 1];
+            int parentSize = size(parent);
+            int left = childIndex > 0 ? child(parent, childIndex - 1) : NO_PAGE;
+            int right = childIndex < parentSize ? child(parent, childIndex + 1) : NO_PAGE;
+
+            if (left != NO_PAGE && size(left) > minKeys) {
+                borrowFromLeft(parent, childIndex - 1, left, page);
+            } else if (right != NO_PAGE && size(right) > minKeys) {
+                borrowFromRight(parent, childIndex, page, right);
+            } else if (left != NO_PAGE) {
+                merge(parent, childIndex - 1, left, page);
+            } else {
+                merge(parent, childIndex, page, right);
+            }
+        }
+        if (size(root) == 0 && !isLeaf(root)) {
+            int oldRoot = root;
+            setRoot(child(root, 0));
+            store.free(oldRoot);
+        }
+    }
+
+    /**
+     * The greatest key of the left sibling goes to the page
+     * For leaves it becomes the new separator, for inner nodes it rotates through the father
+     */
+    private void borrowFromLeft(int parent, int separator, int left, int page) {
+        int size = size(page);
+        int leftSize = size(left);
+        store.copyInts(page, KEYS, page, KEYS + 1, size);
+        if (isLeaf(page)) {
+            store.putInt(page, KEYS, key(left, leftSize - 1));
+            store.putInt(parent, KEYS + separator, key(page, 0));
+        } else {
+            store.copyInts(page, childrenIndex, page, childrenIndex + 1, size + 1);
+            store.putInt(page, childrenIndex, child(left, leftSize));
+            store.putInt(page, KEYS, key(parent, separator));
+            store.putInt(parent, KEYS + separator, key(left, leftSize - 1));
+        }
+        store.putInt(page, SIZE, size + 1);
+        store.putInt(left, SIZE, leftSize - 1);
+    }
+
+    /**
+     * The lowest key of the right sibling goes to the page
+     * For leaves the next key of the sibling becomes the separator, for inner nodes it rotates through the father
+     */
+    private void borrowFromRight(int parent, int separator, int page, int right) {
+        int size = size(page);
+        int rightSize = size(right);
+        if (isLeaf(page)) {
+            store.putInt(page, KEYS + size, key(right, 0));
+            store.putInt(parent, KEYS + separator, key(right, 1));
+        } else {
+            store.putInt(page, KEYS + size, key(parent, separator));
+            store.putInt(page, childrenIndex + size + 1, child(right, 0));
+            store.putInt(parent, KEYS + separator, key(right, 0));
+            store.copyInts(right, childrenIndex + 1, right, childrenIndex, rightSize);
+        }
+        store.copyInts(right, KEYS + 1, right, KEYS, rightSize - 1);
+        store.putInt(page, SIZE, size + 1);
+        store.putInt(right, SIZE, rightSize - 1);
+    }
+
+    /**
+     * Join the right page into the left page and free it
+     * Inner nodes also take the father key, leaves drop it and unlink the right leaf
+     */
+    private void merge(int parent, int separator, int left, int right) {
+        int leftSize = size(left);
+        int rightSize = size(right);
+        if (isLeaf(left)) {
+            store.copyInts(right, KEYS, left, KEYS + leftSize, rightSize);
+            store.putInt(left, SIZE, leftSize + rightSize);
+            int next = store.getInt(right, NEXT);
+            store.putInt(left, NEXT, next);
+            if (next != NO_PAGE) {
+                store.putInt(next, PREVIOUS, left);
+            }
+        } else {
+            store.putInt(left, KEYS + leftSize, key(parent, separator));
+            store.copyInts(right, KEYS, left, KEYS + leftSize + 1, rightSize);
+            store.copyInts(right, childrenIndex, left, childrenIndex + leftSize + 1, rightSize + 1);
+            store.putInt(left, SIZE, leftSize + rightSize + 1);
+        }
+        removeAt(parent, separator);
+        store.free(right);
+    }
+
+    /**
+     * Cursor over the leaf links, the gap is before the key at index of the leaf
+     * The tree must not be modified while the cursor is used
+     */
+    private final class Cursor implements IBTreeCursor {
+
+        private int leaf;
+        private int index;
+
+        private Cursor() {
+            seekFirst();
+        }
+
+        @Override
+        public void seekFirst() {
+            try {
+                leaf = leaf(Integer.MIN_VALUE);
+                index = 0;
+            } finally {
+                store.endOperation();
+            }
+        }
+
+        @Override
+        public void seekLast() {
+            try {
+                leaf = lastLeaf();
+                index = size(leaf);
+            } finally {
+                store.endOperation();
+            }
+        }
+
+        @Override
+        public void seek(int key) {
+            try {
+                leaf = leaf(key);
+                int found = find(leaf, key);
+                index = found >= 0 ? found : -found - 1;
+            } finally {
+                store.endOperation();
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            try {
+                return forward();
+            } finally {
+                store.endOperation();
+            }
+        }
+
+        @Override
+        public int nextInt() {
+            try {
+                if (!forward()) {
+                    throw new NoSuchElementException();
+                }
+                return key(leaf, index++);
+            } finally {
+                store.endOperation();
+            }
+        }
+
+        @Override
+        public boolean hasPrevious() {
+            try {
+                return backward();
+            } finally {
+                store.endOperation();
+            }
+        }
+
+        @Override
+        public int previous() {
+            try {
+                if (!backward()) {
+                    throw new NoSuchElementException();
+                }
+                return key(leaf, --index);
+            } finally {
+                store.endOperation();
+            }
+        }
+
+        private boolean forward() {
+            int next;
+            while (index >= size(leaf) && (next = store.getInt(leaf, NEXT)) != NO_PAGE) {
+                leaf = next;
+                index = 0;
+            }
+            return index < size(leaf);
+        }
+
+        private boolean backward() {
+            int previous;
+            while (index == 0 && (previous = store.getInt(leaf, PREVIOUS)) != NO_PAGE) {
+                leaf = previous;
+                index = size(leaf);
+            }
+            return index > 0;
+        }
+    }
+
+}
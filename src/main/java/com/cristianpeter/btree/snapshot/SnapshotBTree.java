@@ -0,0 +1,213 @@
+package com.cristianpeter.btree.snapshot;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.NoSuchElementException;
+
+import com.cristianpeter.btree.contracts.IBTree;
+import com.cristianpeter.btree.contracts.IBTreeCursor;
+
+import lombok.Getter;
+
+/**
+ * Read only tree over a memory mapped snapshot file, see SnapshotFormat and SnapshotWriter
+ * Opening maps the file and reads the header, lookups and scans read the mapped keys in place.
+ * The file is mapped in chunks because a single mapping can not pass 2GB.
+ * It is immutable, so it can be shared by any number of threads.
+ */
+public class SnapshotBTree implements IBTree, AutoCloseable {
+
+    private static final int CHUNK_SHIFT = 30;
+    private static final long CHUNK_MASK = (1L << CHUNK_SHIFT) - 1;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer[] chunks;
+    @Getter
+    private final int fanout;
+    private final int levels;
+    private final long[] offsets;
+    private final long[] lengths;
+
+    private SnapshotBTree(FileChannel channel) throws IOException {
+        this.channel = channel;
+        long fileSize = channel.size();
+        if (fileSize < SnapshotFormat.HEADER_BYTES) {
+            throw new IllegalArgumentException("Snapshot file is truncated");
+        }
+        int chunkCount = (int) ((fileSize + CHUNK_MASK) >>> CHUNK_SHIFT);
+        chunks = new MappedByteBuffer[chunkCount];
+        for (int i = 0; i < chunkCount; i++) {
+            long start = (long) i << CHUNK_SHIFT;
+            chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(fileSize - start, 1L << CHUNK_SHIFT));
+            chunks[i].order(SnapshotFormat.ORDER);
+        }
+
+        ByteBuffer header = chunks[0];
+        if (header.getInt(0) != SnapshotFormat.MAGIC || header.getInt(4) != SnapshotFormat.FORMAT_VERSION) {
+            throw new IllegalArgumentException("Not a snapshot file of this format");
+        }
+        fanout = header.getInt(8);
+        levels = header.getInt(12);
+        offsets = new long[levels];
+        lengths = new long[levels];
+        for (int i = 0; i < levels; i++) {
+            offsets[i] = header.getLong(24 + i * 16);
+            lengths[i] = header.getLong(32 + i * 16);
+            if (offsets[i] + lengths[i] * Integer.BYTES > fileSize) {
+                throw new IllegalArgumentException("Snapshot file is truncated");
+            }
+        }
+    }
+
+    public static SnapshotBTree open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            return new SnapshotBTree(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @throws UnsupportedOperationException
+     *             always, a snapshot can not change
+     */
+    @Override
+    public boolean add(int key) {
+        throw new UnsupportedOperationException("Snapshots are read only");
+    }
+
+    /**
+     * @throws UnsupportedOperationException
+     *             always, a snapshot can not change
+     */
+    @Override
+    public boolean delete(int key) {
+        throw new UnsupportedOperationException("Snapshots are read only");
+    }
+
+    @Override
+    public boolean contains(int key) {
+        long index = floorIndex(key);
+        return index >= 0 && keyAt(index) == key;
+    }
+
+    @Override
+    public IBTreeCursor cursor() {
+        return new Cursor();
+    }
+
+    public long size() {
+        return lengths[0];
+    }
+
+    /**
+     * Mapped buffers are released when they are collected, closing only stops new lookups from the channel
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private int keyAt(long index) {
+        return intAt(offsets[0] + index * Integer.BYTES);
+    }
+
+    private int intAt(long position) {
+        // ints never cross a chunk, chunks and offsets are multiples of 4
+        return chunks[(int) (position >>> CHUNK_SHIFT)].getInt((int) (position & CHUNK_MASK));
+    }
+
+    /**
+     * Go down the levels reading one block of each one
+     * 
+     * @return index of the greatest key lower or equal than the key, or -1 if all keys are greater
+     */
+    private long floorIndex(int key) {
+        long from = 0;
+        long to = lengths[levels - 1];
+        for (int level = levels - 1;; level--) {
+            long index = floorInBlock(offsets[level], from, to, key);
+            if (index < from || level == 0) {
+                return index;
+            }
+            from = index * fanout;
+            to = Math.min(from + fanout, lengths[level - 1]);
+        }
+    }
+
+    /**
+     * Binary search between from and to of the level
+     * 
+     * @return index of the greatest key lower or equal than the key, or from - 1 if all are greater
+     */
+    private long floorInBlock(long offset, long from, long to, int key) {
+        long low = from;
+        long high = to - 1;
+        while (low <= high) {
+            long middle = (low + high) >>> 1;
+            if (intAt(offset + middle * Integer.BYTES) <= key) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return high;
+    }
+
+    /**
+     * The gap is before the key at index
+     */
+    private final class Cursor implements IBTreeCursor {
+
+        private long index;
+
+        @Override
+        public void seekFirst() {
+            index = 0;
+        }
+
+        @Override
+        public void seekLast() {
+            index = size();
+        }
+
+        @Override
+        public void seek(int key) {
+            long floor = floorIndex(key);
+            index = floor >= 0 && keyAt(floor) == key ? floor : floor + 1;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return index < size();
+        }
+
+        @Override
+        public int nextInt() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return keyAt(index++);
+        }
+
+        @Override
+        public boolean hasPrevious() {
+            return index > 0;
+        }
+
+        @Override
+        public int previous() {
+            if (!hasPrevious()) {
+                throw new NoSuchElementException();
+            }
+            return keyAt(--index);
+        }
+    }
+
+}
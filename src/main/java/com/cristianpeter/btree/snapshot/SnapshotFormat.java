@@ -0,0 +1,26 @@
+package com.cristianpeter.btree.snapshot;
+
+import java.nio.ByteOrder;
+
+/**
+ * Layout of a snapshot file
+ * <p>
+ * A header of HEADER_BYTES, then the levels of an implicit B+tree as plain int arrays. Level 0 holds all the
+ * sorted keys, and every upper level holds the first key of each block of fanout keys of the level below, until a
+ * level fits in one block. A search reads one block per level, from the top level down to the keys.
+ * Header: magic, format version, fanout, number of levels, number of keys, and the offset and length of each level.
+ */
+final class SnapshotFormat {
+
+    static final int MAGIC = 0x42545350;
+    static final int FORMAT_VERSION = 1;
+    static final int DEFAULT_FANOUT = 1024;
+    static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+    // fanout of at least 2 and at most 2^32 keys never need more levels
+    static final int MAX_LEVELS = 33;
+    static final int HEADER_BYTES = 1024;
+
+    private SnapshotFormat() {
+    }
+
+}
@@ -0,0 +1,146 @@
+package com.cristianpeter.btree.snapshot;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PrimitiveIterator;
+
+import com.cristianpeter.btree.contracts.IBTree;
+
+/**
+ * Write the keys of a tree to an immutable snapshot file, see SnapshotFormat
+ * Keys are streamed to the file once, only the upper levels are kept in memory, a fanout-th of the keys.
+ * The file is written next to the target and moved over it at the end, readers never see a partial snapshot.
+ * The directory is forced after the move, except on Windows, so once write returns the new snapshot survives a crash.
+ */
+public final class SnapshotWriter {
+
+    private static final int BUFFER_BYTES = 1 << 16;
+    private static final boolean WINDOWS = System.getProperty("os.name", "").startsWith("Windows");
+
+    private SnapshotWriter() {
+    }
+
+    public static void write(IBTree tree, Path file) throws IOException {
+        write(tree.cursor(), file, SnapshotFormat.DEFAULT_FANOUT);
+    }
+
+    /**
+     * @param sortedKeys
+     *            keys in ascending order without duplicates
+     * @param fanout
+     *            keys per block, at least 2
+     */
+    public static void write(PrimitiveIterator.OfInt sortedKeys, Path file, int fanout) throws IOException {
+        if (fanout < 2) {
+            throw new IllegalArgumentException("Fanout must be at least 2: " + fanout);
+        }
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES).order(SnapshotFormat.ORDER);
+            long position = SnapshotFormat.HEADER_BYTES;
+            long[] offsets = new long[SnapshotFormat.MAX_LEVELS];
+            long[] lengths = new long[SnapshotFormat.MAX_LEVELS];
+
+            // level 0 goes straight to the file, the first key of each block goes to level 1
+            int[] upper = new int[16];
+            int upperSize = 0;
+            long count = 0;
+            int previous = 0;
+            while (sortedKeys.hasNext()) {
+                int key = sortedKeys.nextInt();
+                if (count > 0 && key <= previous) {
+                    throw new IllegalArgumentException(
+                            "Keys must be sorted without duplicates, found " + previous + " before " + key);
+                }
+                if (count % fanout == 0) {
+                    if (upperSize == upper.length) {
+                        upper = Arrays.copyOf(upper, upperSize * 2);
+                    }
+                    upper[upperSize++] = key;
+                }
+                if (!buffer.hasRemaining()) {
+                    position = drain(channel, buffer, position);
+                }
+                buffer.putInt(key);
+                previous = key;
+                count++;
+            }
+            offsets[0] = SnapshotFormat.HEADER_BYTES;
+            lengths[0] = count;
+            int levels = 1;
+
+            List<int[]> levelKeys = new ArrayList<>();
+            while (lengths[levels - 1] > fanout) {
+                int[] level = Arrays.copyOf(upper, upperSize);
+                levelKeys.add(level);
+                lengths[levels++] = level.length;
+                upperSize = 0;
+                for (int i = 0; i < level.length; i += fanout) {
+                    upper[upperSize++] = level[i];
+                }
+            }
+            for (int i = 0; i < levelKeys.size(); i++) {
+                position = drain(channel, buffer, position);
+                offsets[i + 1] = position;
+                for (int key : levelKeys.get(i)) {
+                    if (!buffer.hasRemaining()) {
+                        position = drain(channel, buffer, position);
+                    }
+                    buffer.putInt(key);
+                }
+            }
+            drain(channel, buffer, position);
+
+            // the header always takes its whole size, also for an empty snapshot
+            ByteBuffer header = ByteBuffer.allocate(SnapshotFormat.HEADER_BYTES).order(SnapshotFormat.ORDER);
+            header.putInt(SnapshotFormat.MAGIC).putInt(SnapshotFormat.FORMAT_VERSION).putInt(fanout).putInt(levels);
+            header.putLong(count);
+            for (int i = 0; i < levels; i++) {
+                header.putLong(offsets[i]).putLong(lengths[i]);
+            }
+            header.position(header.limit());
+            drain(channel, header, 0);
+            channel.force(true);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        syncDirectory(file.toAbsolutePath().getParent());
+    }
+
+    /**
+     * Force the entries of the directory, the rename is only in memory until then
+     * Windows can not open a directory as a channel, the sync is skipped there and the rename is as durable as the
+     * file system makes it. Other platforms report a failed sync, the snapshot is then not known to be durable
+     */
+    private static void syncDirectory(Path directory) throws IOException {
+        if (WINDOWS) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Write the buffer at the position and clear it
+     * 
+     * @return position after the written bytes
+     */
+    private static long drain(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+        buffer.clear();
+        return position;
+    }
+
+}
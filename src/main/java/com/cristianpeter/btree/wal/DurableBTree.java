@@ -0,0 +1,184 @@
+package com.cristianpeter.btree.wal;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.cristianpeter.btree.BTree;
+import com.cristianpeter.btree.contracts.IBTree;
+import com.cristianpeter.btree.contracts.IBTreeCursor;
+import com.cristianpeter.btree.exceptions.NodeNotFoundException;
+import com.cristianpeter.btree.snapshot.SnapshotBTree;
+import com.cristianpeter.btree.snapshot.SnapshotWriter;
+
+import lombok.Getter;
+
+/**
+ * BTree whose mutations survive a crash, kept in a directory with a checkpoint snapshot and a write-ahead log
+ * <p>
+ * Every mutation is logged before it is applied to the tree, and waits for the log as the sync policy says.
+ * A mutation that would not change the tree is not logged, and a mutation whose record can not be appended is not
+ * applied.
+ * A checkpoint writes the whole tree to a snapshot and empties the log. Opening loads the last snapshot and
+ * replays the log over it, so a crash loses at most the records the policy did not sync yet.
+ * Replay only sets whether a key is present, so records already in the snapshot can be replayed again when
+ * the crash happens between the snapshot and the truncation of the log. A record that can not be applied is
+ * skipped and counted, the tree still opens.
+ * Mutations and lookups are serialized with a read write lock, the wait for the log is done outside of it
+ * so concurrent writers share the same sync.
+ */
+public class DurableBTree implements IBTree, AutoCloseable {
+
+    public static final String LOG_FILE = "wal.log";
+    public static final String CHECKPOINT_FILE = "checkpoint.snapshot";
+    public static final long DEFAULT_BATCH_INTERVAL_MILLIS = 10;
+
+    private final Path directory;
+    @Getter
+    private final int order;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final WriteAheadLog log;
+    private final BTree tree;
+    @Getter
+    private long replayedRecords;
+    // records of the log that failed to be applied on replay
+    @Getter
+    private long skippedRecords;
+
+    public DurableBTree(Path directory, int order, SyncPolicy syncPolicy) throws IOException {
+        this(directory, order, syncPolicy, DEFAULT_BATCH_INTERVAL_MILLIS);
+    }
+
+    /**
+     * Open the tree of the directory, creating it when empty
+     * 
+     * @param batchIntervalMillis
+     *            time between syncs for the BATCH policy
+     */
+    public DurableBTree(Path directory, int order, SyncPolicy syncPolicy, long batchIntervalMillis) throws IOException {
+        this.directory = directory;
+        this.order = order;
+        Files.createDirectories(directory);
+        this.tree = recover();
+        this.log = new WriteAheadLog(directory.resolve(LOG_FILE), syncPolicy, batchIntervalMillis);
+    }
+
+    /**
+     * @return false when the key was already present, nothing is logged then
+     */
+    @Override
+    public boolean add(int key) throws NodeNotFoundException {
+        long sequence;
+        lock.writeLock().lock();
+        try {
+            if (tree.contains(key)) {
+                return false;
+            }
+            sequence = log.append(WriteAheadLog.ADD, key);
+            tree.add(key);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.sync(sequence);
+        return true;
+    }
+
+    /**
+     * @return false when the key was not present, nothing is logged then
+     */
+    @Override
+    public boolean delete(int key) throws NodeNotFoundException {
+        long sequence;
+        lock.writeLock().lock();
+        try {
+            if (!tree.contains(key)) {
+                return false;
+            }
+            sequence = log.append(WriteAheadLog.DELETE, key);
+            tree.delete(key);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.sync(sequence);
+        return true;
+    }
+
+    @Override
+    public boolean contains(int key) {
+        lock.readLock().lock();
+        try {
+            return tree.contains(key);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The cursor reads the tree without the lock, it must not be used while other threads write
+     */
+    @Override
+    public IBTreeCursor cursor() {
+        return tree.cursor();
+    }
+
+    /**
+     * Force every logged mutation to the device, whatever the sync policy is
+     */
+    public void sync() {
+        log.syncAll();
+    }
+
+    /**
+     * Write the tree to the checkpoint snapshot and empty the log, writers wait until it ends
+     */
+    public void checkpoint() throws IOException {
+        lock.writeLock().lock();
+        try {
+            log.syncAll();
+            // the snapshot is forced, renamed over the previous one and its directory forced before the log is dropped
+            SnapshotWriter.write(tree, directory.resolve(CHECKPOINT_FILE));
+            log.truncate();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            log.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private BTree recover() throws IOException {
+        Path checkpoint = directory.resolve(CHECKPOINT_FILE);
+        BTree recovered;
+        if (Files.exists(checkpoint)) {
+            try (SnapshotBTree snapshot = SnapshotBTree.open(checkpoint)) {
+                recovered = BTree.bulkLoad(order, snapshot.stream().toArray());
+            }
+        } else {
+            recovered = new BTree(order);
+        }
+        // add and delete return false for a key already present or absent, so replay only sets the presence
+        replayedRecords = WriteAheadLog.replay(directory.resolve(LOG_FILE), key -> {
+            try {
+                recovered.add(key);
+            } catch (NodeNotFoundException e) {
+                skippedRecords++;
+            }
+        }, key -> {
+            try {
+                recovered.delete(key);
+            } catch (NodeNotFoundException e) {
+                skippedRecords++;
+            }
+        });
+        return recovered;
+    }
+
+}
@@ -0,0 +1,22 @@
+package com.cristianpeter.btree.wal;
+
+/**
+ * When the records of the write-ahead log are forced to the device
+ */
+public enum SyncPolicy {
+    /**
+     * Every mutation waits until its record is on the device
+     * Writers arriving while a sync runs are grouped in the next one, so one fsync commits many records
+     */
+    ALWAYS,
+    /**
+     * Mutations return at once and a background thread forces the log every batch interval
+     * A crash loses at most the records of the last interval
+     */
+    BATCH,
+    /**
+     * Records are handed to the operating system and never forced, a process crash loses nothing
+     * but a power loss can lose what the system did not write yet
+     */
+    NEVER
+}
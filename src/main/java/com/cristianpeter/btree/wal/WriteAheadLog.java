@@ -0,0 +1,277 @@
+package com.cristianpeter.btree.wal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntConsumer;
+import java.util.zip.CRC32C;
+
+import lombok.Getter;
+
+/**
+ * Append only log of tree mutations
+ * <p>
+ * A record is the operation byte, the key and a CRC32C of both, so a torn write at the end of the log is found
+ * and dropped on replay. Records are appended to a buffer and written to the file when it fills or on sync.
+ * The sequence number of a record is the log position after it, counted from the creation of the log, so it
+ * keeps growing when the log is truncated. A record is durable when the durable sequence passes it.
+ * With group commit the first writer that needs a sync becomes the leader and forces the file, the writers that
+ * arrive meanwhile wait for the leader and are covered by the next sync.
+ */
+public class WriteAheadLog implements AutoCloseable {
+
+    public static final byte ADD = 1;
+    public static final byte DELETE = 2;
+    static final int RECORD_BYTES = 1 + Integer.BYTES + Integer.BYTES;
+    private static final int BUFFER_BYTES = RECORD_BYTES * 4096;
+
+    private final FileChannel channel;
+    @Getter
+    private final SyncPolicy syncPolicy;
+    private final ScheduledExecutorService syncer;
+
+    // guards the buffer and the appended position
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+    private final CRC32C crc = new CRC32C();
+    // sequence of the first byte of the file
+    private long base;
+    private long written;
+    private long appended;
+
+    // guards the durable sequence and the leader
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private final Condition synced = syncLock.newCondition();
+    private boolean syncing;
+    private long durable;
+    // written under the sync lock, read without it
+    @Getter
+    private volatile long syncs;
+
+    /**
+     * Open the log to append after its current end, replay it before opening it
+     * 
+     * @param batchIntervalMillis
+     *            time between syncs for the BATCH policy, ignored by the other ones
+     */
+    public WriteAheadLog(Path file, SyncPolicy syncPolicy, long batchIntervalMillis) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.syncPolicy = syncPolicy;
+        this.written = channel.size();
+        this.appended = written;
+        this.durable = written;
+        if (syncPolicy == SyncPolicy.BATCH) {
+            syncer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "btree-wal-sync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            syncer.scheduleWithFixedDelay(this::syncAll, batchIntervalMillis, batchIntervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            syncer = null;
+        }
+    }
+
+    /**
+     * Read the valid records of the log in order, and cut the log after the last one
+     * 
+     * @return number of records replayed
+     */
+    public static long replay(Path file, IntConsumer added, IntConsumer deleted) throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer records = ByteBuffer.allocate(BUFFER_BYTES);
+            CRC32C crc = new CRC32C();
+            long position = 0;
+            long count = 0;
+            boolean valid = true;
+            while (valid && channel.read(records, position + records.position()) > 0) {
+                records.flip();
+                while (records.remaining() >= RECORD_BYTES) {
+                    byte operation = records.get(records.position());
+                    int key = records.getInt(records.position() + 1);
+                    crc.reset();
+                    crc.update(records.slice(records.position(), 1 + Integer.BYTES));
+                    if ((int) crc.getValue() != records.getInt(records.position() + 1 + Integer.BYTES)
+                            || (operation != ADD && operation != DELETE)) {
+                        valid = false;
+                        break;
+                    }
+                    if (operation == ADD) {
+                        added.accept(key);
+                    } else {
+                        deleted.accept(key);
+                    }
+                    records.position(records.position() + RECORD_BYTES);
+                    position += RECORD_BYTES;
+                    count++;
+                }
+                // keep a partial record for the next read
+                records.compact();
+            }
+            // a torn or corrupted tail is never replayed, the next appends go after the last valid record
+            channel.truncate(position);
+            channel.force(true);
+            return count;
+        }
+    }
+
+    /**
+     * Add a record to the log, it is durable after a sync that covers its sequence number
+     * 
+     * @return log sequence number of the record
+     */
+    public long append(byte operation, int key) {
+        appendLock.lock();
+        try {
+            if (buffer.remaining() < RECORD_BYTES) {
+                drain();
+            }
+            int start = buffer.position();
+            buffer.put(operation).putInt(key);
+            crc.reset();
+            crc.update(buffer.slice(start, 1 + Integer.BYTES));
+            buffer.putInt((int) crc.getValue());
+            appended += RECORD_BYTES;
+            return appended;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Wait until the record is durable as the policy asks
+     * ALWAYS forces the log with group commit, BATCH returns at once, NEVER only writes the buffer to the system
+     */
+    public void sync(long sequence) {
+        switch (syncPolicy) {
+        case ALWAYS:
+            groupCommit(sequence);
+            break;
+        case NEVER:
+            writeBuffer();
+            break;
+        default:
+            break;
+        }
+    }
+
+    /**
+     * Write and force every appended record
+     */
+    public void syncAll() {
+        appendLock.lock();
+        long sequence;
+        try {
+            sequence = appended;
+        } finally {
+            appendLock.unlock();
+        }
+        groupCommit(sequence);
+    }
+
+    /**
+     * Drop all the records, the caller must stop the appends before, a checkpoint already holds them
+     */
+    public void truncate() {
+        syncAll();
+        appendLock.lock();
+        try {
+            drain();
+            channel.truncate(0);
+            channel.force(true);
+            base = written;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (syncer != null) {
+            // never interrupt the syncer, an interrupt during force closes the channel
+            syncer.shutdown();
+            try {
+                syncer.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (syncPolicy != SyncPolicy.NEVER) {
+            syncAll();
+        } else {
+            writeBuffer();
+        }
+        channel.close();
+    }
+
+    private void groupCommit(long sequence) {
+        syncLock.lock();
+        try {
+            while (durable < sequence) {
+                if (syncing) {
+                    // a leader is forcing the log, the next round covers this record
+                    synced.awaitUninterruptibly();
+                    continue;
+                }
+                syncing = true;
+                long target = durable;
+                syncLock.unlock();
+                try {
+                    target = writeBuffer();
+                    channel.force(false);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } finally {
+                    syncLock.lock();
+                    syncing = false;
+                    durable = Math.max(durable, target);
+                    syncs++;
+                    synced.signalAll();
+                }
+            }
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    /**
+     * @return sequence written to the system, every record before it is in the file
+     */
+    private long writeBuffer() {
+        appendLock.lock();
+        try {
+            drain();
+            return written;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    private void drain() {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                written += channel.write(buffer, written - base);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            buffer.clear();
+        }
+    }
+
+}
@@ -1,17 +1,32 @@
 package com.cristianpeter.btree;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.Arrays;
+import java.util.OptionalInt;
+import java.util.Random;
+import java.util.StringJoiner;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 
 import com.cristianpeter.btree.constants.BTreeNodeConstants;
+import com.cristianpeter.btree.core.BTreeNode;
+import com.cristianpeter.btree.enums.SearchMode;
 import com.cristianpeter.btree.exceptions.KeyNotFoundException;
 import com.cristianpeter.btree.exceptions.NodeNotFoundException;
+import com.cristianpeter.btree.metrics.BTreeMetrics;
 
 class BTreeTest {
 
@@ -81,10 +96,10 @@ class BTreeTest {
 
         tree.delete(400);
 
-        // todo: fix -> at the end
-        assertEquals("360 -> 201 -> 243 -> 39 -> 46 -> 236 -> 321 -> 357 -> 679 -> 518 -> ", tree.preOrder());
-        assertEquals("39 -> 46 -> 201 -> 236 -> 243 -> 321 -> 357 -> 360 -> 518 -> 679 -> ", tree.inOrder());
-        assertEquals("39 -> 46 -> 236 -> 321 -> 357 -> 201 -> 243 -> 518 ->  -> 679 -> 360", tree.postOrder());
+        // the leaves merge and their father borrows from its sibling
+        assertEquals("243 -> 201 -> 39 -> 46 -> 236 -> 360 -> 321 -> 357 -> 518 -> 679", tree.preOrder());
+        assertEquals("39 -> 46 -> 201 -> 236 -> 243 -> 321 -> 357 -> 360 -> 518 -> 679", tree.inOrder());
+        assertEquals("39 -> 46 -> 236 -> 201 -> 321 -> 357 -> 518 -> 679 -> 360 -> 243", tree.postOrder());
     }
 
     @Test
@@ -215,4 +230,379 @@ class BTreeTest {
         assertEquals(tree.postOrder(), Arrays.stream(expected).boxed().map(String::valueOf).collect(Collectors.joining(" -> ")));
     }
 
+    @Test
+    @DisplayName(value = "Test btree contains keys in leaves and inner nodes")
+    void containsTest() throws NodeNotFoundException, KeyNotFoundException {
+        int[] keys = new int[] { 10, 20, 5, 15, 25, 30, 35, 26, 28, 14, 18, 16 };
+        for (int key : keys) {
+            tree.add(key);
+        }
+        for (int key : keys) {
+            assertTrue(tree.contains(key));
+        }
+        assertFalse(tree.contains(1));
+        assertFalse(tree.contains(17));
+        assertFalse(tree.contains(40));
+
+    }
+
+    @Test
+    @DisplayName(value = "Test btree does not contain deleted keys")
+    void containsAfterDeleteTest() throws NodeNotFoundException, KeyNotFoundException {
+        int[] keys = new int[] { 679, 960, 518, 360, 46, 849, 243, 39, 321, 357, 201, 236, 717 };
+        for (int key : keys) {
+            tree.add(key);
+        }
+        tree.delete(236);
+        assertFalse(tree.contains(236));
+        for (int key : keys) {
+            if (key != 236) {
+                assertTrue(tree.contains(key));
+            }
+        }
+    }
+
+    @ParameterizedTest(name = "Order: {0}")
+    @ValueSource(ints = { 3, 4, 5, 8 })
+    @DisplayName(value = "Test random deletes borrow, merge and shrink the btree as a TreeSet")
+    void randomDeleteTest(int order) throws NodeNotFoundException, KeyNotFoundException {
+        BTree random = new BTree(order);
+        TreeSet<Integer> expected = new TreeSet<>();
+        Random keys = new Random(order);
+        for (int i = 0; i < 5000; i++) {
+            int key = keys.nextInt(3000);
+            if (keys.nextInt(3) > 0) {
+                assertEquals(expected.add(key), random.add(key));
+            } else {
+                assertEquals(expected.remove(key), random.delete(key));
+            }
+        }
+        assertArrayEquals(expected.stream().mapToInt(Integer::intValue).toArray(), random.stream().toArray());
+        int height = random.height();
+
+        for (int key = 0; key < 3000; key++) {
+            assertEquals(expected.remove(key), random.delete(key));
+            assertFalse(random.contains(key));
+        }
+        assertEquals(0, random.size());
+        assertTrue(random.height() < height);
+        assertFalse(random.delete(0));
+
+        // the empty tree is usable again
+        random.addAll(IntStream.range(0, 100).toArray());
+        assertEquals(100, random.size());
+    }
+
+    @Test
+    @DisplayName(value = "Test deleting a key that is not in the btree returns false and keeps the btree")
+    void deleteAbsentKeyTest() throws NodeNotFoundException, KeyNotFoundException {
+        int[] keys = new int[] { 679, 960, 518, 360, 46, 849, 243, 39, 321, 357, 201, 236, 717 };
+        for (int key : keys) {
+            tree.add(key);
+        }
+        String preOrder = tree.preOrder();
+        assertFalse(tree.delete(500));
+        assertFalse(tree.delete(1000));
+        assertFalse(tree.delete(0));
+        assertEquals(preOrder, tree.preOrder());
+        assertFalse(new BTree(BTreeNodeConstants.ORDER_3).delete(1));
+    }
+
+    @Test
+    @DisplayName(value = "Test empty btree does not contain keys")
+    void containsOnEmptyTreeTest() {
+        assertFalse(tree.contains(BTreeNodeConstants.VALUE));
+    }
+
+    @Test
+    @DisplayName(value = "Test binary search mode builds the same btree")
+    void binarySearchModeTest() throws NodeNotFoundException {
+        int[] keys = new int[] { 10, 20, 5, 15, 25, 30, 35, 26, 28, 14, 18, 16 };
+        BTree binaryTree = new BTree(BTreeNodeConstants.ORDER_3, SearchMode.BINARY);
+        for (int key : keys) {
+            tree.add(key);
+            binaryTree.add(key);
+        }
+        assertEquals(tree.preOrder(), binaryTree.preOrder());
+        for (int key : keys) {
+            assertTrue(binaryTree.contains(key));
+        }
+        assertFalse(binaryTree.contains(17));
+    }
+
+    @Test
+    @DisplayName(value = "Test zero and negative keys are stored as any other key")
+    void zeroAndNegativeKeysTest() throws NodeNotFoundException, KeyNotFoundException {
+        int[] keys = new int[] { 0, -10, 20, -5, 15, Integer.MIN_VALUE, 30, Integer.MAX_VALUE, -1, 1 };
+        for (int key : keys) {
+            tree.add(key);
+        }
+        int[] expected = Arrays.stream(keys).sorted().toArray();
+        assertEquals(Arrays.stream(expected).mapToObj(String::valueOf).collect(Collectors.joining(" -> ")), tree.inOrder());
+        for (int key : keys) {
+            assertTrue(tree.contains(key));
+        }
+        assertFalse(tree.contains(2));
+
+        tree.delete(Integer.MIN_VALUE);
+        assertFalse(tree.contains(Integer.MIN_VALUE));
+        assertTrue(tree.contains(-10));
+        assertTrue(tree.contains(0));
+    }
+
+    @Test
+    @DisplayName(value = "Test bulk loaded btree accepts new keys")
+    void bulkLoadThenAddTest() throws NodeNotFoundException {
+        BTree loaded = BTree.bulkLoad(BTreeNodeConstants.ORDER_3, IntStream.rangeClosed(1, 20).map(i -> i * 10), 0.7);
+        loaded.add(55);
+        loaded.add(5);
+        loaded.add(205);
+        String expected = IntStream.concat(IntStream.rangeClosed(1, 20).map(i -> i * 10), IntStream.of(55, 5, 205))
+                .sorted()
+                .mapToObj(String::valueOf)
+                .collect(Collectors.joining(" -> "));
+        assertEquals(expected, loaded.inOrder());
+        assertTrue(loaded.contains(55));
+        assertFalse(loaded.contains(56));
+    }
+
+    @Test
+    @DisplayName(value = "Test adding an existing key leaves the btree unchanged")
+    void addExistingKeyTest() throws NodeNotFoundException {
+        int[] keys = new int[] { 10, 20, 5, 15, 25, 30, 35, 26, 28, 14, 18, 16 };
+        for (int key : keys) {
+            assertTrue(tree.add(key));
+        }
+        String preOrder = tree.preOrder();
+        // keys that end in leaves and in inner nodes
+        for (int key : keys) {
+            assertFalse(tree.add(key));
+        }
+        assertEquals(preOrder, tree.preOrder());
+    }
+
+    @Test
+    @DisplayName(value = "Test many splits keep every key reachable")
+    void manySplitsTest() throws NodeNotFoundException {
+        int size = 10000;
+        for (int i = 0; i < size; i++) {
+            tree.add(i * 7919 % size);
+        }
+        assertEquals(IntStream.range(0, size).mapToObj(String::valueOf).collect(Collectors.joining(" -> ")), tree.inOrder());
+    }
+
+    @Test
+    @DisplayName(value = "Test batch add builds the same btree as adding the sorted batch key by key")
+    void addAllTest() throws NodeNotFoundException {
+        int[] batch = new int[3000];
+        for (int i = 0; i < batch.length; i++) {
+            // every key twice, out of order
+            batch[i] = (i % 1500) * 7919 % 1500;
+        }
+        tree.add(700);
+        tree.add(42);
+        assertEquals(1498, tree.addAll(batch));
+        assertEquals(0, tree.addAll(new int[] { 42, 700, 1 }));
+
+        BTree expected = new BTree(BTreeNodeConstants.ORDER_3);
+        expected.add(700);
+        expected.add(42);
+        for (int key : IntStream.range(0, 1500).toArray()) {
+            expected.add(key);
+        }
+        assertEquals(expected.preOrder(), tree.preOrder());
+        assertEquals(IntStream.range(0, 1500).mapToObj(String::valueOf).collect(Collectors.joining(" -> ")), tree.inOrder());
+    }
+
+    @Test
+    @DisplayName(value = "Test batch delete leaves the same btree as deleting the sorted batch key by key")
+    void deleteAllTest() throws NodeNotFoundException, KeyNotFoundException {
+        BTree expected = new BTree(BTreeNodeConstants.ORDER_3);
+        for (int i = 0; i < 200; i++) {
+            tree.add(i * 31 % 200);
+            expected.add(i * 31 % 200);
+        }
+        int[] batch = new int[] { 150, 3, 77, 3, 500, 12, 13, 14, 199, 0, 88, 89 };
+        for (int key : Arrays.stream(batch).distinct().sorted().toArray()) {
+            if (expected.contains(key)) {
+                expected.delete(key);
+            }
+        }
+        assertEquals(10, tree.deleteAll(batch));
+        assertEquals(expected.preOrder(), tree.preOrder());
+        for (int key : batch) {
+            assertFalse(tree.contains(key));
+        }
+        assertTrue(tree.contains(1));
+    }
+
+    @Test
+    @DisplayName(value = "Test batch delete of most keys merges the nodes and shrinks the btree")
+    void deleteAllMergeTest() throws NodeNotFoundException, KeyNotFoundException {
+        BTree batchTree = new BTree(5);
+        for (int i = 0; i < 1000; i++) {
+            batchTree.add(i * 7919 % 1000);
+        }
+        int height = batchTree.height();
+        BTreeMetrics metrics = new BTreeMetrics();
+        batchTree.setMetricsListener(metrics);
+
+        int[] batch = IntStream.concat(IntStream.range(100, 950), IntStream.of(5, 50, 2000)).toArray();
+        assertEquals(852, batchTree.deleteAll(batch));
+
+        assertTrue(metrics.getMerges() > 0);
+        assertTrue(batchTree.height() < height);
+        int[] expected = IntStream.range(0, 1000).filter(key -> (key < 100 || key >= 950) && key != 5 && key != 50)
+                .toArray();
+        assertArrayEquals(expected, batchTree.stream().toArray());
+        assertEquals(expected.length, batchTree.size());
+
+        assertEquals(expected.length, batchTree.deleteAll(IntStream.range(0, 1000).toArray()));
+        assertEquals(0, batchTree.size());
+        assertEquals(1, batchTree.height());
+    }
+
+    @Test
+    @DisplayName(value = "Test ascending inserts leave the left nodes full")
+    void appendFillTest() throws NodeNotFoundException {
+        BTree appended = new BTree(16);
+        BTree random = new BTree(16);
+        int size = 100_000;
+        for (int i = 0; i < size; i++) {
+            assertTrue(appended.add(i));
+            random.add(i * 7919 % size);
+        }
+        assertFalse(appended.add(size - 1));
+        assertEquals(random.inOrder(), appended.inOrder());
+
+        // keys per node, far from the half full nodes of midpoint splits
+        int[] nodes = new int[1];
+        countNodes(appended.getRoot(), nodes);
+        assertTrue((double) size / nodes[0] > 14, "average fill " + (double) size / nodes[0]);
+    }
+
+    @Test
+    @DisplayName(value = "Test appends after other changes go to the right-most leaf")
+    void appendAfterChangesTest() throws NodeNotFoundException, KeyNotFoundException {
+        for (int i = 0; i < 300; i += 2) {
+            tree.add(i);
+        }
+        tree.delete(298);
+        tree.add(1);
+        tree.addAll(new int[] { 1000, 3, 5 });
+        for (int i = 300; i < 400; i++) {
+            tree.add(i);
+        }
+        tree.add(999);
+        tree.add(296);
+        String expected = IntStream.concat(IntStream.range(0, 149).map(i -> i * 2),
+                IntStream.concat(IntStream.of(1, 3, 5, 999, 1000), IntStream.range(300, 400)))
+                .sorted()
+                .mapToObj(String::valueOf)
+                .collect(Collectors.joining(" -> "));
+        assertEquals(expected, tree.inOrder());
+        assertTrue(tree.contains(1000));
+        assertTrue(tree.contains(399));
+    }
+
+    @Test
+    @DisplayName(value = "Test the visitor traversals give the keys of the String traversals")
+    void forEachTraversalsTest() throws NodeNotFoundException, KeyNotFoundException {
+        int[] keys = { 679, 960, 518, 360, 46, 849, 243, 39, 321, 357, 201, 236, 717 };
+        for (int key : keys) {
+            tree.add(key);
+        }
+        tree.delete(236);
+
+        assertEquals(tree.preOrder(), join(tree::forEachPreOrder));
+        assertEquals(tree.inOrder(), join(tree::forEachInOrder));
+        assertEquals(tree.postOrder(), join(tree::forEachPostOrder));
+        assertEquals("360 -> 46 -> 243 -> 679 -> 39 -> 201 -> 321 -> 357 -> 518 -> 717 -> 849 -> 960",
+                join(tree::forEachLevelOrder));
+    }
+
+    @Test
+    @DisplayName(value = "Test the visitor traversals on an empty tree and on a tall tree")
+    void forEachEmptyAndTallTreeTest() throws NodeNotFoundException {
+        assertEquals("", join(tree::forEachInOrder));
+        assertEquals("", join(tree::forEachLevelOrder));
+
+        int size = 100_000;
+        for (int i = 0; i < size; i++) {
+            tree.add(i);
+        }
+        int[] next = { 0 };
+        tree.forEachInOrder(key -> assertEquals(next[0]++, key));
+        assertEquals(size, next[0]);
+
+        int[] count = { 0 };
+        tree.forEachPostOrder(key -> count[0]++);
+        tree.forEachLevelOrder(key -> count[0]++);
+        assertEquals(2 * size, count[0]);
+    }
+
+    @Test
+    @DisplayName(value = "Test rank, select and range counts follow the sorted keys while the tree changes")
+    void orderStatisticsTest() throws NodeNotFoundException, KeyNotFoundException {
+        assertEquals(0, tree.size());
+        assertEquals(0, tree.rank(10));
+        assertEquals(OptionalInt.empty(), tree.select(0));
+
+        // multiples of 10 from 10 to 1000, added in a shuffled order
+        for (int i = 0; i < 100; i++) {
+            tree.add((i * 37 % 100 + 1) * 10);
+        }
+        assertEquals(100, tree.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, tree.rank((i + 1) * 10));
+            assertEquals(i + 1, tree.rank((i + 1) * 10 + 5));
+            assertEquals(OptionalInt.of((i + 1) * 10), tree.select(i));
+        }
+        assertEquals(OptionalInt.empty(), tree.select(100));
+        assertEquals(OptionalInt.empty(), tree.select(-1));
+        assertEquals(11, tree.countRange(100, 200));
+        assertEquals(10, tree.countRange(101, 200));
+        assertEquals(100, tree.countRange(Integer.MIN_VALUE, Integer.MAX_VALUE));
+        assertEquals(0, tree.countRange(200, 100));
+
+        // counts already kept are updated by the next changes
+        tree.addAll(new int[] { 15, 25, 1005 });
+        tree.add(2000);
+        tree.delete(1000);
+        assertEquals(103, tree.size());
+        assertEquals(3, tree.rank(25));
+        assertEquals(OptionalInt.of(2000), tree.select(102));
+        assertEquals(5, tree.countRange(10, 30));
+        assertEquals(2, tree.countRange(1000, Integer.MAX_VALUE));
+    }
+
+    @Test
+    @DisplayName(value = "Test rank and select of a bulk loaded tree")
+    void orderStatisticsBulkLoadTest() {
+        int size = 10_000;
+        BTree loaded = BTree.bulkLoad(BTreeNodeConstants.ORDER_3, IntStream.range(0, size).map(i -> i * 2).toArray());
+        assertEquals(size, loaded.size());
+        for (int i = 0; i < size; i += 7) {
+            assertEquals(i, loaded.rank(i * 2));
+            assertEquals(i + 1, loaded.rank(i * 2 + 1));
+            assertEquals(OptionalInt.of(i * 2), loaded.select(i));
+        }
+        assertEquals(500, loaded.countRange(1000, 1999));
+    }
+
+    private static String join(Consumer<IntConsumer> traversal) {
+        StringJoiner joiner = new StringJoiner(" -> ");
+        traversal.accept(key -> joiner.add(String.valueOf(key)));
+        return joiner.toString();
+    }
+
+    private static void countNodes(BTreeNode node, int[] count) {
+        count[0]++;
+        for (int i = 0; i < node.getChildren().length; i++) {
+            if (node.getChild(i) != null) {
+                countNodes(node.getChild(i), count);
+            }
+        }
+    }
+
 }
@@ -0,0 +1,152 @@
+package com.cristianpeter.btree;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.OptionalLong;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import com.cristianpeter.btree.constants.BTreeNodeConstants;
+import com.cristianpeter.btree.contracts.ILongBTreeCursor;
+import com.cristianpeter.btree.exceptions.KeyNotFoundException;
+import com.cristianpeter.btree.exceptions.NodeNotFoundException;
+
+class LongBTreeTest {
+
+    // maps int keys out of the int domain keeping their order
+    private static final long SCALE = 10_000_000_000L;
+
+    private LongBTree tree;
+
+    @BeforeEach
+    void beforeEach() {
+        tree = new LongBTree(BTreeNodeConstants.ORDER_3);
+    }
+
+    static Stream<Arguments> deleteCases() {
+        int[] siblings = { 679, 960, 518, 360, 46, 849, 243, 39, 321, 357, 201, 236, 717 };
+        int[] inner = { 20, 40, 10, 30, 33, 50, 60, 5, 15, 25, 28, 31, 32, 70 };
+        return Stream.of(Arguments.of(siblings, 236), Arguments.of(siblings, 518),
+                Arguments.of(new int[] { 679, 518, 360, 46, 243, 39, 321, 357, 201, 236, 400 }, 400),
+                Arguments.of(Arrays.copyOf(inner, 13), 30), Arguments.of(inner, 50),
+                Arguments.of(new int[] { 20, 40, 10, 30, 33, 50, 60, 5, 6, 7, 8 }, 10));
+    }
+
+    @ParameterizedTest
+    @MethodSource("deleteCases")
+    @DisplayName(value = "Test long btree has the same shape as the int btree after inserts and a delete")
+    void sameShapeAsIntTreeTest(int[] keys, int deleted) throws NodeNotFoundException, KeyNotFoundException {
+        BTree expected = new BTree(BTreeNodeConstants.ORDER_3);
+        for (int key : keys) {
+            expected.add(key);
+            tree.add(key * SCALE);
+        }
+        expected.delete(deleted);
+        tree.delete(deleted * SCALE);
+
+        assertEquals(scale(expected.preOrder()), tree.preOrder());
+        assertEquals(scale(expected.inOrder()), tree.inOrder());
+        assertEquals(scale(expected.postOrder()), tree.postOrder());
+
+        LongStream.Builder visited = LongStream.builder();
+        tree.forEachInOrder(visited);
+        assertArrayEquals(tree.stream().toArray(), visited.build().toArray());
+    }
+
+    @Test
+    @DisplayName(value = "Test long btree keeps the shape of the int btree while random deletes empty it")
+    void randomDeleteSameShapeTest() throws NodeNotFoundException, KeyNotFoundException {
+        BTree expected = new BTree(BTreeNodeConstants.ORDER_4);
+        tree = new LongBTree(BTreeNodeConstants.ORDER_4);
+        for (int i = 0; i < 1000; i++) {
+            expected.add(i * 7919 % 1000);
+            tree.add(i * 7919 % 1000 * SCALE);
+        }
+        for (int i = 0; i < 1000; i++) {
+            int key = i * 4001 % 1000;
+            assertTrue(tree.delete(key * SCALE));
+            assertFalse(tree.delete(key * SCALE));
+            expected.delete(key);
+            if (i % 50 == 0) {
+                assertEquals(scale(expected.preOrder()), tree.preOrder());
+            }
+        }
+        assertEquals(0, tree.stream().count());
+    }
+
+    @Test
+    @DisplayName(value = "Test keys at the edges of the long domain")
+    void longDomainEdgesTest() throws NodeNotFoundException, KeyNotFoundException {
+        long[] keys = { Long.MAX_VALUE, Long.MIN_VALUE, 0, -1, 1L << 40, -(1L << 40), Integer.MAX_VALUE + 1L };
+        for (long key : keys) {
+            assertTrue(tree.add(key));
+        }
+        assertFalse(tree.add(1L << 40));
+        assertTrue(tree.contains(Long.MIN_VALUE));
+        assertTrue(tree.contains(Long.MAX_VALUE));
+        assertFalse(tree.contains(Integer.MAX_VALUE));
+
+        assertArrayEquals(LongStream.of(keys).sorted().toArray(), tree.stream().toArray());
+        assertEquals(OptionalLong.of(Long.MIN_VALUE), tree.first());
+        assertEquals(OptionalLong.of(Long.MAX_VALUE), tree.last());
+        assertEquals(OptionalLong.of(Integer.MAX_VALUE + 1L), tree.ceiling(2));
+        assertEquals(OptionalLong.of(0), tree.floor(1L << 30));
+        assertArrayEquals(new long[] { -1, 0, Integer.MAX_VALUE + 1L }, tree.range(-1, 1L << 39).toArray());
+
+        tree.delete(Long.MIN_VALUE);
+        assertFalse(tree.contains(Long.MIN_VALUE));
+        assertEquals(OptionalLong.of(-(1L << 40)), tree.first());
+    }
+
+    @Test
+    @DisplayName(value = "Test cursor moves both ways over many keys")
+    void cursorTest() throws NodeNotFoundException {
+        int size = 5000;
+        for (int i = 0; i < size; i++) {
+            tree.add((i * 7919L % size) * SCALE);
+        }
+        ILongBTreeCursor cursor = tree.cursor();
+        for (int i = 0; i < size; i++) {
+            assertEquals(i * SCALE, cursor.nextLong());
+        }
+        assertFalse(cursor.hasNext());
+        for (int i = size - 1; i >= 0; i--) {
+            assertEquals(i * SCALE, cursor.previous());
+        }
+        assertFalse(cursor.hasPrevious());
+
+        cursor.seek(100 * SCALE + 1);
+        assertEquals(101 * SCALE, cursor.nextLong());
+    }
+
+    @Test
+    @DisplayName(value = "Test ascending inserts keep every key reachable")
+    void appendTest() throws NodeNotFoundException {
+        long first = 1L << 50;
+        for (long key = first; key < first + 10_000; key++) {
+            assertTrue(tree.add(key));
+        }
+        tree.add(5);
+        assertArrayEquals(LongStream.concat(LongStream.of(5), LongStream.range(first, first + 10_000)).toArray(),
+                tree.stream().toArray());
+    }
+
+    private static String scale(String keys) {
+        return Arrays.stream(keys.split(" -> ", -1))
+                .map(key -> key.isEmpty() ? key : String.valueOf(Long.parseLong(key) * SCALE))
+                .collect(Collectors.joining(" -> "));
+    }
+
+}
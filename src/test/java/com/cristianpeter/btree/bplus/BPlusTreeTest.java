@@ -0,0 +1,109 @@
+package com.cristianpeter.btree.bplus;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.OptionalInt;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import com.cristianpeter.btree.constants.BTreeNodeConstants;
+import com.cristianpeter.btree.contracts.IBTreeCursor;
+
+class BPlusTreeTest {
+
+    @Test
+    @DisplayName("Add, contains and delete keys")
+    void addContainsDeleteTest() {
+        BPlusTree tree = new BPlusTree(BTreeNodeConstants.ORDER_3);
+        for (int key : new int[] { 10, 20, 5, 15, 25, 30, 35, 26, 28, 14, 18, 16, 0, -3 }) {
+            assertTrue(tree.add(key));
+        }
+        assertFalse(tree.add(15));
+        assertEquals(14, tree.size());
+        assertTrue(tree.contains(0));
+        assertTrue(tree.contains(-3));
+        assertFalse(tree.contains(17));
+
+        assertTrue(tree.delete(15));
+        assertFalse(tree.delete(15));
+        assertFalse(tree.contains(15));
+        assertArrayEquals(new int[] { -3, 0, 5, 10, 14, 16, 18, 20, 25, 26, 28, 30, 35 }, tree.stream().toArray());
+    }
+
+    @ParameterizedTest(name = "Order: {0}")
+    @ValueSource(ints = { 3, 4, 5, 16 })
+    @DisplayName("Random adds and deletes behave as a TreeSet")
+    void randomOperationsTest(int order) {
+        BPlusTree tree = new BPlusTree(order);
+        TreeSet<Integer> expected = new TreeSet<>();
+        Random random = new Random(order);
+
+        for (int i = 0; i < 20_000; i++) {
+            int key = random.nextInt(2_000) - 1_000;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), tree.delete(key));
+            } else {
+                assertEquals(expected.add(key), tree.add(key));
+            }
+            assertEquals(expected.size(), tree.size());
+        }
+        for (int key = -1_000; key < 1_000; key++) {
+            assertEquals(expected.contains(key), tree.contains(key));
+        }
+        assertArrayEquals(expected.stream().mapToInt(Integer::intValue).toArray(), tree.stream().toArray());
+        // leaves are linked in both directions
+        IBTreeCursor cursor = tree.cursor();
+        cursor.seekLast();
+        for (int key : expected.descendingSet()) {
+            assertEquals(key, cursor.previous());
+        }
+        assertFalse(cursor.hasPrevious());
+    }
+
+    @Test
+    @DisplayName("Range scans and navigation follow the leaves")
+    void rangeTest() {
+        BPlusTree tree = new BPlusTree(BTreeNodeConstants.ORDER_4);
+        for (int i = 100; i >= 1; i--) {
+            tree.add(i * 10);
+        }
+        assertArrayEquals(new int[] { 150, 160, 170, 180, 190, 200 }, tree.range(145, 200).toArray());
+        assertEquals(0, tree.range(151, 159).count());
+        assertEquals(OptionalInt.of(10), tree.first());
+        assertEquals(OptionalInt.of(1000), tree.last());
+        assertEquals(OptionalInt.of(160), tree.ceiling(151));
+        assertEquals(OptionalInt.of(150), tree.floor(159));
+        assertEquals(OptionalInt.empty(), tree.floor(9));
+
+        // separators of removed keys still route to the right leaf
+        for (int i = 1; i <= 100; i += 2) {
+            tree.delete(i * 10);
+        }
+        assertArrayEquals(new int[] { 160, 180, 200 }, tree.range(145, 200).toArray());
+        assertEquals(OptionalInt.of(20), tree.first());
+    }
+
+    @Test
+    @DisplayName("Deleting every key leaves an empty tree")
+    void deleteAllTest() {
+        BPlusTree tree = new BPlusTree(BTreeNodeConstants.ORDER_3);
+        for (int i = 0; i < 1_000; i++) {
+            tree.add(i);
+        }
+        for (int i = 0; i < 1_000; i++) {
+            assertTrue(tree.delete(i));
+        }
+        assertTrue(tree.isEmpty());
+        assertFalse(tree.cursor().hasNext());
+        assertEquals(OptionalInt.empty(), tree.last());
+    }
+
+}
@@ -0,0 +1,92 @@
+package com.cristianpeter.btree.bulk;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import com.cristianpeter.btree.constants.BTreeNodeConstants;
+import com.cristianpeter.btree.core.BTreeNode;
+
+class BTreeBulkLoaderTest {
+
+    @ParameterizedTest(name = "Order: {0}, keys: {1}, fill factor: {2}")
+    @CsvSource({ "3, 0, 1.0", "3, 3, 1.0", "3, 4, 1.0", "3, 1000, 1.0", "3, 1000, 0.5", "4, 777, 0.75", "5, 10000, 0.1",
+            "16, 12345, 1.0", "16, 12345, 0.7", "64, 100000, 0.9", "256, 65, 1.0" })
+    @DisplayName("Loaded tree keeps the keys in order and all the btree properties")
+    void loadTest(int order, int size, double fillFactor) {
+        int[] keys = IntStream.range(0, size).map(i -> i * 3 - size).toArray();
+        BTreeNode root = new BTreeBulkLoader(order, fillFactor).load(keys);
+
+        assertEquals(Arrays.stream(keys).mapToObj(String::valueOf).collect(Collectors.joining(" -> ")), root.inOrder());
+        checkNode(root, Long.MIN_VALUE, Long.MAX_VALUE);
+        leafDepth(root);
+    }
+
+    @Test
+    @DisplayName("Full fill factor packs the leaves")
+    void packedLeavesTest() {
+        BTreeNode root = new BTreeBulkLoader(BTreeNodeConstants.ORDER_4, 1.0).load(IntStream.range(0, 24));
+        // 24 keys, 5 full leaves and the 4 separators in the root
+        assertEquals(4, root.getKeysSize());
+        assertEquals(5, root.getChildrenSize());
+        for (int i = 0; i < root.getChildrenSize(); i++) {
+            assertTrue(root.getChild(i).isLeaf());
+            assertEquals(4, root.getChild(i).getKeysSize());
+        }
+    }
+
+    @Test
+    @DisplayName("Unsorted keys or duplicates are rejected")
+    void unsortedKeysTest() {
+        BTreeBulkLoader loader = new BTreeBulkLoader(BTreeNodeConstants.ORDER_3, 1.0);
+        assertThrows(IllegalArgumentException.class, () -> loader.load(new int[] { 1, 3, 2 }));
+        assertThrows(IllegalArgumentException.class, () -> loader.load(new int[] { 1, 2, 2 }));
+        assertThrows(IllegalArgumentException.class, () -> new BTreeBulkLoader(BTreeNodeConstants.ORDER_3, 0));
+    }
+
+    private static void checkNode(BTreeNode node, long lower, long upper) {
+        if (!node.isRoot()) {
+            assertTrue(node.getKeysSize() >= node.getMinKeys(), "node under minimum keys");
+        }
+        assertTrue(node.getKeysSize() <= node.getMaxKeys(), "node over maximum keys");
+        for (int i = 0; i < node.getKeysSize(); i++) {
+            assertTrue(node.getKey(i) > lower && node.getKey(i) < upper, "key out of the node range");
+            if (i > 0) {
+                assertTrue(node.getKey(i - 1) < node.getKey(i), "keys not sorted");
+            }
+        }
+        if (node.isLeaf()) {
+            return;
+        }
+        assertEquals(node.getKeysSize() + 1, node.getChildrenSize());
+        for (int i = 0; i < node.getChildrenSize(); i++) {
+            BTreeNode child = node.getChild(i);
+            assertSame(node, child.getParent());
+            long childLower = i == 0 ? lower : node.getKey(i - 1);
+            long childUpper = i == node.getKeysSize() ? upper : node.getKey(i);
+            checkNode(child, childLower, childUpper);
+        }
+    }
+
+    private static int leafDepth(BTreeNode node) {
+        if (node.isLeaf()) {
+            return 0;
+        }
+        int depth = leafDepth(node.getChild(0));
+        for (int i = 1; i < node.getChildrenSize(); i++) {
+            assertEquals(depth, leafDepth(node.getChild(i)), "leaves at different depth");
+        }
+        return depth + 1;
+    }
+
+}
@@ -0,0 +1,161 @@
+package com.cristianpeter.btree.bytes;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class ByteKeyBTreeTest {
+
+    @ParameterizedTest(name = "Page size: {0}")
+    @ValueSource(ints = { 256, 1024, 4096 })
+    @DisplayName("Random adds and deletes keep the same keys as a sorted set")
+    void randomOperationsTest(int pageSize) {
+        ByteKeyBTree tree = new ByteKeyBTree(pageSize);
+        TreeSet<byte[]> expected = new TreeSet<>(Arrays::compareUnsigned);
+        Random random = new Random(pageSize);
+        for (int i = 0; i < 30_000; i++) {
+            byte[] key = randomKey(random, tree.getMaxKeyLength());
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), tree.delete(key));
+            } else {
+                assertEquals(expected.add(key), tree.add(key));
+            }
+        }
+        assertEquals(expected.size(), tree.size());
+        assertKeys(expected.iterator(), tree.iterator());
+        for (byte[] key : expected) {
+            assertTrue(tree.contains(key));
+        }
+
+        // delete everything, nodes merge back to a single leaf
+        for (byte[] key : new ArrayList<>(expected)) {
+            assertTrue(tree.delete(key));
+        }
+        assertTrue(tree.isEmpty());
+        assertFalse(tree.iterator().hasNext());
+        assertEquals(1, tree.height());
+    }
+
+    @Test
+    @DisplayName("Iterator from a key starts at the lowest key greater or equal than it")
+    void iteratorFromTest() {
+        ByteKeyBTree tree = new ByteKeyBTree(256);
+        TreeSet<byte[]> expected = new TreeSet<>(Arrays::compareUnsigned);
+        for (int i = 0; i < 2_000; i += 2) {
+            byte[] key = ByteKeys.of("key-" + i);
+            tree.add(key);
+            expected.add(key);
+        }
+        for (String from : new String[] { "", "key-", "key-1", "key-998", "key-999", "z" }) {
+            byte[] key = ByteKeys.of(from);
+            assertKeys(expected.tailSet(key, true).iterator(), tree.iterator(key));
+        }
+    }
+
+    @Test
+    @DisplayName("Keys with a long shared prefix fill nodes and keep the tree low")
+    void sharedPrefixTest() {
+        ByteKeyBTree tree = new ByteKeyBTree();
+        int count = 100_000;
+        long rawBytes = 0;
+        for (int i = 0; i < count; i++) {
+            byte[] key = ByteKeys.of("https://www.example.com/catalog/products/category/electronics/item?id=" + i);
+            rawBytes += key.length;
+            tree.add(key);
+        }
+        assertEquals(count, tree.size());
+        // about 70 bytes per key without prefix compression, the pages take less than half of that
+        assertTrue((long) tree.getNodeCount() * tree.getPageSize() < rawBytes / 2,
+                tree.getNodeCount() + " pages for " + rawBytes + " bytes of keys");
+        assertTrue(tree.height() <= 3, "height " + tree.height());
+        assertTrue(tree.contains(ByteKeys.of("https://www.example.com/catalog/products/category/electronics/item?id=4242")));
+        assertFalse(tree.contains(ByteKeys.of("https://www.example.com/catalog/products/category/electronics/item?id=")));
+    }
+
+    @Test
+    @DisplayName("A key that breaks the prefix of a full node goes alone to its half of the split")
+    void prefixBreakTest() {
+        ByteKeyBTree tree = new ByteKeyBTree(256);
+        byte[] prefix = new byte[50];
+        Arrays.fill(prefix, (byte) 'p');
+        List<byte[]> keys = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            byte[] key = Arrays.copyOf(prefix, 52);
+            key[50] = (byte) (i / 10);
+            key[51] = (byte) i;
+            keys.add(key);
+            tree.add(key);
+        }
+        tree.add(new byte[] { 'a' });
+        tree.add(new byte[] { 'z' });
+        keys.add(0, new byte[] { 'a' });
+        keys.add(new byte[] { 'z' });
+        assertKeys(keys.iterator(), tree.iterator());
+    }
+
+    @Test
+    @DisplayName("Encoded numbers and composite keys keep the order of their values")
+    void byteKeysOrderTest() {
+        int[] ints = { Integer.MIN_VALUE, -5, -1, 0, 1, 300, Integer.MAX_VALUE };
+        for (int i = 1; i < ints.length; i++) {
+            assertTrue(Arrays.compareUnsigned(ByteKeys.of(ints[i - 1]), ByteKeys.of(ints[i])) < 0);
+        }
+        long[] longs = { Long.MIN_VALUE, -1L << 40, -1, 0, 1L << 40, Long.MAX_VALUE };
+        for (int i = 1; i < longs.length; i++) {
+            assertTrue(Arrays.compareUnsigned(ByteKeys.of(longs[i - 1]), ByteKeys.of(longs[i])) < 0);
+        }
+
+        byte[][] composite = { ByteKeys.composite(ByteKeys.of("a"), ByteKeys.of(2)),
+                ByteKeys.composite(new byte[] { 'a', 0 }, ByteKeys.of(1)), ByteKeys.composite(ByteKeys.of("ab"), ByteKeys.of(0)),
+                ByteKeys.composite(ByteKeys.of("b"), ByteKeys.of(-1)) };
+        ByteKeyBTree tree = new ByteKeyBTree();
+        for (int i = composite.length - 1; i >= 0; i--) {
+            tree.add(composite[i]);
+        }
+        assertKeys(Arrays.asList(composite).iterator(), tree.iterator());
+    }
+
+    @Test
+    @DisplayName("Page size and key length are checked")
+    void limitsTest() {
+        assertThrows(IllegalArgumentException.class, () -> new ByteKeyBTree(ByteKeyBTree.MIN_PAGE_SIZE - 1));
+        assertThrows(IllegalArgumentException.class, () -> new ByteKeyBTree(ByteKeyBTree.MAX_PAGE_SIZE + 1));
+        ByteKeyBTree tree = new ByteKeyBTree(256);
+        assertTrue(tree.add(new byte[tree.getMaxKeyLength()]));
+        assertThrows(IllegalArgumentException.class, () -> tree.add(new byte[tree.getMaxKeyLength() + 1]));
+        assertTrue(tree.add(new byte[0]));
+        assertTrue(tree.contains(new byte[0]));
+    }
+
+    private static byte[] randomKey(Random random, int maxLength) {
+        // few first bytes, so many keys share prefixes
+        byte[] key = new byte[random.nextInt(Math.min(maxLength, 40) + 1)];
+        for (int i = 0; i < key.length; i++) {
+            key[i] = (byte) (i < 3 ? random.nextInt(3) : random.nextInt(256));
+        }
+        return key;
+    }
+
+    private static void assertKeys(Iterator<byte[]> expected, Iterator<byte[]> actual) {
+        while (expected.hasNext()) {
+            assertTrue(actual.hasNext());
+            assertArrayEquals(expected.next(), actual.next());
+        }
+        assertFalse(actual.hasNext());
+    }
+
+}
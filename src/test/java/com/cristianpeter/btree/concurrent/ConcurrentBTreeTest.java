@@ -0,0 +1,133 @@
+package com.cristianpeter.btree.concurrent;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalInt;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import com.cristianpeter.btree.constants.BTreeNodeConstants;
+import com.cristianpeter.btree.contracts.IBTreeCursor;
+
+class ConcurrentBTreeTest {
+
+    private static final int THREADS = 4;
+
+    @ParameterizedTest(name = "Order: {0}")
+    @ValueSource(ints = { 3, 4, 5, 16 })
+    @DisplayName("Random adds and deletes on one thread behave as a TreeSet")
+    void randomOperationsTest(int order) {
+        ConcurrentBTree tree = new ConcurrentBTree(order);
+        TreeSet<Integer> expected = new TreeSet<>();
+        Random random = new Random(order);
+
+        for (int i = 0; i < 20_000; i++) {
+            int key = random.nextInt(2_000) - 1_000;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), tree.delete(key));
+            } else {
+                assertEquals(expected.add(key), tree.add(key));
+            }
+        }
+        for (int key = -1_000; key < 1_000; key++) {
+            assertEquals(expected.contains(key), tree.contains(key));
+        }
+        assertArrayEquals(expected.stream().mapToInt(Integer::intValue).toArray(), tree.stream().toArray());
+        IBTreeCursor cursor = tree.cursor();
+        cursor.seekLast();
+        for (int key : expected.descendingSet()) {
+            assertEquals(key, cursor.previous());
+        }
+        assertFalse(cursor.hasPrevious());
+    }
+
+    @Test
+    @DisplayName("Navigation skips the leaves emptied by deletes")
+    void emptyLeavesTest() {
+        ConcurrentBTree tree = new ConcurrentBTree(BTreeNodeConstants.ORDER_3);
+        IntStream.range(0, 1_000).forEach(tree::add);
+        IntStream.range(10, 990).forEach(tree::delete);
+        assertArrayEquals(IntStream.concat(IntStream.range(0, 10), IntStream.range(990, 1_000)).toArray(),
+                tree.stream().toArray());
+        assertEquals(OptionalInt.of(990), tree.ceiling(10));
+        assertEquals(OptionalInt.of(9), tree.floor(989));
+        assertEquals(OptionalInt.of(999), tree.last());
+    }
+
+    @Test
+    @DisplayName("Concurrent writers add disjoint keys while readers always find the initial ones")
+    void concurrentWritersAndReadersTest() throws Exception {
+        ConcurrentBTree tree = new ConcurrentBTree(BTreeNodeConstants.ORDER_4);
+        int perThread = 20_000;
+        // the initial keys are negative, writers only add and remove positive ones
+        IntStream.range(1, 1_000).forEach(key -> tree.add(-key));
+        AtomicBoolean writing = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS * 2);
+        try {
+            List<Future<Boolean>> readers = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                readers.add(executor.submit(() -> {
+                    boolean ok = true;
+                    while (writing.get()) {
+                        for (int key = 1; key < 1_000; key += 7) {
+                            ok &= tree.contains(-key);
+                        }
+                        int[] scanned = tree.range(Integer.MIN_VALUE, Integer.MAX_VALUE).toArray();
+                        for (int i = 1; i < scanned.length; i++) {
+                            ok &= scanned[i - 1] < scanned[i];
+                        }
+                    }
+                    return ok;
+                }));
+            }
+            List<Future<Boolean>> writers = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                Callable<Boolean> writer = () -> {
+                    boolean ok = true;
+                    for (int i = 0; i < perThread; i++) {
+                        ok &= tree.add(i * THREADS + thread + 1);
+                    }
+                    // remove the odd ones again
+                    for (int i = 1; i < perThread; i += 2) {
+                        ok &= tree.delete(i * THREADS + thread + 1);
+                    }
+                    return ok;
+                };
+                writers.add(executor.submit(writer));
+            }
+            for (Future<Boolean> writer : writers) {
+                assertTrue(writer.get());
+            }
+            writing.set(false);
+            for (Future<Boolean> reader : readers) {
+                assertTrue(reader.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        IntStream added = IntStream.range(0, perThread)
+                .filter(i -> i % 2 == 0)
+                .flatMap(i -> IntStream.range(0, THREADS).map(t -> i * THREADS + t + 1));
+        int[] expected = IntStream.concat(IntStream.range(1, 1_000).map(key -> -key), added).sorted().toArray();
+        assertArrayEquals(expected, tree.stream().toArray());
+    }
+
+}
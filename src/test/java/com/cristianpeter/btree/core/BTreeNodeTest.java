@@ -1,6 +1,7 @@
 package com.cristianpeter.btree.core;
 
 import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
@@ -40,6 +41,21 @@ class BTreeNodeTest {
                 () -> assertEquals(1, node.getKeysSize()));
     }
 
+    @Test
+    @DisplayName("Add keys out of order keeps them sorted")
+    void addKeySortedTest() {
+        BTreeNode node = new BTreeNode(BTreeNodeConstants.ORDER_4, null);
+        assertEquals(0, node.addKey(30));
+        assertEquals(0, node.addKey(10));
+        assertEquals(2, node.addKey(40));
+        assertEquals(1, node.addKey(20));
+        assertEquals(4, node.addKey(50));
+
+        assertAll("Sorted keys", () -> assertEquals(10, node.getKey(0)), () -> assertEquals(20, node.getKey(1)),
+                () -> assertEquals(30, node.getKey(2)), () -> assertEquals(40, node.getKey(3)),
+                () -> assertEquals(50, node.getKey(4)), () -> assertEquals(5, node.getKeysSize()));
+    }
+
     // Nested classes need to be separated with $, not .: example.JUnitNestedMethodSourceTests$Source#getArgs.
     @ParameterizedTest(name = "Add child: {0}")
     @MethodSource(value = "com.cristianpeter.btree.providers.BTreeNodeProvider#provideChildrenWithExpectations")
@@ -207,6 +223,32 @@ class BTreeNodeTest {
         assertTrue(leaf.isLeaf());
     }
 
+    @Test
+    @DisplayName("Changes of a child clear the kept counts up to the root")
+    void countKeysAfterChangesTest() throws KeyNotFoundException {
+        int order = BTreeNodeConstants.ORDER_4;
+        BTreeNode root = new BTreeNode(order, null);
+        BTreeNode left = new BTreeNode(order, root);
+        BTreeNode right = new BTreeNode(order, root);
+        root.addKey(10);
+        left.addKey(5);
+        right.addKey(15);
+        right.addKey(20);
+        root.addChild(0, left);
+        root.addChild(1, right);
+        assertEquals(4, root.countKeys());
+
+        right.addKey(25);
+        assertEquals(5, root.countKeys());
+        left.removeFirstKey();
+        right.removeByKey(15);
+        assertEquals(3, root.countKeys());
+        assertEquals(2, right.countKeys());
+
+        root.removeChildAt(0);
+        assertEquals(3, root.countKeys());
+    }
+
     @Test
     @DisplayName("can remove lower key")
     void removeLowerKeyTest() {
@@ -222,6 +264,26 @@ class BTreeNodeTest {
         assertEquals(3, node.getKeysSize());
     }
 
+    @Test
+    @DisplayName("remove lower key keeps the node capacity")
+    void removeLowerKeyKeepsCapacityTest() {
+        int order = BTreeNodeConstants.ORDER_4;
+        BTreeNode node = new BTreeNode(order, null);
+        for (int key = 1; key <= order; key++) {
+            node.addKey(key);
+        }
+
+        assertEquals(1, node.removeFirstKey());
+        assertEquals(order + 1, node.getKeys().length);
+        assertEquals(0, node.getKey(order - 1));
+
+        // the node can still overflow by one key before a split
+        node.addKey(order + 1);
+        node.addKey(order + 2);
+        assertTrue(node.keysOverflowing());
+        assertArrayEquals(new int[] { 2, 3, 4, 5, 6 }, node.getKeyRange(0, node.getKeysSize()));
+    }
+
     @Test
     @DisplayName("can remove lower key")
     void removeGreaterKeyTest() {
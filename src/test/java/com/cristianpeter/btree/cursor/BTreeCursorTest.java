@@ -0,0 +1,119 @@
+package com.cristianpeter.btree.cursor;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.NoSuchElementException;
+import java.util.OptionalInt;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import com.cristianpeter.btree.BTree;
+import com.cristianpeter.btree.constants.BTreeNodeConstants;
+import com.cristianpeter.btree.contracts.IBTreeCursor;
+import com.cristianpeter.btree.exceptions.KeyNotFoundException;
+import com.cristianpeter.btree.exceptions.NodeNotFoundException;
+
+class BTreeCursorTest {
+
+    // multiples of 10 from 10 to 1000, added in a shuffled order
+    private static BTree tree(int order) throws NodeNotFoundException {
+        BTree tree = new BTree(order);
+        for (int i = 0; i < 100; i++) {
+            tree.add((i * 37 % 100 + 1) * 10);
+        }
+        return tree;
+    }
+
+    @ParameterizedTest(name = "Order: {0}")
+    @ValueSource(ints = { 3, 4, 5, 16 })
+    @DisplayName("Cursor walks all the keys forward and backward")
+    void forwardAndBackwardTest(int order) throws NodeNotFoundException {
+        BTree tree = tree(order);
+        IBTreeCursor cursor = tree.cursor();
+        for (int i = 1; i <= 100; i++) {
+            assertEquals(i * 10, cursor.nextInt());
+        }
+        assertFalse(cursor.hasNext());
+        for (int i = 100; i >= 1; i--) {
+            assertEquals(i * 10, cursor.previous());
+        }
+        assertFalse(cursor.hasPrevious());
+        assertThrows(NoSuchElementException.class, cursor::previous);
+        assertEquals(10, cursor.nextInt());
+    }
+
+    @ParameterizedTest(name = "Order: {0}")
+    @ValueSource(ints = { 3, 4, 5, 16 })
+    @DisplayName("Seek puts the cursor just before the ceiling of the key")
+    void seekTest(int order) throws NodeNotFoundException {
+        IBTreeCursor cursor = tree(order).cursor();
+        for (int key = 0; key <= 1001; key++) {
+            cursor.seek(key);
+            int ceiling = (key + 9) / 10 * 10;
+            if (ceiling == 0) {
+                ceiling = 10;
+            }
+            if (ceiling > 1000) {
+                assertFalse(cursor.hasNext());
+            } else {
+                assertEquals(ceiling, cursor.nextInt());
+                // back to the same key
+                assertEquals(ceiling, cursor.previous());
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Range, first, last, ceiling and floor")
+    void navigationTest() throws NodeNotFoundException {
+        BTree tree = tree(BTreeNodeConstants.ORDER_3);
+        assertArrayEquals(new int[] { 150, 160, 170, 180, 190, 200 }, tree.range(145, 200).toArray());
+        assertArrayEquals(new int[] { 10 }, tree.range(Integer.MIN_VALUE, 10).toArray());
+        assertEquals(0, tree.range(151, 159).count());
+        assertEquals(0, tree.range(200, 100).count());
+        assertEquals(100, tree.stream().count());
+        assertEquals(OptionalInt.of(10), tree.first());
+        assertEquals(OptionalInt.of(1000), tree.last());
+        assertEquals(OptionalInt.of(160), tree.ceiling(151));
+        assertEquals(OptionalInt.of(150), tree.ceiling(150));
+        assertEquals(OptionalInt.empty(), tree.ceiling(1001));
+        assertEquals(OptionalInt.of(150), tree.floor(159));
+        assertEquals(OptionalInt.of(1000), tree.floor(Integer.MAX_VALUE));
+        assertEquals(OptionalInt.empty(), tree.floor(9));
+    }
+
+    @Test
+    @DisplayName("Empty tree has no keys")
+    void emptyTreeTest() {
+        BTree tree = new BTree(BTreeNodeConstants.ORDER_3);
+        assertFalse(tree.cursor().hasNext());
+        assertEquals(OptionalInt.empty(), tree.first());
+        assertEquals(OptionalInt.empty(), tree.last());
+        assertEquals(0, tree.range(Integer.MIN_VALUE, Integer.MAX_VALUE).count());
+    }
+
+    @Test
+    @DisplayName("Cursor follows the same order as inOrder after deletes")
+    void afterDeleteTest() throws NodeNotFoundException, KeyNotFoundException {
+        BTree tree = new BTree(BTreeNodeConstants.ORDER_3);
+        for (int key : new int[] { 679, 960, 518, 360, 46, 849, 243, 39, 321, 357, 201, 236, 717 }) {
+            tree.add(key);
+        }
+        tree.delete(236);
+        int[] expected = IntStream.of(39, 46, 201, 243, 321, 357, 360, 518, 679, 717, 849, 960).toArray();
+        assertArrayEquals(expected, tree.stream().toArray());
+        IBTreeCursor cursor = tree.cursor();
+        cursor.seekLast();
+        for (int i = expected.length - 1; i >= 0; i--) {
+            assertEquals(expected[i], cursor.previous());
+        }
+    }
+
+}
@@ -0,0 +1,144 @@
+package com.cristianpeter.btree.cursor;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.OptionalInt;
+import java.util.Spliterator;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import com.cristianpeter.btree.BTree;
+import com.cristianpeter.btree.exceptions.NodeNotFoundException;
+
+class BTreeSpliteratorTest {
+
+    // multiples of 10 from 10 to 10000, added in a shuffled order
+    private static BTree tree(int order) throws NodeNotFoundException {
+        BTree tree = new BTree(order);
+        for (int i = 0; i < 1000; i++) {
+            tree.add((i * 37 % 1000 + 1) * 10);
+        }
+        return tree;
+    }
+
+    private static int[] expected(int from, int to) {
+        return IntStream.rangeClosed(1, 1000).map(i -> i * 10).filter(key -> key >= from && key <= to).toArray();
+    }
+
+    @ParameterizedTest(name = "Order: {0}")
+    @ValueSource(ints = { 3, 4, 5, 16 })
+    @DisplayName("Parts of recursive splits give all the keys in order")
+    void splitsCoverAllKeysTest(int order) throws NodeNotFoundException {
+        IntStream.Builder keys = IntStream.builder();
+        int splits = split(tree(order).spliterator(), keys);
+
+        assertArrayEquals(expected(Integer.MIN_VALUE, Integer.MAX_VALUE), keys.build().toArray());
+        assertTrue(splits > 10, "splits " + splits);
+    }
+
+    @ParameterizedTest(name = "Order: {0}")
+    @ValueSource(ints = { 3, 4, 5, 16 })
+    @DisplayName("Bounded spliterator only gives the keys between the bounds")
+    void boundsTest(int order) throws NodeNotFoundException {
+        BTree tree = tree(order);
+        int[][] bounds = { { 0, 10001 }, { 10, 10000 }, { 15, 9995 }, { 4321, 4321 }, { 4320, 4320 }, { 7000, 100 },
+                { Integer.MIN_VALUE, 55 }, { 9990, Integer.MAX_VALUE } };
+        for (int[] bound : bounds) {
+            int[] expected = expected(bound[0], bound[1]);
+            assertArrayEquals(expected, tree.range(bound[0], bound[1]).toArray());
+
+            IntStream.Builder keys = IntStream.builder();
+            split(tree.spliterator(bound[0], bound[1]), keys);
+            assertArrayEquals(expected, keys.build().toArray());
+        }
+    }
+
+    @Test
+    @DisplayName("A split after tryAdvance keeps the order")
+    void tryAdvanceThenSplitTest() throws NodeNotFoundException {
+        Spliterator.OfInt spliterator = tree(3).spliterator();
+        IntStream.Builder keys = IntStream.builder();
+        for (int i = 0; i < 5; i++) {
+            assertTrue(spliterator.tryAdvance(keys));
+        }
+        Spliterator.OfInt prefix = spliterator.trySplit();
+        if (prefix != null) {
+            prefix.forEachRemaining(keys);
+        }
+        spliterator.forEachRemaining(keys);
+
+        assertArrayEquals(expected(Integer.MIN_VALUE, Integer.MAX_VALUE), keys.build().toArray());
+    }
+
+    @Test
+    @DisplayName("Size of the parts of a split and split of an empty tree")
+    void estimateTest() throws NodeNotFoundException {
+        BTree full = BTree.bulkLoad(16, IntStream.range(0, 100_000).toArray());
+        Spliterator.OfInt spliterator = full.spliterator();
+        assertEquals(100_000, spliterator.getExactSizeIfKnown());
+        assertTrue(spliterator.hasCharacteristics(Spliterator.SORTED | Spliterator.DISTINCT));
+        assertTrue(spliterator.hasCharacteristics(Spliterator.SIZED | Spliterator.SUBSIZED));
+        assertNull(spliterator.getComparator());
+
+        Spliterator.OfInt prefix = spliterator.trySplit();
+        assertNotNull(prefix);
+        assertTrue(prefix.hasCharacteristics(Spliterator.SIZED | Spliterator.SUBSIZED));
+        assertEquals(100_000, spliterator.estimateSize() + prefix.estimateSize());
+        long size = prefix.estimateSize();
+        IntStream.Builder keys = IntStream.builder();
+        prefix.forEachRemaining(keys);
+        assertEquals(size, keys.build().count());
+
+        Spliterator.OfInt bounded = full.spliterator(10, 20);
+        assertEquals(-1, bounded.getExactSizeIfKnown());
+        assertTrue(bounded.estimateSize() >= 11);
+
+        Spliterator.OfInt empty = new BTree(3).spliterator();
+        assertNull(empty.trySplit());
+        assertEquals(0, empty.estimateSize());
+    }
+
+    @Test
+    @DisplayName("Parallel aggregates give the same results as a sequential walk")
+    void parallelAggregatesTest() throws NodeNotFoundException {
+        BTree tree = tree(5);
+        assertEquals(1000, tree.parallelStream().count());
+        assertEquals(IntStream.of(expected(15, 9995)).count(), tree.parallelCount(15, 9995));
+        assertEquals(IntStream.of(expected(0, 10000)).asLongStream().sum(), tree.parallelSum(0, 10000));
+        assertEquals(10000, tree.parallelReduce(Integer.MIN_VALUE, Math::max));
+        assertArrayEquals(expected(100, 5000), tree.parallelRange(100, 5000).toArray());
+        assertArrayEquals(expected(Integer.MIN_VALUE, Integer.MAX_VALUE), tree.parallelStream().toArray());
+
+        assertEquals(OptionalInt.of(20), tree.min(11, 100));
+        assertEquals(OptionalInt.of(100), tree.max(11, 105));
+        assertEquals(OptionalInt.empty(), tree.min(11, 19));
+        assertEquals(OptionalInt.empty(), tree.max(10001, 20000));
+    }
+
+    /**
+     * Split until no part can be split, and visit the parts in order, a SIZED part must give as many keys as its size
+     * 
+     * @return number of splits
+     */
+    private static int split(Spliterator.OfInt spliterator, IntStream.Builder keys) {
+        Spliterator.OfInt prefix = spliterator.trySplit();
+        if (prefix == null) {
+            long size = spliterator.getExactSizeIfKnown();
+            int[] part = StreamSupport.intStream(spliterator, false).toArray();
+            assertTrue(size < 0 || size == part.length, "size " + size + " keys " + part.length);
+            IntStream.of(part).forEach(keys);
+            return 0;
+        }
+        return 1 + split(prefix, keys) + split(spliterator, keys);
+    }
+
+}
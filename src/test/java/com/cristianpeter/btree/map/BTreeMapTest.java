@@ -0,0 +1,59 @@
+package com.cristianpeter.btree.map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.cristianpeter.btree.constants.BTreeNodeConstants;
+
+class BTreeMapTest {
+
+    @Test
+    @DisplayName("Compute adds, updates and removes values")
+    void computeTest() {
+        BTreeMap<String, Integer> map = new BTreeMap<>(BTreeNodeConstants.ORDER_3);
+        for (String word : "the quick fox jumps over the lazy dog the end".split(" ")) {
+            map.compute(word, (key, count) -> count == null ? 1 : count + 1);
+        }
+        assertEquals(3, map.get("the"));
+        assertEquals(1, map.get("fox"));
+        assertEquals(8, map.size());
+
+        assertNull(map.compute("fox", (key, count) -> null));
+        assertFalse(map.containsKey("fox"));
+        assertEquals(7, map.size());
+        assertEquals(1, map.putIfAbsent("dog", 5));
+        assertNull(map.putIfAbsent("cat", 5));
+        assertEquals(5, map.get("cat"));
+    }
+
+    @Test
+    @DisplayName("Random puts and removes with a comparator behave as a HashMap")
+    void randomOperationsTest() {
+        BTreeMap<Integer, String> map = new BTreeMap<>(BTreeNodeConstants.ORDER_4, Comparator.reverseOrder());
+        Map<Integer, String> expected = new HashMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 10_000; i++) {
+            int key = random.nextInt(500);
+            if (random.nextBoolean()) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                String value = String.valueOf(random.nextInt());
+                assertEquals(expected.put(key, value), map.put(key, value));
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        for (int key = 0; key < 500; key++) {
+            assertEquals(expected.get(key), map.get(key));
+        }
+    }
+
+}
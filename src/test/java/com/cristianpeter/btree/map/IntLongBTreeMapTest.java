@@ -0,0 +1,90 @@
+package com.cristianpeter.btree.map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import com.cristianpeter.btree.constants.BTreeNodeConstants;
+
+class IntLongBTreeMapTest {
+
+    private static final long NO_ENTRY = -1L;
+
+    @Test
+    @DisplayName("Put, get and replace values")
+    void putGetTest() {
+        IntLongBTreeMap map = new IntLongBTreeMap(BTreeNodeConstants.ORDER_3, NO_ENTRY);
+        assertEquals(NO_ENTRY, map.put(10, 100L));
+        assertEquals(NO_ENTRY, map.put(-5, 50L));
+        assertEquals(NO_ENTRY, map.put(0, 0L));
+        assertEquals(100L, map.put(10, 1000L));
+
+        assertEquals(1000L, map.get(10));
+        assertEquals(50L, map.get(-5));
+        assertEquals(0L, map.get(0));
+        assertEquals(NO_ENTRY, map.get(7));
+        assertEquals(70L, map.getOrDefault(7, 70L));
+        assertTrue(map.containsKey(0));
+        assertFalse(map.containsKey(7));
+        assertEquals(3, map.size());
+    }
+
+    @Test
+    @DisplayName("Put if absent and compute")
+    void putIfAbsentAndComputeTest() {
+        IntLongBTreeMap map = new IntLongBTreeMap(BTreeNodeConstants.ORDER_4, NO_ENTRY);
+        assertEquals(NO_ENTRY, map.putIfAbsent(1, 10L));
+        assertEquals(10L, map.putIfAbsent(1, 20L));
+        assertEquals(10L, map.get(1));
+
+        // count occurrences, the absent key receives the no entry value
+        for (int i = 0; i < 5; i++) {
+            map.compute(2, (key, value) -> value == NO_ENTRY ? 1 : value + 1);
+        }
+        assertEquals(5L, map.get(2));
+        assertEquals(12L, map.compute(1, (key, value) -> value + key + 1));
+        assertEquals(2, map.size());
+    }
+
+    @ParameterizedTest(name = "Order: {0}")
+    @ValueSource(ints = { 3, 4, 5, 16 })
+    @DisplayName("Random puts and removes behave as a HashMap")
+    void randomOperationsTest(int order) {
+        IntLongBTreeMap map = new IntLongBTreeMap(order, NO_ENTRY);
+        Map<Integer, Long> expected = new HashMap<>();
+        Random random = new Random(order);
+
+        for (int i = 0; i < 20_000; i++) {
+            int key = random.nextInt(2_000) - 1_000;
+            if (random.nextInt(3) == 0) {
+                Long removed = expected.remove(key);
+                assertEquals(removed == null ? NO_ENTRY : removed, map.remove(key));
+            } else {
+                long value = random.nextLong();
+                Long previous = expected.put(key, value);
+                assertEquals(previous == null ? NO_ENTRY : previous, map.put(key, value));
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        for (int key = -1_000; key < 1_000; key++) {
+            assertEquals(expected.getOrDefault(key, NO_ENTRY), map.get(key));
+        }
+
+        // remove everything, the tree must shrink back to an empty root
+        for (int key : expected.keySet()) {
+            assertEquals(expected.get(key), map.remove(key));
+        }
+        assertTrue(map.isEmpty());
+        assertEquals(NO_ENTRY, map.get(0));
+    }
+
+}
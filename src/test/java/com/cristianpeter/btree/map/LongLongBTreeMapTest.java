@@ -0,0 +1,39 @@
+package com.cristianpeter.btree.map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.cristianpeter.btree.constants.BTreeNodeConstants;
+
+class LongLongBTreeMapTest {
+
+    @Test
+    @DisplayName("Keys out of the int range are stored and removed")
+    void wideKeysTest() {
+        LongLongBTreeMap map = new LongLongBTreeMap(BTreeNodeConstants.ORDER_3);
+        TreeMap<Long, Long> expected = new TreeMap<>();
+        for (long i = 0; i < 2_000; i++) {
+            long key = (i * 7_919L) % 2_000 * 10_000_000_000L - Long.MAX_VALUE / 2;
+            map.put(key, i);
+            expected.put(key, i);
+        }
+        assertEquals(expected.size(), map.size());
+        expected.forEach((key, value) -> assertEquals(value, map.get(key)));
+
+        for (long key : expected.keySet()) {
+            if (key % 3 == 0) {
+                assertEquals(expected.get(key), map.remove(key));
+            }
+        }
+        expected.keySet().removeIf(key -> key % 3 == 0);
+        assertEquals(expected.size(), map.size());
+        expected.forEach((key, value) -> assertTrue(map.containsKey(key)));
+        assertEquals(0L, map.get(Long.MIN_VALUE));
+    }
+
+}
@@ -0,0 +1,180 @@
+package com.cristianpeter.btree.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.cristianpeter.btree.BTree;
+import com.cristianpeter.btree.constants.BTreeNodeConstants;
+import com.cristianpeter.btree.contracts.IBTreeMetricsListener;
+import com.cristianpeter.btree.enums.BTreeOperation;
+import com.cristianpeter.btree.exceptions.KeyNotFoundException;
+import com.cristianpeter.btree.exceptions.NodeNotFoundException;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+class BTreeMetricsTest {
+
+    @Test
+    void splitsAndLatencyTest() throws NodeNotFoundException {
+        BTree tree = new BTree(BTreeNodeConstants.ORDER_3);
+        BTreeMetrics metrics = new BTreeMetrics();
+        tree.setMetricsListener(metrics);
+        for (int key = 1; key <= 100; key++) {
+            tree.add(key);
+        }
+        tree.add(50);
+        tree.contains(50);
+
+        assertTrue(metrics.getLeafSplits() > 0);
+        assertTrue(metrics.getInnerSplits() > 0);
+        assertEquals(tree.height() - 1, metrics.getRootSplits());
+        assertEquals(101, metrics.getLatency(BTreeOperation.ADD).getCount());
+        assertEquals(1, metrics.getLatency(BTreeOperation.CONTAINS).getCount());
+        assertEquals(0, metrics.getLatency(BTreeOperation.DELETE).getCount());
+
+        metrics.sample(tree);
+        assertEquals(tree.height(), metrics.getHeight());
+        assertTrue(metrics.getFillFactor() > 0 && metrics.getFillFactor() <= 1);
+    }
+
+    @Test
+    void borrowAndMergeTest() throws NodeNotFoundException, KeyNotFoundException {
+        // same trees as BTreeTest leftSiblingLendKeyTest and internalNodeMergeRightLeftSibling
+        BTreeMetrics metrics = new BTreeMetrics();
+        BTree borrow = new BTree(BTreeNodeConstants.ORDER_3);
+        for (int key : new int[] { 679, 960, 518, 360, 46, 849, 243, 39, 321, 357, 201, 236, 717 }) {
+            borrow.add(key);
+        }
+        borrow.setMetricsListener(metrics);
+        borrow.delete(236);
+        assertEquals(1, metrics.getLeafBorrows());
+        assertEquals(0, metrics.getMerges());
+
+        metrics.reset();
+        BTree merge = new BTree(BTreeNodeConstants.ORDER_3);
+        for (int key : new int[] { 20, 40, 10, 30, 33, 50, 60, 5, 6, 7, 8 }) {
+            merge.add(key);
+        }
+        merge.setMetricsListener(metrics);
+        merge.delete(10);
+        assertEquals(0, metrics.getBorrows());
+        assertEquals(1, metrics.getLeafMerges());
+        assertEquals(1, metrics.getLatency(BTreeOperation.DELETE).getCount());
+    }
+
+    @Test
+    void sameResultWithListenerTest() throws NodeNotFoundException {
+        BTree measured = new BTree(BTreeNodeConstants.ORDER_4);
+        measured.setMetricsListener(new BTreeMetrics());
+        BTree plain = new BTree(BTreeNodeConstants.ORDER_4);
+        for (int i = 0; i < 1000; i++) {
+            int key = i * 7919 % 1000;
+            measured.add(key);
+            plain.add(key);
+        }
+        assertEquals(plain.preOrder(), measured.preOrder());
+
+        measured.setMetricsListener(null);
+        assertEquals(IBTreeMetricsListener.NOOP, measured.getMetricsListener());
+    }
+
+    @Test
+    void log2HistogramTest() {
+        Log2Histogram histogram = new Log2Histogram();
+        assertEquals(0, histogram.getQuantile(0.5));
+        for (long value : new long[] { 0, 1, 2, 3, 4, 1000, -5 }) {
+            histogram.record(value);
+        }
+
+        assertEquals(7, histogram.getCount());
+        assertEquals(2, histogram.getCount(0));
+        assertEquals(1, histogram.getCount(1));
+        assertEquals(2, histogram.getCount(2));
+        assertEquals(1, histogram.getCount(3));
+        assertEquals(1, histogram.getCount(10));
+        assertEquals(1010, histogram.getSum());
+        assertEquals(1000, histogram.getMax());
+        assertEquals(3, histogram.getQuantile(0.5));
+        assertEquals(1000, histogram.getQuantile(1));
+        assertEquals(63, Log2Histogram.bucket(Long.MAX_VALUE));
+        assertEquals(Long.MAX_VALUE, Log2Histogram.upperBound(63));
+    }
+
+    @Test
+    void untimedListenerTest() throws NodeNotFoundException {
+        int[] splits = { 0 };
+        int[] operations = { 0 };
+        BTree tree = new BTree(BTreeNodeConstants.ORDER_3);
+        tree.setMetricsListener(new IBTreeMetricsListener() {
+            @Override
+            public boolean timed() {
+                return false;
+            }
+
+            @Override
+            public void split(boolean leaf, boolean root) {
+                splits[0]++;
+            }
+
+            @Override
+            public void operation(BTreeOperation operation, long nanos) {
+                operations[0]++;
+            }
+        });
+        for (int key = 1; key <= 50; key++) {
+            tree.add(key);
+        }
+        tree.contains(10);
+
+        assertTrue(splits[0] > 0);
+        assertEquals(0, operations[0]);
+        // no recording is running
+        assertFalse(new BTreeJfrListener().timed());
+    }
+
+    @Test
+    void jfrEventsTest(@TempDir Path directory) throws Exception {
+        BTree tree = new BTree(BTreeNodeConstants.ORDER_3);
+        BTreeMetrics metrics = new BTreeMetrics();
+        Path file = directory.resolve("btree.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(BTreeJfrListener.SPLIT_EVENT);
+            recording.enable(BTreeJfrListener.OPERATION_EVENT);
+            recording.start();
+
+            BTreeJfrListener listener = new BTreeJfrListener();
+            assertTrue(listener.timed());
+            tree.setMetricsListener(listener);
+            for (int key = 1; key <= 50; key++) {
+                tree.add(key);
+            }
+            tree.setMetricsListener(metrics);
+            for (int key = 1; key <= 50; key++) {
+                tree.add(key + 50);
+            }
+
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        long splits = events.stream().filter(event -> event.getEventType().getName().equals(BTreeJfrListener.SPLIT_EVENT))
+                .count();
+        long operations = events.stream()
+                .filter(event -> event.getEventType().getName().equals(BTreeJfrListener.OPERATION_EVENT)).count();
+        assertTrue(Files.size(file) > 0);
+        assertTrue(splits > 0);
+        assertEquals(50, operations);
+    }
+
+}
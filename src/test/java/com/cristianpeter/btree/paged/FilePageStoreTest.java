@@ -0,0 +1,78 @@
+package com.cristianpeter.btree.paged;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class FilePageStoreTest {
+
+    private static final int PAGE_SIZE = 256;
+    // 16 frames, far less than the pages of the trees of these tests
+    private static final long BUDGET = 16 * PAGE_SIZE;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Random adds and deletes through a small buffer pool behave as a TreeSet")
+    void randomOperationsTest() throws IOException {
+        TreeSet<Integer> expected = new TreeSet<>();
+        Random random = new Random(42);
+        try (PagedBTree tree = new PagedBTree(new FilePageStore(directory.resolve("random.btree"), PAGE_SIZE, BUDGET), 5)) {
+            for (int i = 0; i < 20_000; i++) {
+                int key = random.nextInt(4_000) - 2_000;
+                if (random.nextInt(3) == 0) {
+                    assertEquals(expected.remove(key), tree.delete(key));
+                } else {
+                    assertEquals(expected.add(key), tree.add(key));
+                }
+            }
+            for (int key = -2_000; key < 2_000; key++) {
+                assertEquals(expected.contains(key), tree.contains(key));
+            }
+            assertTrue(((FilePageStore) tree.getStore()).getWrites() > 0);
+        }
+    }
+
+    @Test
+    @DisplayName("A reopened file keeps the keys and only reads the pages it needs")
+    void reopenTest() throws IOException {
+        Path file = directory.resolve("reopen.btree");
+        try (PagedBTree tree = new PagedBTree(new FilePageStore(file, PAGE_SIZE, BUDGET))) {
+            IntStream.range(0, 10_000).map(i -> i * 2).forEach(tree::add);
+        }
+
+        FilePageStore store = new FilePageStore(file, BUDGET);
+        try (PagedBTree tree = new PagedBTree(store)) {
+            assertEquals(PAGE_SIZE, store.getPageSize());
+            assertEquals(0, store.getReads());
+            assertTrue(tree.contains(5_000));
+            // one page per level, from the root to the leaf
+            assertTrue(store.getReads() <= 4);
+            assertEquals(10_000, tree.size());
+            assertArrayEquals(new int[] { 100, 102, 104 }, tree.range(99, 105).toArray());
+        }
+    }
+
+    @Test
+    @DisplayName("Invalid page sizes, budgets and files are rejected")
+    void invalidStoreTest() throws IOException {
+        Path file = directory.resolve("invalid.btree");
+        assertThrows(IllegalArgumentException.class, () -> new FilePageStore(file, 30, BUDGET));
+        assertThrows(IllegalArgumentException.class, () -> new FilePageStore(file, PAGE_SIZE, PAGE_SIZE));
+        new FilePageStore(file, PAGE_SIZE, BUDGET).close();
+        assertThrows(IllegalArgumentException.class, () -> new FilePageStore(file, PAGE_SIZE * 2, BUDGET));
+    }
+
+}
@@ -0,0 +1,107 @@
+package com.cristianpeter.btree.paged;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.OptionalInt;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import com.cristianpeter.btree.constants.BTreeNodeConstants;
+import com.cristianpeter.btree.contracts.IBTreeCursor;
+
+class PagedBTreeTest {
+
+    private static final int PAGE_SIZE = 256;
+
+    @ParameterizedTest(name = "Order: {0}")
+    @ValueSource(ints = { 3, 4, 5, 28 })
+    @DisplayName("Random adds and deletes off heap behave as a TreeSet")
+    void randomOperationsTest(int order) {
+        PagedBTree tree = new PagedBTree(new OffHeapPageStore(PAGE_SIZE), order);
+        TreeSet<Integer> expected = new TreeSet<>();
+        Random random = new Random(order);
+
+        for (int i = 0; i < 20_000; i++) {
+            int key = random.nextInt(2_000) - 1_000;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), tree.delete(key));
+            } else {
+                assertEquals(expected.add(key), tree.add(key));
+            }
+            assertEquals(expected.size(), tree.size());
+        }
+        for (int key = -1_000; key < 1_000; key++) {
+            assertEquals(expected.contains(key), tree.contains(key));
+        }
+        assertArrayEquals(expected.stream().mapToInt(Integer::intValue).toArray(), tree.stream().toArray());
+        IBTreeCursor cursor = tree.cursor();
+        cursor.seekLast();
+        for (int key : expected.descendingSet()) {
+            assertEquals(key, cursor.previous());
+        }
+        assertFalse(cursor.hasPrevious());
+    }
+
+    @Test
+    @DisplayName("Freed pages are allocated again")
+    void freedPagesTest() {
+        OffHeapPageStore store = new OffHeapPageStore(PAGE_SIZE);
+        PagedBTree tree = new PagedBTree(store, BTreeNodeConstants.ORDER_4);
+        IntStream.range(0, 5_000).forEach(tree::add);
+        int pages = store.getPageCount();
+        IntStream.range(0, 5_000).forEach(tree::delete);
+        assertTrue(tree.isEmpty());
+        IntStream.range(0, 5_000).forEach(tree::add);
+        assertEquals(pages, store.getPageCount());
+        assertEquals(OptionalInt.of(4_999), tree.last());
+    }
+
+    @Test
+    @DisplayName("A tree opened again on the same store keeps its keys and order")
+    void reopenTest() {
+        OffHeapPageStore store = new OffHeapPageStore(PAGE_SIZE);
+        PagedBTree tree = new PagedBTree(store, BTreeNodeConstants.ORDER_3);
+        IntStream.range(0, 1_000).map(i -> i * 3).forEach(tree::add);
+
+        PagedBTree reopened = new PagedBTree(store);
+        assertEquals(BTreeNodeConstants.ORDER_3, reopened.getOrder());
+        assertEquals(1_000, reopened.size());
+        assertArrayEquals(new int[] { 300, 303, 306 }, reopened.range(299, 308).toArray());
+    }
+
+    @Test
+    @DisplayName("Orders that do not fit in a page are rejected")
+    void invalidOrderTest() {
+        OffHeapPageStore store = new OffHeapPageStore(PAGE_SIZE);
+        assertEquals(28, PagedBTree.maxOrder(PAGE_SIZE));
+        assertThrows(IllegalArgumentException.class, () -> new PagedBTree(store, 29));
+        assertThrows(IllegalArgumentException.class, () -> new OffHeapPageStore(100));
+    }
+
+    @Test
+    @DisplayName("Copies inside a page move ints in both directions")
+    void copyIntsTest() {
+        OffHeapPageStore store = new OffHeapPageStore(PAGE_SIZE);
+        int page = store.allocate();
+        for (int i = 0; i < 10; i++) {
+            store.putInt(page, i, i);
+        }
+        store.copyInts(page, 0, page, 1, 9);
+        assertArrayEquals(new int[] { 0, 0, 1, 2, 3, 4, 5, 6, 7, 8 },
+                IntStream.range(0, 10).map(i -> store.getInt(page, i)).toArray());
+        store.copyInts(page, 2, page, 0, 8);
+        assertArrayEquals(new int[] { 1, 2, 3, 4, 5, 6, 7, 8, 7, 8 },
+                IntStream.range(0, 10).map(i -> store.getInt(page, i)).toArray());
+    }
+
+}
@@ -8,6 +8,7 @@ import org.junit.jupiter.params.provider.Arguments;
 
 import com.cristianpeter.btree.constants.BTreeNodeConstants;
 import com.cristianpeter.btree.core.BTreeNode;
+import com.cristianpeter.btree.enums.SearchMode;
 
 import lombok.AllArgsConstructor;
 
@@ -187,7 +188,16 @@ public class BTreeNodeProvider {
         node1.addKey(13);
         node1.addKey(14);
 
-        return Stream.of(Arguments.of(node1, 13, 4), Arguments.of(node1, 10, 1), Arguments.of(node1, 14, 5));
+        BTreeNode binaryNode = new BTreeNode(BTreeNodeConstants.ORDER_4, null, SearchMode.BINARY);
+        binaryNode.addKey(10);
+        binaryNode.addKey(11);
+        binaryNode.addKey(12);
+        binaryNode.addKey(13);
+        binaryNode.addKey(14);
+
+        return Stream.of(Arguments.of(node1, 13, 4), Arguments.of(node1, 10, 1), Arguments.of(node1, 14, 5),
+                Arguments.of(node1, 9, 0), Arguments.of(binaryNode, 13, 4), Arguments.of(binaryNode, 10, 1),
+                Arguments.of(binaryNode, 14, 5), Arguments.of(binaryNode, 9, 0));
     }
 
     public static Stream<Arguments> provideNodeForGetIndexByKey() {
@@ -0,0 +1,99 @@
+package com.cristianpeter.btree.snapshot;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.OptionalInt;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import com.cristianpeter.btree.BTree;
+import com.cristianpeter.btree.contracts.IBTreeCursor;
+import com.cristianpeter.btree.exceptions.NodeNotFoundException;
+
+class SnapshotBTreeTest {
+
+    @TempDir
+    Path directory;
+
+    @ParameterizedTest(name = "Fanout: {0}")
+    @ValueSource(ints = { 2, 3, 16, 1024 })
+    @DisplayName("Snapshot finds the same keys as the tree it was written from")
+    void writeAndReadTest(int fanout) throws IOException, NodeNotFoundException {
+        BTree tree = new BTree(5);
+        TreeSet<Integer> expected = new TreeSet<>();
+        Random random = new Random(fanout);
+        for (int i = 0; i < 5_000; i++) {
+            int key = random.nextInt(20_000) - 10_000;
+            tree.add(key);
+            expected.add(key);
+        }
+        Path file = directory.resolve("keys.snapshot");
+        SnapshotWriter.write(tree.cursor(), file, fanout);
+
+        try (SnapshotBTree snapshot = SnapshotBTree.open(file)) {
+            assertEquals(expected.size(), snapshot.size());
+            for (int key = -10_001; key <= 10_000; key++) {
+                assertEquals(expected.contains(key), snapshot.contains(key));
+            }
+            assertArrayEquals(expected.stream().mapToInt(Integer::intValue).toArray(), snapshot.stream().toArray());
+            assertArrayEquals(expected.subSet(-100, true, 100, true).stream().mapToInt(Integer::intValue).toArray(),
+                    snapshot.range(-100, 100).toArray());
+            assertEquals(OptionalInt.of(expected.first()), snapshot.first());
+            assertEquals(OptionalInt.of(expected.last()), snapshot.last());
+            assertEquals(OptionalInt.of(expected.ceiling(3)), snapshot.ceiling(3));
+            assertEquals(OptionalInt.of(expected.floor(3)), snapshot.floor(3));
+
+            IBTreeCursor cursor = snapshot.cursor();
+            cursor.seekLast();
+            for (int key : expected.descendingSet()) {
+                assertEquals(key, cursor.previous());
+            }
+            assertFalse(cursor.hasPrevious());
+        }
+        assertFalse(Files.exists(directory.resolve("keys.snapshot.tmp")));
+    }
+
+    @Test
+    @DisplayName("Empty tree gives an empty snapshot")
+    void emptySnapshotTest() throws IOException {
+        Path file = directory.resolve("empty.snapshot");
+        SnapshotWriter.write(new BTree(3), file);
+        try (SnapshotBTree snapshot = SnapshotBTree.open(file)) {
+            assertEquals(0, snapshot.size());
+            assertFalse(snapshot.contains(0));
+            assertEquals(OptionalInt.empty(), snapshot.first());
+        }
+    }
+
+    @Test
+    @DisplayName("Snapshots are read only and reject unsorted keys and foreign files")
+    void invalidUsesTest() throws IOException {
+        Path file = directory.resolve("small.snapshot");
+        SnapshotWriter.write(IntStream.range(0, 10).iterator(), file, 4);
+        try (SnapshotBTree snapshot = SnapshotBTree.open(file)) {
+            assertTrue(snapshot.contains(9));
+            assertThrows(UnsupportedOperationException.class, () -> snapshot.add(10));
+            assertThrows(UnsupportedOperationException.class, () -> snapshot.delete(9));
+        }
+        assertThrows(IllegalArgumentException.class, () -> SnapshotWriter.write(IntStream.of(1, 3, 2).iterator(), file, 4));
+
+        Path foreign = directory.resolve("foreign.snapshot");
+        Files.write(foreign, new byte[2048]);
+        assertThrows(IllegalArgumentException.class, () -> SnapshotBTree.open(foreign));
+    }
+
+}
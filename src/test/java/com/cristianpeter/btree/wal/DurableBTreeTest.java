@@ -0,0 +1,229 @@
+package com.cristianpeter.btree.wal;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import com.cristianpeter.btree.exceptions.KeyNotFoundException;
+import com.cristianpeter.btree.exceptions.NodeNotFoundException;
+
+class DurableBTreeTest {
+
+    @TempDir
+    Path directory;
+
+    @ParameterizedTest(name = "Policy: {0}")
+    @EnumSource(SyncPolicy.class)
+    @DisplayName("Reopened tree has the keys added and deleted before closing")
+    void reopenTest(SyncPolicy policy) throws IOException, NodeNotFoundException, KeyNotFoundException {
+        try (DurableBTree tree = new DurableBTree(directory, 16, policy)) {
+            for (int i = 0; i < 2_000; i++) {
+                assertTrue(tree.add(i));
+            }
+            assertFalse(tree.add(7));
+            assertTrue(tree.delete(1_999));
+            assertTrue(tree.delete(1_998));
+            assertFalse(tree.delete(5_000));
+        }
+
+        try (DurableBTree tree = new DurableBTree(directory, 16, policy)) {
+            assertEquals(2_002, tree.getReplayedRecords());
+            assertArrayEquals(IntStream.range(0, 1_998).toArray(), tree.stream().toArray());
+        }
+    }
+
+    @Test
+    @DisplayName("Checkpoint empties the log and the records after it are replayed over the snapshot")
+    void checkpointTest() throws IOException, NodeNotFoundException, KeyNotFoundException {
+        try (DurableBTree tree = new DurableBTree(directory, 8, SyncPolicy.ALWAYS)) {
+            for (int i = 0; i < 1_000; i++) {
+                tree.add(i * 2);
+            }
+            tree.checkpoint();
+            assertEquals(0, Files.size(directory.resolve(DurableBTree.LOG_FILE)));
+            tree.add(5_000);
+            tree.delete(1_998);
+        }
+
+        try (DurableBTree tree = new DurableBTree(directory, 8, SyncPolicy.ALWAYS)) {
+            assertEquals(2, tree.getReplayedRecords());
+            assertTrue(tree.contains(5_000));
+            assertFalse(tree.contains(1_998));
+            assertTrue(tree.contains(1_996));
+            assertEquals(1_000, tree.stream().count());
+        }
+    }
+
+    @Test
+    @DisplayName("Log records already in the checkpoint are replayed without changing the tree")
+    void replayOverCheckpointTest() throws IOException, NodeNotFoundException, KeyNotFoundException {
+        Path log = directory.resolve(DurableBTree.LOG_FILE);
+        byte[] records;
+        try (DurableBTree tree = new DurableBTree(directory, 8, SyncPolicy.ALWAYS)) {
+            for (int i = 0; i < 100; i++) {
+                tree.add(i);
+            }
+            tree.delete(99);
+            records = Files.readAllBytes(log);
+            tree.checkpoint();
+        }
+        // crash between the snapshot and the truncation of the log
+        Files.write(log, records);
+
+        try (DurableBTree tree = new DurableBTree(directory, 8, SyncPolicy.ALWAYS)) {
+            assertEquals(101, tree.getReplayedRecords());
+            assertArrayEquals(IntStream.range(0, 99).toArray(), tree.stream().toArray());
+        }
+    }
+
+    @Test
+    @DisplayName("Mutations that do not change the tree are not logged, and replay sets the presence of the keys")
+    void unchangedMutationsTest() throws IOException, NodeNotFoundException, KeyNotFoundException {
+        Path log = directory.resolve(DurableBTree.LOG_FILE);
+        try (DurableBTree tree = new DurableBTree(directory, 4, SyncPolicy.ALWAYS)) {
+            for (int i = 0; i < 100; i++) {
+                tree.add(i);
+            }
+            long size = Files.size(log);
+            assertFalse(tree.add(50));
+            assertFalse(tree.delete(500));
+            assertEquals(size, Files.size(log));
+        }
+        // records that a failed mutation could have left, deletes of absent keys and adds of present keys
+        try (WriteAheadLog wal = new WriteAheadLog(log, SyncPolicy.ALWAYS, 1)) {
+            for (int i = 0; i < 100; i++) {
+                wal.append(WriteAheadLog.DELETE, i + 1_000);
+                wal.append(WriteAheadLog.ADD, i);
+                wal.append(WriteAheadLog.DELETE, i);
+                wal.append(WriteAheadLog.DELETE, i);
+            }
+            wal.syncAll();
+        }
+
+        try (DurableBTree tree = new DurableBTree(directory, 4, SyncPolicy.ALWAYS)) {
+            assertEquals(500, tree.getReplayedRecords());
+            assertEquals(0, tree.getSkippedRecords());
+            assertEquals(0, tree.stream().count());
+        }
+    }
+
+    @Test
+    @DisplayName("A mutation whose record can not be appended leaves the tree unchanged")
+    void failedAppendTest() throws IOException, NodeNotFoundException, KeyNotFoundException {
+        DurableBTree tree = new DurableBTree(directory, 8, SyncPolicy.BATCH);
+        tree.add(-1);
+        // the log is closed, the append that has to write its full buffer fails
+        tree.close();
+        int key = 0;
+        UncheckedIOException failure = null;
+        while (failure == null && key < 100_000) {
+            try {
+                tree.add(key++);
+            } catch (UncheckedIOException e) {
+                failure = e;
+            }
+        }
+        assertNotNull(failure);
+        assertFalse(tree.contains(key - 1));
+        assertTrue(tree.contains(key - 2));
+    }
+
+    @Test
+    @DisplayName("A torn record at the end of the log is dropped and the log goes on after the last valid one")
+    void tornTailTest() throws IOException, NodeNotFoundException {
+        Path log = directory.resolve(DurableBTree.LOG_FILE);
+        try (DurableBTree tree = new DurableBTree(directory, 4, SyncPolicy.ALWAYS)) {
+            for (int i = 0; i < 10; i++) {
+                tree.add(i);
+            }
+        }
+        // half of a record and then a record with a bad checksum
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[] { WriteAheadLog.ADD, 0, 0, 0, 42, 1, 2, 3, 4 }));
+        }
+
+        try (DurableBTree tree = new DurableBTree(directory, 4, SyncPolicy.ALWAYS)) {
+            assertEquals(10, tree.getReplayedRecords());
+            assertFalse(tree.contains(42));
+            assertEquals(10L * WriteAheadLog.RECORD_BYTES, Files.size(log));
+            tree.add(100);
+        }
+
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE)) {
+            channel.truncate(Files.size(log) - 3);
+        }
+        try (DurableBTree tree = new DurableBTree(directory, 4, SyncPolicy.ALWAYS)) {
+            assertFalse(tree.contains(100));
+            assertArrayEquals(IntStream.range(0, 10).toArray(), tree.stream().toArray());
+        }
+    }
+
+    @Test
+    @DisplayName("Concurrent writers share the syncs of the log and every key is recovered")
+    void groupCommitTest() throws Exception {
+        int threads = 8;
+        int keysPerThread = 250;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try (DurableBTree tree = new DurableBTree(directory, 16, SyncPolicy.ALWAYS)) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int first = t * keysPerThread;
+                futures.add(executor.submit(() -> {
+                    for (int key = first; key < first + keysPerThread; key++) {
+                        tree.add(key);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        try (DurableBTree tree = new DurableBTree(directory, 16, SyncPolicy.ALWAYS)) {
+            assertArrayEquals(IntStream.range(0, threads * keysPerThread).toArray(), tree.stream().toArray());
+        }
+    }
+
+    @Test
+    @DisplayName("Batch policy forces the log in the background")
+    void batchPolicyTest() throws Exception {
+        Path file = directory.resolve("batch.log");
+        try (WriteAheadLog log = new WriteAheadLog(file, SyncPolicy.BATCH, 1)) {
+            long sequence = log.append(WriteAheadLog.ADD, 1);
+            log.sync(sequence);
+            long deadline = System.nanoTime() + 5_000_000_000L;
+            // the size is reached before the force ends, wait for the count of syncs
+            while (log.getSyncs() == 0 && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            assertEquals(WriteAheadLog.RECORD_BYTES, Files.size(file));
+            assertTrue(log.getSyncs() > 0);
+        }
+    }
+
+}